@@ -6,18 +6,47 @@ import colectivo.modelo.Linea;
 import colectivo.modelo.Parada;
 import colectivo.modelo.Recorrido;
 import colectivo.modelo.Tramo;
+import colectivo.negocio.AlgoritmoRecorrido;
+import colectivo.negocio.CacheRecorridos;
+import colectivo.negocio.CalculoAlternativas;
 import colectivo.negocio.Calculo;
+import colectivo.negocio.CalculoBidireccional;
+import colectivo.negocio.CalculoCSA;
 import colectivo.negocio.CalculoCaminando;
+import colectivo.negocio.CalculoCoordenadas;
 import colectivo.negocio.CalculoDijkstra;
 import colectivo.negocio.CalculoDirecto;
+import colectivo.negocio.CalculoIsocrona;
+import colectivo.negocio.CalculoMulticriterio;
+import colectivo.negocio.CalculoMultimodal;
+import colectivo.negocio.CalculoRaptor;
+import colectivo.negocio.CalculoTripBased;
+import colectivo.negocio.IndiceEspacial;
+import colectivo.negocio.JerarquiaContraccion;
+import colectivo.negocio.MapaGrafo;
+import colectivo.negocio.MatrizTiempos;
+import colectivo.negocio.PatronesTransbordo;
 import colectivo.servicio.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.file.Path;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Clase que se encargra de orquestar la inicializacion de la aplicacion, y de coordinar la interaccion entre las
@@ -57,11 +86,6 @@ public class CoordinadorApp implements ICoordinadorApp{
      */
     private ConfiguracionGlobal configuracion;
 
-    /**
-     * Servicio que se encarga de ejecutar el cálculo del recorrido, utilizando los datos de paradas, tramos, y lineas.
-     */
-    private Calculo calculo;
-
     /**
      * Mapa que almacena los tramos, con la clave siendo una combinación de origen y
      * destino (por ejemplo, "ParadaA-ParadaB") para facilitar la búsqueda de tramos entre dos paradas.
@@ -78,6 +102,84 @@ public class CoordinadorApp implements ICoordinadorApp{
      */
     private Map<String, Linea> mapaLineas;
 
+    /**
+     * Grafo inmutable de la red, construido una sola vez a partir de mapaTramos. Los algoritmos lo toman prestado
+     * en cada consulta y solo se reconstruye cuando cambian los tramos.
+     */
+    private volatile MapaGrafo mapaGrafo;
+
+    /**
+     * Indice espacial de las paradas, para buscar las cercanas a un punto. Se arma al cargar las paradas y se
+     * reemplaza por una copia modificada cada vez que se inserta, actualiza o borra una parada.
+     */
+    private volatile IndiceEspacial indiceParadas;
+
+    /**
+     * Jerarquia de contraccion del grafo actual, para estimar tiempos de viaje y acotar las busquedas. Se arma en
+     * segundo plano cada vez que cambia el grafo, y mientras tanto vale null.
+     */
+    private volatile JerarquiaContraccion jerarquia;
+
+    /**
+     * Patrones de transbordo precalculados del grafo actual, si se eligio ese algoritmo. Se calculan en segundo plano
+     * cada vez que cambia el grafo, y mientras tanto vale null y se usa RAPTOR.
+     */
+    private volatile PatronesTransbordo patronesTransbordo;
+
+    /**
+     * Transbordos entre viajes precalculados del grafo actual, si se eligio el ruteo basado en viajes. Se calculan en
+     * segundo plano cada vez que cambia el grafo, y mientras tanto vale null y se usa RAPTOR.
+     */
+    private volatile CalculoTripBased transbordosEntreViajes;
+
+    /**
+     * Hilo de fondo que arma las estructuras precalculadas del grafo (jerarquia de contraccion, patrones de transbordo
+     * y transbordos entre viajes), de a un grafo por vez.
+     */
+    private final ExecutorService tareasDeFondo = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "precalculo-grafo");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /**
+     * Cantidad de hilos para las estrategias, una por cada estrategia de una consulta (caminando, directo y con
+     * transbordo).
+     */
+    private static final int HILOS_ESTRATEGIAS = 3;
+
+    /**
+     * Hilos fijos en los que se ejecutan a la vez las estrategias de cada consulta. Son siempre los mismos hilos, asi
+     * el espacio de trabajo de las busquedas, que es uno por hilo, se arma una sola vez y se reusa entre consultas.
+     * Si la interfaz y la consola consultan a la vez, las estrategias de una esperan a que se liberen hilos; el plazo
+     * de cada estrategia recien empieza a contar cuando corre.
+     */
+    private final ExecutorService estrategias = Executors.newFixedThreadPool(HILOS_ESTRATEGIAS, tarea -> {
+        Thread hilo = new Thread(tarea, "estrategia-consulta");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /**
+     * Hilos en los que se reparten los origenes de la matriz de tiempos, uno por procesador. Se crean una sola vez y
+     * se reusan entre matrices, junto con el espacio de trabajo de cada hilo. Sus hilos son de fondo y terminan solos
+     * si quedan sin uso.
+     */
+    private final ForkJoinPool hilosMatriz = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Resultados de las ultimas consultas de ejecutarCalculo, que se descartan cada vez que cambian los tramos, las
+     * paradas o las lineas.
+     */
+    private CacheRecorridos cacheRecorridos;
+
+    /**
+     * Version de los datos de la red, que aumenta cada vez que se reconstruye el grafo. Forma parte de la clave
+     * de la cache, asi un resultado calculado con los datos anteriores que se guarde despues de invalidar nunca se
+     * vuelve a entregar.
+     */
+    private final AtomicLong versionRed = new AtomicLong();
+
     /**
      * Lista de soluciones de recorrido que se obtiene al ejecutar el cálculo. Cada solución es una lista de objetos
      * Recorrido, que representan los tramos y lineas que el usuario debe tomar para ir desde el origen al destino,
@@ -85,6 +187,32 @@ public class CoordinadorApp implements ICoordinadorApp{
      */
     List<List<Recorrido>> recorridoSolucion;
 
+    /**
+     * Constructor de la clase CoordinadorApp. La configuración, los servicios y los datos se cargan en
+     * inicializarAplicacion.
+     */
+    public CoordinadorApp() {
+    }
+
+    /**
+     * Constructor con la configuración y los servicios ya armados, sin interfaz de usuario. Carga los datos de los
+     * servicios igual que inicializarAplicacion, pero sin pasar por la Factory ni por la persistencia configurada.
+     * @param configuracion La configuración de la aplicación.
+     * @param paradaService El servicio de paradas.
+     * @param tramoService El servicio de tramos.
+     * @param lineaService El servicio de lineas.
+     */
+    CoordinadorApp(ConfiguracionGlobal configuracion, ParadaService paradaService, TramoService tramoService,
+                   LineaService lineaService) {
+        this.configuracion = configuracion;
+        this.cacheRecorridos = new CacheRecorridos(leerTamanoCache(), leerEdadCache());
+        this.paradaService = paradaService;
+        this.tramoService = tramoService;
+        this.lineaService = lineaService;
+        cargarDatosUnaVez();
+        this.recorridoSolucion = new ArrayList<>();
+    }
+
     /**
      * Inicializa la aplicación, cargando la configuración global, inicializando los servicios, y cargando los datos
      * de paradas, tramos, y lineas.
@@ -96,12 +224,12 @@ public class CoordinadorApp implements ICoordinadorApp{
 
             this.configuracion = new ConfiguracionGlobal();
 
+            this.cacheRecorridos = new CacheRecorridos(leerTamanoCache(), leerEdadCache());
+
             inicializarServicios();
 
             cargarDatosUnaVez();
 
-            this.calculo = new Calculo(new CalculoDijkstra());
-
             this.recorridoSolucion = new ArrayList<>();
 
             if (this.interfazService != null) {
@@ -146,10 +274,12 @@ public class CoordinadorApp implements ICoordinadorApp{
         try {
             this.mapaParadas = paradaService.buscarTodos();
             LOGGER.info("Se cargaron {} paradas.", mapaParadas.size());
+            this.indiceParadas = new IndiceEspacial(mapaParadas.values());
             this.mapaTramos = tramoService.buscarTodos();
             LOGGER.info("Se cargaron {} tramos.", mapaTramos.size());
             this.mapaLineas = lineaService.buscarTodos();
             LOGGER.info("Se cargaron {} lineas.", mapaLineas.size());
+            reconstruirGrafo();
 
             LOGGER.info("Datos cargados correctamente.");
         } catch (Exception e) {
@@ -158,6 +288,312 @@ public class CoordinadorApp implements ICoordinadorApp{
         }
     }
 
+    /**
+     * Construye el grafo de la red a partir de los tramos cargados y lo reemplaza de una sola vez, asi las consultas
+     * que esten en curso siguen usando el grafo anterior.
+     */
+    private void reconstruirGrafo() {
+        MapaGrafo grafo = new MapaGrafo(this.mapaTramos);
+        this.jerarquia = null;
+        this.patronesTransbordo = null;
+        this.transbordosEntreViajes = null;
+        this.mapaGrafo = grafo;
+        versionRed.incrementAndGet();
+        LOGGER.info("Grafo de la red construido con {} paradas.", grafo.getParadas().size());
+        tareasDeFondo.submit(() -> prepararJerarquia(grafo));
+        if ("patrones".equalsIgnoreCase(configuracion.getProperty("algoritmo.transbordo"))) {
+            tareasDeFondo.submit(() -> prepararPatrones(grafo));
+        }
+        if ("tripbased".equalsIgnoreCase(configuracion.getProperty("algoritmo.transbordo"))) {
+            tareasDeFondo.submit(() -> prepararTransbordosEntreViajes(grafo));
+        }
+    }
+
+    /**
+     * Calcula los patrones de transbordo del grafo en segundo plano, repartiendo los origenes entre los procesadores.
+     * Si mientras tanto el grafo cambio, los patrones se descartan.
+     * @param grafo grafo para el que se calculan los patrones
+     */
+    private void prepararPatrones(MapaGrafo grafo) {
+        if (grafo != this.mapaGrafo) {
+            return;
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            PatronesTransbordo nuevos = new PatronesTransbordo(grafo, 8, Runtime.getRuntime().availableProcessors());
+            LOGGER.info("Se calcularon {} patrones de transbordo en {} ms.", nuevos.cantidadPatrones(),
+                    System.currentTimeMillis() - inicio);
+            if (grafo == this.mapaGrafo) {
+                this.patronesTransbordo = nuevos;
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error al calcular los patrones de transbordo: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Calcula los transbordos entre viajes del grafo en segundo plano, repartiendo las lineas entre los procesadores.
+     * Si mientras tanto el grafo cambio, los transbordos se descartan.
+     * @param grafo grafo para el que se calculan los transbordos
+     */
+    private void prepararTransbordosEntreViajes(MapaGrafo grafo) {
+        if (grafo != this.mapaGrafo) {
+            return;
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            CalculoTripBased nuevos = new CalculoTripBased(grafo, 8, Runtime.getRuntime().availableProcessors());
+            LOGGER.info("Se calcularon {} transbordos entre viajes en {} ms.", nuevos.cantidadTransbordos(),
+                    System.currentTimeMillis() - inicio);
+            if (grafo == this.mapaGrafo) {
+                this.transbordosEntreViajes = nuevos;
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error al calcular los transbordos entre viajes: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lee la jerarquia de contraccion guardada para el grafo, o la arma y la guarda si no existe o se armo con otros
+     * tramos. Se ejecuta en segundo plano; si mientras tanto el grafo cambio, la jerarquia se descarta.
+     * @param grafo grafo para el que se prepara la jerarquia
+     */
+    private void prepararJerarquia(MapaGrafo grafo) {
+        if (grafo != this.mapaGrafo) {
+            return;
+        }
+        try {
+            String ruta = configuracion.getProperty("jerarquia.archivo");
+            Path archivo = (ruta == null || ruta.isBlank()) ? null : Path.of(ruta.trim());
+            JerarquiaContraccion nueva = null;
+            if (archivo != null) {
+                try {
+                    nueva = JerarquiaContraccion.cargar(archivo, grafo);
+                } catch (Exception e) {
+                    LOGGER.warn("No se pudo leer la jerarquia de contraccion guardada: " + e.getMessage());
+                }
+            }
+            if (nueva == null) {
+                long inicio = System.currentTimeMillis();
+                nueva = new JerarquiaContraccion(grafo);
+                LOGGER.info("Jerarquia de contraccion armada en {} ms.", System.currentTimeMillis() - inicio);
+                if (archivo != null) {
+                    nueva.guardar(archivo);
+                }
+            } else {
+                LOGGER.info("Jerarquia de contraccion leida de {}.", archivo);
+            }
+            if (grafo == this.mapaGrafo) {
+                this.jerarquia = nueva;
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error al preparar la jerarquia de contraccion: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inserta un tramo utilizando el servicio de tramos, y reconstruye el grafo de la red para que las próximas
+     * consultas lo tengan en cuenta.
+     * @param tramo El tramo a insertar.
+     */
+    @Override
+    public void insertarTramo(Tramo tramo) {
+        tramoService.insertar(tramo);
+        recargarTramos();
+    }
+
+    /**
+     * Actualiza un tramo utilizando el servicio de tramos, y reconstruye el grafo de la red.
+     * @param tramo El tramo a actualizar.
+     */
+    @Override
+    public void actualizarTramo(Tramo tramo) {
+        tramoService.actualizar(tramo);
+        recargarTramos();
+    }
+
+    /**
+     * Borra un tramo utilizando el servicio de tramos, y reconstruye el grafo de la red.
+     * @param tramo El tramo a borrar.
+     */
+    @Override
+    public void borrarTramo(Tramo tramo) {
+        tramoService.borrar(tramo);
+        recargarTramos();
+    }
+
+    /**
+     * Inserta una parada utilizando el servicio de paradas, la agrega al indice espacial y reconstruye el grafo de la
+     * red.
+     * @param parada La parada a insertar.
+     */
+    @Override
+    public void insertarParada(Parada parada) {
+        paradaService.insertar(parada);
+        this.mapaParadas = paradaService.buscarTodos();
+        this.indiceParadas = indiceParadas.conParada(parada);
+        reconstruirGrafo();
+        cacheRecorridos.invalidar();
+    }
+
+    /**
+     * Actualiza una parada utilizando el servicio de paradas, actualiza su posicion en el indice espacial y reconstruye
+     * el grafo de la red, que guarda las paradas con sus coordenadas y sus paradas caminando.
+     * @param parada La parada a actualizar.
+     */
+    @Override
+    public void actualizarParada(Parada parada) {
+        paradaService.actualizar(parada);
+        this.mapaParadas = paradaService.buscarTodos();
+        this.indiceParadas = indiceParadas.conParada(parada);
+        reconstruirGrafo();
+        cacheRecorridos.invalidar();
+    }
+
+    /**
+     * Borra una parada utilizando el servicio de paradas, la saca del indice espacial y reconstruye el grafo de la
+     * red.
+     * @param parada La parada a borrar.
+     */
+    @Override
+    public void borrarParada(Parada parada) {
+        paradaService.borrar(parada);
+        this.mapaParadas = paradaService.buscarTodos();
+        this.indiceParadas = indiceParadas.sinParada(parada);
+        reconstruirGrafo();
+        cacheRecorridos.invalidar();
+    }
+
+    /**
+     * Inserta una linea utilizando el servicio de lineas, la enlaza con sus paradas y reconstruye el grafo de la red.
+     * @param linea La linea a insertar.
+     */
+    @Override
+    public void insertarLinea(Linea linea) {
+        lineaService.insertar(linea);
+        enlazarLinea(null, linea);
+        recargarLineas();
+    }
+
+    /**
+     * Actualiza una linea utilizando el servicio de lineas, reemplaza la version anterior en sus paradas y reconstruye
+     * el grafo de la red.
+     * @param linea La linea a actualizar.
+     */
+    @Override
+    public void actualizarLinea(Linea linea) {
+        Linea anterior = mapaLineas.get(linea.getCodigo());
+        lineaService.actualizar(linea);
+        enlazarLinea(anterior, linea);
+        recargarLineas();
+    }
+
+    /**
+     * Borra una linea utilizando el servicio de lineas, la saca de sus paradas y reconstruye el grafo de la red.
+     * @param linea La linea a borrar.
+     */
+    @Override
+    public void borrarLinea(Linea linea) {
+        Linea anterior = mapaLineas.get(linea.getCodigo());
+        lineaService.borrar(linea);
+        enlazarLinea(anterior != null ? anterior : linea, null);
+        recargarLineas();
+    }
+
+    /**
+     * Agrega un horario de salida a una linea, lo guarda con el servicio de lineas y reconstruye el grafo de la red.
+     * @param linea La linea a modificar.
+     * @param dia El día de la semana, representado como un número del 1 al 7.
+     * @param hora La hora de salida, en formato HH:mm.
+     */
+    @Override
+    public void agregarFrecuencia(Linea linea, int dia, String hora) {
+        linea.agregarFrecuencia(dia, LocalTime.parse(hora));
+        lineaService.actualizar(linea);
+        recargarLineas();
+    }
+
+    /**
+     * Quita un horario de salida de una linea, lo guarda con el servicio de lineas y reconstruye el grafo de la red.
+     * @param linea La linea a modificar.
+     * @param dia El día de la semana, representado como un número del 1 al 7.
+     * @param hora La hora de salida, en formato HH:mm.
+     */
+    @Override
+    public void quitarFrecuencia(Linea linea, int dia, String hora) {
+        if (!linea.quitarFrecuencia(dia, LocalTime.parse(hora))) {
+            LOGGER.warn("La linea {} no sale el dia {} a las {}.", linea.getCodigo(), dia, hora);
+            return;
+        }
+        lineaService.actualizar(linea);
+        recargarLineas();
+    }
+
+    /**
+     * Busca las paradas mas cercanas a un punto con el indice espacial.
+     * @param latitud La latitud del punto.
+     * @param longitud La longitud del punto.
+     * @param cantidad La cantidad de paradas buscadas.
+     * @return Las paradas, de la más cercana a la más lejana.
+     */
+    @Override
+    public List<Parada> buscarParadasCercanas(double latitud, double longitud, int cantidad) {
+        return indiceParadas.buscarCercanas(latitud, longitud, cantidad);
+    }
+
+    /**
+     * Busca las paradas que están a menos de un radio de un punto con el indice espacial.
+     * @param latitud La latitud del punto.
+     * @param longitud La longitud del punto.
+     * @param radioKm El radio en kilómetros.
+     * @return Las paradas dentro del radio, de la más cercana a la más lejana.
+     */
+    @Override
+    public List<Parada> buscarParadasEnRadio(double latitud, double longitud, double radioKm) {
+        return indiceParadas.buscarEnRadio(latitud, longitud, radioKm);
+    }
+
+    /**
+     * Vuelve a pedir los tramos al servicio despues de un cambio y reconstruye el grafo de la red.
+     */
+    private void recargarTramos() {
+        this.mapaTramos = tramoService.buscarTodos();
+        LOGGER.info("Tramos modificados, se recargaron {} tramos.", mapaTramos.size());
+        reconstruirGrafo();
+        cacheRecorridos.invalidar();
+    }
+
+    /**
+     * Vuelve a pedir las lineas al servicio despues de un cambio y reconstruye el grafo de la red, que toma las lineas
+     * de las paradas.
+     */
+    private void recargarLineas() {
+        this.mapaLineas = lineaService.buscarTodos();
+        LOGGER.info("Lineas modificadas, se recargaron {} lineas.", mapaLineas.size());
+        reconstruirGrafo();
+        cacheRecorridos.invalidar();
+    }
+
+    /**
+     * Cambia una linea por otra en las paradas que recorren, porque el grafo arma las lineas a partir de las paradas.
+     * @param anterior La linea que se quita de sus paradas, o null si no hay.
+     * @param nueva La linea que se agrega a sus paradas, o null si no hay.
+     */
+    private void enlazarLinea(Linea anterior, Linea nueva) {
+        if (anterior != null) {
+            for (Parada parada : anterior.getParadas()) {
+                parada.quitarLinea(anterior);
+            }
+        }
+        if (nueva != null) {
+            for (Parada parada : nueva.getParadas()) {
+                if (!parada.getLineas().contains(nueva)) {
+                    parada.agregarLinea(nueva);
+                }
+            }
+        }
+    }
+
     /**
      * Devuelve la configuración global de la aplicación, que incluye los textos traducidos y las propiedades cargadas
      * desde el archivo de configuración.
@@ -253,41 +689,537 @@ public class CoordinadorApp implements ICoordinadorApp{
         }
         try {
             LocalTime hs = LocalTime.parse(hora);
-            List<List<Recorrido>> todasLasSoluciones = new ArrayList<>();
-            LOGGER.info("Caminando");
-            this.calculo.setEstrategia(new CalculoCaminando());
-            List<List<Recorrido>> rutasCaminando = this.calculo.ejecutarCalculo(origen, destino, dia, hs, this.mapaTramos);
-            if (rutasCaminando != null && !rutasCaminando.isEmpty()) {
-                todasLasSoluciones.addAll(rutasCaminando);
+            //Las estrategias usan los mismos tramos y el mismo grafo aunque se modifiquen durante la consulta. La version
+            //se lee antes que el grafo, asi un resultado nunca queda guardado con una version mas nueva que sus datos
+            long version = versionRed.get();
+            Map<String, Tramo> tramos = this.mapaTramos;
+            MapaGrafo grafo = this.mapaGrafo;
+            String algoritmo = configuracion.getProperty("algoritmo.transbordo");
+            String clave = claveConsulta(algoritmo, origen, destino, dia, hs, grafo, version);
+
+            if ("multicriterio".equalsIgnoreCase(algoritmo)) {
+                List<List<Recorrido>> guardados = cacheRecorridos.obtener(clave);
+                if (guardados != null) {
+                    LOGGER.info("Multicriterio tomado de la cache");
+                    this.recorridoSolucion = guardados;
+                    return;
+                }
+                //Una sola busqueda devuelve los viajes caminando, directos y con transbordo que no se dominan
+                LOGGER.info("Multicriterio (llegada, transbordos y caminata)");
+                List<List<Recorrido>> rutas = new Calculo(new CalculoMulticriterio()).ejecutarCalculo(origen, destino,
+                        dia, hs, grafo);
+                if (grafo == this.mapaGrafo) {
+                    cacheRecorridos.guardar(clave, rutas);
+                }
+                this.recorridoSolucion = rutas;
+                return;
             }
 
-            if (origen.getCodigo() != destino.getCodigo() ) {
-                if (compartenLinea(origen, destino)) {
-                    LOGGER.info("Directo (sin transbordo)");
-                    this.calculo.setEstrategia(new CalculoDirecto());
-                    List<List<Recorrido>> rutasDirectas = this.calculo.ejecutarCalculo(origen, destino, dia, hs, this.mapaTramos);
-                    if (rutasDirectas != null && !rutasDirectas.isEmpty()) {
-                        todasLasSoluciones.addAll(rutasDirectas);
+            //Los viajes caminando dependen de la hora exacta y se calculan siempre, los viajes en colectivo pueden
+            //estar en la cache
+            List<List<Recorrido>> enColectivo = cacheRecorridos.obtener(clave);
+
+            //Cada estrategia corre en uno de los hilos de estrategias con su propio Calculo
+            List<Callable<List<List<Recorrido>>>> tareas = new ArrayList<>();
+            List<String> nombres = new ArrayList<>();
+            nombres.add("Caminando");
+            tareas.add(() -> new Calculo(new CalculoCaminando()).ejecutarCalculo(origen, destino, dia, hs, tramos));
+
+            if (enColectivo != null) {
+                LOGGER.info("Directo y con transbordo tomados de la cache ({} aciertos, {} fallos)",
+                        cacheRecorridos.getAciertos(), cacheRecorridos.getFallos());
+            } else {
+                if (origen.getCodigo() != destino.getCodigo() ) {
+                    if (compartenLinea(origen, destino)) {
+                        nombres.add("Directo (sin transbordo)");
+                        tareas.add(() -> new Calculo(new CalculoDirecto()).ejecutarCalculo(origen, destino, dia, hs, grafo));
                     }
                 }
+
+                AlgoritmoRecorrido algoritmoTransbordo = crearAlgoritmoTransbordo();
+                nombres.add("Con transbordo");
+                tareas.add(() -> {
+                    List<List<Recorrido>> rutas = new Calculo(algoritmoTransbordo).ejecutarCalculo(origen, destino,
+                            dia, hs, grafo);
+                    if (algoritmoTransbordo instanceof CalculoDijkstra dijkstra) {
+                        LOGGER.info("Paradas expandidas: " + dijkstra.getNodosExpandidos());
+                    }
+                    return rutas;
+                });
             }
 
-            LOGGER.info("Con transbordo (Dijkstra)");
-            this.calculo.setEstrategia(new CalculoDijkstra());
-            List<List<Recorrido>> rutasConTransbordo = this.calculo.ejecutarCalculo(origen, destino, dia, hs, this.mapaTramos);
+            //Cada resultado queda en el lugar de su estrategia, asi se muestran siempre en el mismo orden aunque
+            //terminen en otro. Los viajes en colectivo solo estan completos si no falto ninguna de sus estrategias
+            List<List<List<Recorrido>>> porEstrategia = ejecutarEstrategias(tareas, nombres, leerPlazoConsulta());
+            boolean completo = !porEstrategia.subList(1, porEstrategia.size()).contains(null);
+            List<List<Recorrido>> todasLasSoluciones = new ArrayList<>();
+            List<List<Recorrido>> calculados = new ArrayList<>();
+            for (int i = 0; i < porEstrategia.size(); i++) {
+                List<List<Recorrido>> rutas = porEstrategia.get(i);
+                if (rutas != null && !rutas.isEmpty()) {
+                    //La primera tarea es la de caminando, el resto son en colectivo
+                    (i == 0 ? todasLasSoluciones : calculados).addAll(rutas);
+                }
+            }
 
-            if (rutasConTransbordo != null && !rutasConTransbordo.isEmpty()) {
-                todasLasSoluciones.addAll(rutasConTransbordo);
+            //Un resultado incompleto o calculado con un grafo que ya cambio no se guarda
+            if (enColectivo == null) {
+                if (completo && grafo == this.mapaGrafo) {
+                    cacheRecorridos.guardar(clave, calculados);
+                }
+                enColectivo = calculados;
             }
+            todasLasSoluciones.addAll(enColectivo);
 
             this.recorridoSolucion = todasLasSoluciones;
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Cálculo interrumpido: " + e.getMessage(), e);
+            throw new RuntimeException("Error al calcular el recorrido: " + e.getMessage());
         } catch (Exception e) {
             LOGGER.error("Error al ejecutar cálculo: " + e.getMessage(), e);
             throw new RuntimeException("Error al calcular el recorrido: " + e.getMessage());
         }
     }
 
+    /**
+     * Ejecuta las estrategias de una consulta en los hilos de estrategias y toma cada resultado a medida que termina.
+     * Cada estrategia tiene su propio plazo, que empieza cuando un hilo la empieza a correr; la que no termina en el
+     * plazo se cancela, y la cancelacion interrumpe su hilo para que deje de calcular. Si una estrategia falla o se
+     * cancela, las demas se siguen esperando.
+     * @param tareas Las estrategias de la consulta.
+     * @param nombres El nombre de cada estrategia, para el registro.
+     * @param plazo El plazo de cada estrategia en milisegundos.
+     * @return El resultado de cada estrategia en el orden de las tareas, con null en las que fallaron o no terminaron.
+     * @throws InterruptedException si se interrumpe el hilo de la consulta; en ese caso se cancelan todas.
+     */
+    List<List<List<Recorrido>>> ejecutarEstrategias(List<Callable<List<List<Recorrido>>>> tareas,
+                                                   List<String> nombres, long plazo)
+            throws InterruptedException {
+        int cantidad = tareas.size();
+        long plazoNanos = TimeUnit.MILLISECONDS.toNanos(plazo);
+        CompletionService<List<List<Recorrido>>> terminadas = new ExecutorCompletionService<>(estrategias);
+        long[] inicios = new long[cantidad];
+        boolean[] empezadas = new boolean[cantidad];
+        List<Future<List<List<Recorrido>>>> futuros = new ArrayList<>(cantidad);
+        List<List<List<Recorrido>>> resultados = new ArrayList<>(Collections.nCopies(cantidad, null));
+        try {
+            for (int i = 0; i < cantidad; i++) {
+                int posicion = i;
+                Callable<List<List<Recorrido>>> tarea = tareas.get(i);
+                futuros.add(terminadas.submit(() -> {
+                    synchronized (inicios) {
+                        inicios[posicion] = System.nanoTime();
+                        empezadas[posicion] = true;
+                    }
+                    return tarea.call();
+                }));
+            }
+
+            for (int pendientes = cantidad; pendientes > 0; pendientes--) {
+                Future<List<List<Recorrido>>> terminada;
+                while ((terminada = terminadas.poll(esperaHastaPlazo(futuros, inicios, empezadas, plazoNanos),
+                        TimeUnit.NANOSECONDS)) == null) {
+                    cancelarVencidas(futuros, inicios, empezadas, plazoNanos);
+                }
+                int i = futuros.indexOf(terminada);
+                if (terminada.isCancelled()) {
+                    LOGGER.warn(nombres.get(i) + " no termino en " + plazo + " ms, se descarta.");
+                    continue;
+                }
+                try {
+                    resultados.set(i, terminada.get());
+                    LOGGER.info(nombres.get(i));
+                } catch (ExecutionException e) {
+                    LOGGER.error(nombres.get(i) + " fallo, se descarta: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            for (Future<List<List<Recorrido>>> futuro : futuros) {
+                futuro.cancel(true);
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Calcula cuanto falta para que venza el plazo de la primera estrategia sin terminar. Las que todavia no empezaron
+     * se vuelven a mirar despues de un plazo entero.
+     * @return Los nanosegundos hasta el primer vencimiento, o 0 si alguno ya vencio.
+     */
+    private static long esperaHastaPlazo(List<Future<List<List<Recorrido>>>> futuros, long[] inicios,
+                                         boolean[] empezadas, long plazoNanos) {
+        long ahora = System.nanoTime();
+        long espera = plazoNanos;
+        synchronized (inicios) {
+            for (int i = 0; i < futuros.size(); i++) {
+                if (empezadas[i] && !futuros.get(i).isDone()) {
+                    espera = Math.min(espera, Math.max(0L, inicios[i] + plazoNanos - ahora));
+                }
+            }
+        }
+        return espera;
+    }
+
+    /**
+     * Cancela las estrategias que empezaron y no terminaron dentro del plazo. La cancelacion interrumpe su hilo, y los
+     * algoritmos la ven en su bucle principal.
+     */
+    private static void cancelarVencidas(List<Future<List<List<Recorrido>>>> futuros, long[] inicios,
+                                         boolean[] empezadas, long plazoNanos) {
+        long ahora = System.nanoTime();
+        synchronized (inicios) {
+            for (int i = 0; i < futuros.size(); i++) {
+                if (empezadas[i] && ahora - inicios[i] >= plazoNanos) {
+                    futuros.get(i).cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Arma la clave de una consulta para la cache de recorridos. En lugar de la hora de salida usa la hora del próximo
+     * colectivo que sale del origen: todas las horas hasta esa toman los mismos colectivos y tienen los mismos viajes,
+     * así que la cache no cambia los resultados. Con multimodal y multicriterio, donde también se camina desde el
+     * origen, y con alternativas, cuyo límite de llegada depende de la hora de salida, se usa la hora exacta.
+     * @param algoritmo El algoritmo de transbordo configurado.
+     * @param origen La parada de origen.
+     * @param destino La parada de destino.
+     * @param dia El día de la semana.
+     * @param hora La hora de salida.
+     * @param grafo El grafo de la consulta.
+     * @param version La versión de los datos de la red con la que se calcula la consulta.
+     * @return La clave de la consulta.
+     */
+    private String claveConsulta(String algoritmo, Parada origen, Parada destino, int dia, LocalTime hora,
+                                 MapaGrafo grafo, long version) {
+        int salida = hora.toSecondOfDay();
+        int ventana = salida;
+        int indiceOrigen = grafo.indiceDe(origen.getCodigo());
+        if (indiceOrigen != -1 && !"multimodal".equalsIgnoreCase(algoritmo)
+                && !"multicriterio".equalsIgnoreCase(algoritmo) && !"alternativas".equalsIgnoreCase(algoritmo)) {
+            ventana = grafo.proximaSalidaDesde(indiceOrigen, dia, salida);
+        }
+        return version + "-" + algoritmo + "-" + origen.getCodigo() + "-" + destino.getCodigo() + "-" + dia + "-"
+                + ventana;
+    }
+
+    /**
+     * Ejecuta el cálculo del perfil de viajes entre dos paradas para todas las salidas dentro de una ventana horaria,
+     * en una sola pasada que reutiliza las etiquetas entre salidas, en vez de calcular una vez por cada minuto.
+     * @param origen La parada de origen seleccionada por el usuario.
+     * @param destino La parada de destino seleccionada por el usuario.
+     * @param dia El día de la semana, representado como un número del 1 al 7.
+     * @param horaDesde La hora de inicio de la ventana de salida.
+     * @param horaHasta La hora de fin de la ventana de salida.
+     */
+    @Override
+    public void ejecutarCalculoPerfil(Parada origen, Parada destino, int dia, String horaDesde, String horaHasta) {
+        if (origen == null || destino == null) {
+            LOGGER.warn("Origen y destino nulos.");
+            return;
+        }
+        try {
+            LocalTime desde = LocalTime.parse(horaDesde);
+            LocalTime hasta = LocalTime.parse(horaHasta);
+            LOGGER.info("Perfil de salidas entre " + desde + " y " + hasta);
+            this.recorridoSolucion = new CalculoRaptor().calcularPerfil(origen, destino, dia, desde, hasta, this.mapaGrafo);
+        } catch (Exception e) {
+            LOGGER.error("Error al ejecutar cálculo del perfil: " + e.getMessage(), e);
+            throw new RuntimeException("Error al calcular el perfil: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ejecuta el cálculo del viaje que sale lo más tarde posible del origen y llega al destino antes de una hora fija,
+     * con la búsqueda bidireccional, y guarda el resultado en recorridoSolucion.
+     * @param origen La parada de origen seleccionada por el usuario.
+     * @param destino La parada de destino seleccionada por el usuario.
+     * @param dia El día de la semana, representado como un número del 1 al 7.
+     * @param horaLlegada La hora a la que hay que llegar al destino.
+     */
+    @Override
+    public void ejecutarCalculoLlegada(Parada origen, Parada destino, int dia, String horaLlegada) {
+        if (origen == null || destino == null) {
+            LOGGER.warn("Origen y destino nulos.");
+            return;
+        }
+        try {
+            LocalTime limite = LocalTime.parse(horaLlegada);
+            LOGGER.info("Llegada antes de " + limite + " (bidireccional)");
+            this.recorridoSolucion = new CalculoBidireccional().calcularRecorridoLlegada(origen, destino, dia, limite,
+                    this.mapaGrafo);
+        } catch (Exception e) {
+            LOGGER.error("Error al ejecutar cálculo con hora de llegada: " + e.getMessage(), e);
+            throw new RuntimeException("Error al calcular el recorrido: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ejecuta el cálculo de hasta K viajes alternativos entre dos paradas, distintos entre sí, y guarda el resultado
+     * en recorridoSolucion ordenado por hora de llegada.
+     * @param origen La parada de origen seleccionada por el usuario.
+     * @param destino La parada de destino seleccionada por el usuario.
+     * @param dia El día de la semana, representado como un número del 1 al 7.
+     * @param hora La hora de inicio del recorrido.
+     * @param cantidad La cantidad máxima de alternativas.
+     */
+    @Override
+    public void ejecutarCalculoAlternativas(Parada origen, Parada destino, int dia, String hora, int cantidad) {
+        if (origen == null || destino == null) {
+            LOGGER.warn("Origen y destino nulos.");
+            return;
+        }
+        try {
+            LocalTime hs = LocalTime.parse(hora);
+            LOGGER.info("Hasta " + cantidad + " alternativas");
+            this.recorridoSolucion = new CalculoAlternativas().calcularAlternativas(origen, destino, dia, hs, cantidad,
+                    this.mapaGrafo);
+        } catch (Exception e) {
+            LOGGER.error("Error al ejecutar cálculo de alternativas: " + e.getMessage(), e);
+            throw new RuntimeException("Error al calcular las alternativas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ejecuta el cálculo del recorrido entre dos puntos del mapa dados por sus coordenadas. Busca las paradas a
+     * distancia de caminata de cada punto y hace una sola búsqueda desde todas ellas, y guarda el resultado en
+     * recorridoSolucion.
+     * @param latitudOrigen La latitud del punto de origen.
+     * @param longitudOrigen La longitud del punto de origen.
+     * @param latitudDestino La latitud del punto de destino.
+     * @param longitudDestino La longitud del punto de destino.
+     * @param dia El día de la semana.
+     * @param hora La hora de salida, en formato HH:mm.
+     */
+    @Override
+    public void ejecutarCalculoCoordenadas(double latitudOrigen, double longitudOrigen, double latitudDestino,
+                                           double longitudDestino, int dia, String hora) {
+        try {
+            LocalTime salida = LocalTime.parse(hora);
+            double radio = leerRadioCaminata();
+            LOGGER.info("Recorrido entre coordenadas, caminando hasta " + radio + " km");
+            this.recorridoSolucion = new CalculoCoordenadas(this.indiceParadas, radio).calcularRecorrido(
+                    latitudOrigen, longitudOrigen, latitudDestino, longitudDestino, dia, salida, this.mapaGrafo);
+        } catch (Exception e) {
+            LOGGER.error("Error al ejecutar cálculo entre coordenadas: " + e.getMessage(), e);
+            throw new RuntimeException("Error al calcular el recorrido: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Calcula la isocrona de una parada: la hora de llegada más temprana a cada parada a la que se llega en colectivo
+     * dentro de la cantidad de minutos indicada, con una sola búsqueda en lugar de un cálculo por parada.
+     * @param origen La parada de origen.
+     * @param dia El día de la semana, representado como un número del 1 al 7.
+     * @param hora La hora de salida, en formato HH:mm.
+     * @param minutos El tiempo máximo de viaje, en minutos.
+     * @return Las paradas alcanzadas con su hora de llegada, en orden de llegada, o un mapa vacío si el origen es nulo.
+     */
+    @Override
+    public Map<Parada, LocalTime> calcularIsocrona(Parada origen, int dia, String hora, int minutos) {
+        if (origen == null) {
+            LOGGER.warn("Origen nulo.");
+            return new LinkedHashMap<>();
+        }
+        try {
+            LocalTime salida = LocalTime.parse(hora);
+            LOGGER.info("Isocrona de " + minutos + " minutos");
+            return new CalculoIsocrona().calcularLlegadas(origen, dia, salida, minutos * 60, this.mapaGrafo);
+        } catch (Exception e) {
+            LOGGER.error("Error al calcular la isocrona: " + e.getMessage(), e);
+            throw new RuntimeException("Error al calcular la isocrona: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Calcula la matriz de llegadas más tempranas entre todos los pares de paradas, con una búsqueda por origen
+     * repartida entre los procesadores, en lugar de un cálculo por cada par.
+     * @param dia El día de la semana, representado como un número del 1 al 7.
+     * @param hora La hora de salida desde cada origen, en formato HH:mm.
+     * @return La matriz de llegadas.
+     */
+    @Override
+    public MatrizTiempos calcularMatrizTiempos(int dia, String hora) {
+        try {
+            LocalTime salida = LocalTime.parse(hora);
+            long inicio = System.currentTimeMillis();
+            MatrizTiempos matriz = new MatrizTiempos(this.mapaGrafo, dia, salida, hilosMatriz);
+            LOGGER.info("Matriz de tiempos de {} paradas calculada en {} ms.", matriz.cantidadParadas(),
+                    System.currentTimeMillis() - inicio);
+            return matriz;
+        } catch (Exception e) {
+            LOGGER.error("Error al calcular la matriz de tiempos: " + e.getMessage(), e);
+            throw new RuntimeException("Error al calcular la matriz de tiempos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Estima el tiempo de viaje entre dos paradas sumando solo los tiempos de los tramos, sin esperas, con la
+     * jerarquia de contraccion. Sirve para mostrar una estimacion rapida antes de calcular el recorrido.
+     * @param origen La parada de origen.
+     * @param destino La parada de destino.
+     * @return El tiempo mínimo en segundos, o -1 si la jerarquía todavía se está armando o no hay camino.
+     */
+    @Override
+    public int estimarTiempoViaje(Parada origen, Parada destino) {
+        JerarquiaContraccion actual = this.jerarquia;
+        if (origen == null || destino == null || actual == null) {
+            return -1;
+        }
+        int tiempo = actual.tiempoMinimo(origen, destino);
+        return tiempo == JerarquiaContraccion.INFINITO ? -1 : tiempo;
+    }
+
+    /**
+     * Crea el algoritmo para los recorridos con transbordo segun la propiedad algoritmo.transbordo del archivo de
+     * configuracion. Por defecto se usa Dijkstra.
+     * @return El algoritmo de recorrido con transbordo.
+     */
+    private AlgoritmoRecorrido crearAlgoritmoTransbordo() {
+        String algoritmo = configuracion.getProperty("algoritmo.transbordo");
+        if ("raptor".equalsIgnoreCase(algoritmo)) {
+            LOGGER.info("Con transbordo (RAPTOR)");
+            return new CalculoRaptor();
+        }
+        if ("aestrella".equalsIgnoreCase(algoritmo)) {
+            JerarquiaContraccion actual = this.jerarquia;
+            if (actual != null) {
+                LOGGER.info("Con transbordo (Dijkstra A* con jerarquia de contraccion)");
+                return new CalculoDijkstra(actual);
+            }
+            LOGGER.info("Con transbordo (Dijkstra A*)");
+            return new CalculoDijkstra(true);
+        }
+        if ("csa".equalsIgnoreCase(algoritmo)) {
+            LOGGER.info("Con transbordo (CSA)");
+            return new CalculoCSA();
+        }
+        if ("patrones".equalsIgnoreCase(algoritmo)) {
+            PatronesTransbordo actuales = this.patronesTransbordo;
+            if (actuales != null) {
+                LOGGER.info("Con transbordo (patrones de transbordo)");
+                return actuales;
+            }
+            LOGGER.info("Con transbordo (RAPTOR, los patrones de transbordo todavia se estan calculando)");
+            return new CalculoRaptor();
+        }
+        if ("tripbased".equalsIgnoreCase(algoritmo)) {
+            CalculoTripBased actual = this.transbordosEntreViajes;
+            if (actual != null) {
+                LOGGER.info("Con transbordo (basado en viajes)");
+                return actual;
+            }
+            LOGGER.info("Con transbordo (RAPTOR, los transbordos entre viajes todavia se estan calculando)");
+            return new CalculoRaptor();
+        }
+        if ("alternativas".equalsIgnoreCase(algoritmo)) {
+            LOGGER.info("Con transbordo (alternativas)");
+            return new CalculoAlternativas(leerCantidadAlternativas());
+        }
+        if ("bidireccional".equalsIgnoreCase(algoritmo)) {
+            LOGGER.info("Con transbordo (bidireccional)");
+            return new CalculoBidireccional();
+        }
+        if ("multimodal".equalsIgnoreCase(algoritmo)) {
+            LOGGER.info("Con transbordo (multimodal)");
+            return new CalculoMultimodal(leerPenalizacionTransbordo(), leerFactorCaminata());
+        }
+        LOGGER.info("Con transbordo (Dijkstra)");
+        return new CalculoDijkstra();
+    }
+
+    /**
+     * Lee la cantidad de alternativas de la propiedad alternativas.cantidad, o devuelve 3 si no esta o no es valida.
+     * @return La cantidad de alternativas.
+     */
+    private int leerCantidadAlternativas() {
+        try {
+            return Math.max(1, Integer.parseInt(configuracion.getProperty("alternativas.cantidad").trim()));
+        } catch (Exception e) {
+            return 3;
+        }
+    }
+
+    /**
+     * Lee la cantidad maxima de consultas guardadas de la propiedad cache.recorridos.tamano, o devuelve 256 si no esta
+     * o no es valida.
+     * @return La cantidad de consultas.
+     */
+    private int leerTamanoCache() {
+        try {
+            return Math.max(1, Integer.parseInt(configuracion.getProperty("cache.recorridos.tamano").trim()));
+        } catch (Exception e) {
+            return 256;
+        }
+    }
+
+    /**
+     * Lee los segundos que se guarda cada consulta de la propiedad cache.recorridos.edad.segundos, o devuelve 600 si
+     * no esta o no es valida.
+     * @return La edad maxima en segundos.
+     */
+    private long leerEdadCache() {
+        try {
+            return Math.max(0L, Long.parseLong(configuracion.getProperty("cache.recorridos.edad.segundos").trim()));
+        } catch (Exception e) {
+            return 600L;
+        }
+    }
+
+    /**
+     * Lee el plazo en milisegundos de cada consulta de la propiedad consulta.plazo.ms, o devuelve 5000 si no esta o no
+     * es valida. Las estrategias que no terminan en el plazo se descartan.
+     * @return El plazo en milisegundos.
+     */
+    private long leerPlazoConsulta() {
+        try {
+            return Math.max(1L, Long.parseLong(configuracion.getProperty("consulta.plazo.ms").trim()));
+        } catch (Exception e) {
+            return 5000L;
+        }
+    }
+
+    /**
+     * Lee la distancia maxima a caminar en cada punta de la propiedad coordenadas.radio.caminata, o devuelve 0.5 si no
+     * esta o no es valida.
+     * @return El radio de caminata en kilometros.
+     */
+    private double leerRadioCaminata() {
+        try {
+            return Math.max(0.0, Double.parseDouble(configuracion.getProperty("coordenadas.radio.caminata").trim()));
+        } catch (Exception e) {
+            return 0.5;
+        }
+    }
+
+    /**
+     * Lee los segundos de penalizacion por transbordo de la propiedad multimodal.penalizacion.transbordo, o devuelve
+     * 300 si no esta o no es valida.
+     * @return La penalizacion por transbordo en segundos.
+     */
+    private int leerPenalizacionTransbordo() {
+        try {
+            return Math.max(0, Integer.parseInt(configuracion.getProperty("multimodal.penalizacion.transbordo").trim()));
+        } catch (Exception e) {
+            return 300;
+        }
+    }
+
+    /**
+     * Lee el recargo sobre el tiempo caminando de la propiedad multimodal.factor.caminata, o devuelve 1.5 si no esta o
+     * no es valido.
+     * @return El factor por el que se multiplica el tiempo caminando.
+     */
+    private double leerFactorCaminata() {
+        try {
+            return Math.max(1.0, Double.parseDouble(configuracion.getProperty("multimodal.factor.caminata").trim()));
+        } catch (Exception e) {
+            return 1.5;
+        }
+    }
+
     /**
      * Devuelve la lista de paradas para mostrar en la UI, esta lista se obtiene del mapaParadas que se cargó al inicio
      * de la aplicación. Si el mapaParadas está vacío, devuelve una lista vacía.
@@ -1,10 +1,15 @@
 package colectivo.controlador;
 
 import colectivo.aplicacion.ConfiguracionGlobal;
+import colectivo.modelo.Linea;
 import colectivo.modelo.Parada;
 import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+import colectivo.negocio.MatrizTiempos;
 
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interfaz que define los métodos que se van a implementar en la clase CoordinadorApp, y que se van a usar para
@@ -54,6 +59,47 @@ public interface ICoordinadorApp {
      */
     void ejecutarCalculo(Parada origen, Parada destino, int dia, String hora);
 
+    /**
+     * Ejecuta el cálculo del perfil de viajes que salen dentro de una ventana horaria (por ejemplo, las salidas de la
+     * próxima hora) y guarda el resultado en recorridoSolucion, ordenado por hora de salida.
+     */
+    void ejecutarCalculoPerfil(Parada origen, Parada destino, int dia, String horaDesde, String horaHasta);
+
+    /**
+     * Ejecuta el cálculo del viaje que sale lo más tarde posible y llega al destino antes de la hora indicada, y guarda
+     * el resultado en recorridoSolucion.
+     */
+    void ejecutarCalculoLlegada(Parada origen, Parada destino, int dia, String horaLlegada);
+
+    /**
+     * Ejecuta el cálculo de hasta la cantidad indicada de viajes alternativos y guarda el resultado en
+     * recorridoSolucion.
+     */
+    void ejecutarCalculoAlternativas(Parada origen, Parada destino, int dia, String hora, int cantidad);
+
+    /**
+     * Ejecuta el calculo del recorrido entre dos puntos dados por latitud y longitud, caminando hasta las paradas
+     * cercanas.
+     */
+    void ejecutarCalculoCoordenadas(double latitudOrigen, double longitudOrigen, double latitudDestino,
+                                    double longitudDestino, int dia, String hora);
+
+    /**
+     * Estima el tiempo de viaje entre dos paradas sin esperas, en segundos, o devuelve -1 si no se puede estimar.
+     */
+    int estimarTiempoViaje(Parada origen, Parada destino);
+
+    /**
+     * Calcula la hora de llegada mas temprana a cada parada alcanzable desde el origen dentro de una cantidad de
+     * minutos, en orden de llegada.
+     */
+    Map<Parada, LocalTime> calcularIsocrona(Parada origen, int dia, String hora, int minutos);
+
+    /**
+     * Calcula la matriz de llegadas mas tempranas entre todos los pares de paradas, saliendo a la misma hora.
+     */
+    MatrizTiempos calcularMatrizTiempos(int dia, String hora);
+
     /**
      *  Devuelve la lista de paradas para mostrar en la vista, o para usar en otras partes de la aplicación.
      * @return La lista de paradas que se ha cargado desde el modelo, o una lista vacía si no se ha cargado ninguna parada.
@@ -75,4 +121,69 @@ public interface ICoordinadorApp {
      * Resetea los resultados de búsqueda (Botón Limpiar).
      */
     void limpiarSistema();
+
+    /**
+     * Inserta un tramo y reconstruye el grafo de la red.
+     */
+    void insertarTramo(Tramo tramo);
+
+    /**
+     * Actualiza un tramo y reconstruye el grafo de la red.
+     */
+    void actualizarTramo(Tramo tramo);
+
+    /**
+     * Borra un tramo y reconstruye el grafo de la red.
+     */
+    void borrarTramo(Tramo tramo);
+
+    /**
+     * Inserta una parada, la agrega al indice espacial y reconstruye el grafo de la red.
+     */
+    void insertarParada(Parada parada);
+
+    /**
+     * Actualiza una parada y su posicion en el indice espacial, y reconstruye el grafo de la red.
+     */
+    void actualizarParada(Parada parada);
+
+    /**
+     * Borra una parada, la saca del indice espacial y reconstruye el grafo de la red.
+     */
+    void borrarParada(Parada parada);
+
+    /**
+     * Inserta una linea y reconstruye el grafo de la red.
+     */
+    void insertarLinea(Linea linea);
+
+    /**
+     * Actualiza una linea y reconstruye el grafo de la red.
+     */
+    void actualizarLinea(Linea linea);
+
+    /**
+     * Borra una linea y reconstruye el grafo de la red.
+     */
+    void borrarLinea(Linea linea);
+
+    /**
+     * Agrega un horario de salida a una linea y reconstruye el grafo de la red.
+     */
+    void agregarFrecuencia(Linea linea, int dia, String hora);
+
+    /**
+     * Quita un horario de salida de una linea y reconstruye el grafo de la red.
+     */
+    void quitarFrecuencia(Linea linea, int dia, String hora);
+
+    /**
+     * Busca las paradas mas cercanas a un punto, de la mas cercana a la mas lejana.
+     */
+    List<Parada> buscarParadasCercanas(double latitud, double longitud, int cantidad);
+
+    /**
+     * Busca las paradas a menos de un radio en kilometros de un punto, de la mas cercana a la mas lejana.
+     */
+    List<Parada> buscarParadasEnRadio(double latitud, double longitud, double radioKm);
 }
\ No newline at end of file
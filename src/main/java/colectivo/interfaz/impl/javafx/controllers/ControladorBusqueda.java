@@ -37,6 +37,7 @@ public class ControladorBusqueda {
     private ComboBox<String> comboDestino;
     private ComboBox<String> comboDia;
     private ComboBox<String> comboHora;
+    private ComboBox<String> comboMinutos;
     //private Button btnCalcular; las comentamos ya que no las usamos
     //private Button btnLimpiar;
     private VBox vboxResultados;
@@ -84,15 +85,17 @@ public class ControladorBusqueda {
      * @param destino Referencia al ComboBox de destino.
      * @param dia Referencia al ComboBox de día.
      * @param hora Referencia al ComboBox de hora.
+     * @param minutos Referencia al ComboBox de minutos de viaje de la isocrona.
      * @param resultados Referencia al VBox donde se mostrarán los resultados de la búsqueda.
      * @param mapa Referencia al controlador del mapa para manejar la visualización de rutas en la pantalla de búsqueda.
      */
     public ControladorBusqueda(ComboBox<String> origen, ComboBox<String> destino, ComboBox<String> dia, ComboBox<String> hora,
-                               VBox resultados, ControladorMapa mapa) {
+                               ComboBox<String> minutos, VBox resultados, ControladorMapa mapa) {
         this.comboOrigen = origen;
         this.comboDestino = destino;
         this.comboDia = dia;
         this.comboHora = hora;
+        this.comboMinutos = minutos;
         this.vboxResultados = resultados;
         this.controladorMapa = mapa;
 
@@ -126,6 +129,9 @@ public class ControladorBusqueda {
         comboHora.setEditable(true); //permitimos que el usuario escriba la hora
         comboHora.setPromptText("HH:mm");
         comboHora.getItems().addAll("08:00", "12:00", "16:00", "20:00");
+
+        comboMinutos.setEditable(true); //permitimos que el usuario escriba otros minutos
+        comboMinutos.getItems().addAll("15", "30", "45", "60");
     }
 
     /**
@@ -252,6 +258,60 @@ public class ControladorBusqueda {
         }
     }
 
+    /**
+     * Recopila el origen, el día, la hora y los minutos, y le pide al coordinador la isocrona de la parada de origen:
+     * las paradas a las que se llega en colectivo dentro de esos minutos. Las dibujamos en el mapa sombreadas según
+     * el tiempo de viaje. El destino no se usa.
+     */
+    public void procesarIsocrona() {
+        LOGGER.info("Iniciando procesamiento de isocrona...");
+
+        String textoOrigen = comboOrigen.getEditor().getText();
+        String textoDia = comboDia.getEditor().getText();
+        String textoHora = comboHora.getEditor().getText();
+        String textoMinutos = comboMinutos.getEditor().getText();
+
+        if (textoOrigen.isEmpty() || textoDia.isEmpty() || textoHora.isEmpty() || textoMinutos.isEmpty()) {
+            LOGGER.warn("El usuario dejo campos vacios.");
+            mostrarMensajeEnPantalla(configIdioma.getTexto("msg.error.campos_vacios"), true);
+            return;
+        }
+
+        int idOrigen = extraerIdDeTextoInteligente(textoOrigen, listaParadasOriginales);
+        int idDia = extraerIdDeTextoInteligente(textoDia, listaDiasOriginales);
+        int minutos;
+        try {
+            minutos = Integer.parseInt(textoMinutos.trim());
+        } catch (NumberFormatException e) {
+            minutos = -1;
+        }
+
+        if (idOrigen == -1 || idDia == -1 || minutos <= 0 || !mapaParadas.containsKey(idOrigen)) {
+            mostrarMensajeEnPantalla(configIdioma.getTexto("msg.error.sin_rutas"), true);
+            return;
+        }
+
+        try {
+            Map<Parada, LocalTime> llegadas = coordinador.calcularIsocrona(mapaParadas.get(idOrigen), idDia,
+                    textoHora, minutos);
+
+            controladorMapa.limpiarRutas();
+            if (llegadas.isEmpty()) {
+                mostrarMensajeEnPantalla(configIdioma.getTexto("msg.error.sin_rutas"), true);
+                return;
+            }
+            controladorMapa.dibujarIsocrona(llegadas, LocalTime.parse(textoHora), minutos);
+
+            // El origen tambien esta en el resultado, no lo contamos como parada alcanzada
+            mostrarMensajeEnPantalla(configIdioma.getTexto("msg.isocrona") + " " + minutos + " "
+                    + configIdioma.getTexto("card.min") + ": " + (llegadas.size() - 1), false);
+
+        } catch (Exception e) {
+            LOGGER.error("Error al calcular la isocrona: " + e.getMessage(), e);
+            mostrarMensajeEnPantalla(configIdioma.getTexto("msg.error.calculo") + " " + e.getMessage(), true);
+        }
+    }
+
     /**
      * Método auxiliar para extraer el código de parada del texto seleccionado en el ComboBox.
      * ejemplo: si el texto es "123 - Av. Siempre Viva 742", este método debería devolver "123".
@@ -304,6 +364,7 @@ public class ControladorBusqueda {
         comboDestino.getEditor().clear();
         comboDia.getEditor().clear();
         comboHora.getEditor().clear();
+        comboMinutos.getEditor().clear();
 
         comboOrigen.getItems().setAll(listaParadasOriginales);
         comboDestino.getItems().setAll(listaParadasOriginales);
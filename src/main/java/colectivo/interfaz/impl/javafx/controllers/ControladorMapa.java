@@ -1,8 +1,12 @@
 package colectivo.interfaz.impl.javafx.controllers;
 
+import colectivo.modelo.Parada;
 import javafx.application.Platform;
 import javafx.scene.web.WebView;
 
+import java.time.LocalTime;
+import java.util.Map;
+
 /**
  * Controlador para manejar la lógica relacionada con el mapa en la interfaz JavaFX.
  * Este controlador se encargará de cargar el mapa, dibujar rutas y limpiar rutas según las acciones del usuario.
@@ -61,4 +65,32 @@ public class ControladorMapa {
             }
         });
     }
+
+    /**
+     * Llamamos a la función JavaScript para dibujar la isocrona de una parada: un punto por cada parada alcanzada,
+     * sombreado según los minutos de viaje. Se arma un texto con el formato "lat,lng,minutos;lat,lng,minutos|maximo"
+     * y se pasa a la función "dibujarIsocronaDesdeJava" del archivo HTML del mapa.
+     * @param llegadas Las paradas alcanzadas con su hora de llegada, como las devuelve calcularIsocrona.
+     * @param salida La hora de salida desde el origen.
+     * @param minutosMaximos El tiempo máximo de viaje usado en el cálculo, para la escala de colores.
+     */
+    public void dibujarIsocrona(Map<Parada, LocalTime> llegadas, LocalTime salida, int minutosMaximos) {
+        StringBuilder datos = new StringBuilder();
+        for (Map.Entry<Parada, LocalTime> llegada : llegadas.entrySet()) {
+            // Si el viaje pasa la medianoche la hora de llegada es menor que la de salida
+            int segundos = Math.floorMod(llegada.getValue().toSecondOfDay() - salida.toSecondOfDay(), 24 * 60 * 60);
+            datos.append(llegada.getKey().getLatitud()).append(",")
+                    .append(llegada.getKey().getLongitud()).append(",")
+                    .append(segundos / 60).append(";");
+        }
+        datos.append("|").append(minutosMaximos);
+
+        Platform.runLater(() -> {
+            try {
+                this.mapaWebView.getEngine().executeScript("dibujarIsocronaDesdeJava('" + datos + "')");
+            } catch (Exception e) {
+                System.err.println("Error al ejecutar la función JavaScript dibujarIsocrona: " + e.getMessage());
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -43,9 +43,15 @@ public class ControladorPantallaPrincipal implements Initializable, Coordinable
     @FXML private ComboBox<String> comboHora;
 
     /**
-     * Botones para calcular la ruta y limpiar la interfaz.
+     * Combobox para elegir los minutos de viaje de la isocrona.
+     */
+    @FXML private ComboBox<String> comboMinutos;
+
+    /**
+     * Botones para calcular la ruta, ver la isocrona del origen y limpiar la interfaz.
      */
     @FXML private Button btnCalcular;
+    @FXML private Button btnIsocrona;
     @FXML private Button btnLimpiar;
 
     /**
@@ -111,17 +117,19 @@ public class ControladorPantallaPrincipal implements Initializable, Coordinable
         resRecor.setText(configIdioma.getTexto("label.resultados"));
 
         btnCalcular.setText(configIdioma.getTexto("btn.calcular"));
+        btnIsocrona.setText(configIdioma.getTexto("btn.isocrona"));
         btnLimpiar.setText(configIdioma.getTexto("btn.limpiar"));
 
         comboOrigen.setPromptText(configIdioma.getTexto("label.origen"));
         comboDestino.setPromptText(configIdioma.getTexto("label.destino"));
         comboDia.setPromptText(configIdioma.getTexto("label.dia"));
         comboHora.setPromptText(configIdioma.getTexto("label.hora"));
+        comboMinutos.setPromptText(configIdioma.getTexto("label.minutos"));
 
         this.controladorMapa = new ControladorMapa(mapaWebView);
 
         this.controladorBusqueda = new ControladorBusqueda(
-                comboOrigen, comboDestino, comboDia, comboHora,
+                comboOrigen, comboDestino, comboDia, comboHora, comboMinutos,
                 vboxResultados, controladorMapa
         );
     }
@@ -135,6 +143,15 @@ public class ControladorPantallaPrincipal implements Initializable, Coordinable
         controladorBusqueda.procesarBusqueda();
     }
 
+    /**
+     * Le pedimos al mesero la isocrona de la parada de origen.
+     * @param actionEvent El evento que se genera al hacer clic en el botón "Ver isocrona".
+     */
+    @FXML
+    public void calcularIsocrona(ActionEvent actionEvent) {
+        controladorBusqueda.procesarIsocrona();
+    }
+
     /**
      * Limpiamos la interfaz para una nueva consulta.
      * @param actionEvent El evento que se genera al hacer clic en el botón "Limpiar Interfaz".
@@ -2,6 +2,7 @@ package colectivo.modelo;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -24,6 +25,10 @@ public class Linea {
     /*Las distintas frecuencias que pasa una linea por una parada*/
     private List<Frecuencia> frecuencias;
 
+    /*Tabla de salidas por dia (1-7) en segundos desde la medianoche, ordenadas. Se arma una sola vez a partir de las
+    * frecuencias y se descarta cuando se agrega una frecuencia nueva*/
+    private volatile int[][] salidasPorDia;
+
     /*Constructor vacio de lineas con las paradas y las frecuencias*/
     public Linea() {
         this.paradas = new ArrayList<Parada>();
@@ -56,6 +61,19 @@ public class Linea {
      */
     public void agregarFrecuencia(int diaSemana, LocalTime hora) {
         this.frecuencias.add(new Frecuencia(diaSemana, hora));
+        this.salidasPorDia = null;
+    }
+
+    /**
+     * Quita una frecuencia de la linea
+     * @param diaSemana el dia de la semana (1-7)
+     * @param hora horario que se quita de la lista de frecuencia
+     * @return true si la linea tenia esa frecuencia
+     */
+    public boolean quitarFrecuencia(int diaSemana, LocalTime hora) {
+        boolean quitada = this.frecuencias.removeIf(f -> f.getDiaSemana() == diaSemana && f.getHora().equals(hora));
+        this.salidasPorDia = null;
+        return quitada;
     }
 
     /**
@@ -154,6 +172,97 @@ public class Linea {
         return horarios;
     }
 
+    /**
+     * Obtiene las salidas de la linea para un dia de la semana, en segundos desde la medianoche y ordenadas de menor a
+     * mayor. El arreglo se arma una sola vez y se comparte, por eso no se debe modificar.
+     * @param diaBuscado el dia de la semana (1-7)
+     * @return las salidas del dia ordenadas, o un arreglo vacio si la linea no sale ese dia
+     */
+    public int[] obtenerSalidasPorDia(int diaBuscado) {
+        if (diaBuscado < 1 || diaBuscado > 7) {
+            return new int[0];
+        }
+        int[][] tabla = salidasPorDia;
+        if (tabla == null) {
+            tabla = armarTablaSalidas();
+            salidasPorDia = tabla;
+        }
+        return tabla[diaBuscado];
+    }
+
+    /**
+     * Busca la proxima salida de la linea a partir de una hora, con busqueda binaria sobre la tabla de salidas del dia
+     * y sin crear objetos.
+     * @param diaBuscado el dia de la semana (1-7)
+     * @param segundos hora desde la que se busca, en segundos desde la medianoche
+     * @return la posicion en obtenerSalidasPorDia(diaBuscado) de la primera salida igual o posterior a la hora,
+     * o -1 si no hay mas salidas ese dia
+     */
+    public int buscarProximaSalida(int diaBuscado, int segundos) {
+        int[] salidas = obtenerSalidasPorDia(diaBuscado);
+        int desde = 0;
+        int hasta = salidas.length;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (salidas[medio] < segundos) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return (desde < salidas.length) ? desde : -1;
+    }
+
+    /**
+     * Busca la ultima salida de la linea hasta una hora, con busqueda binaria sobre la tabla de salidas del dia.
+     * @param diaBuscado el dia de la semana (1-7)
+     * @param segundos hora hasta la que se busca, en segundos desde la medianoche
+     * @return la posicion en obtenerSalidasPorDia(diaBuscado) de la ultima salida igual o anterior a la hora,
+     * o -1 si no hay salidas antes de esa hora
+     */
+    public int buscarSalidaAnterior(int diaBuscado, int segundos) {
+        int[] salidas = obtenerSalidasPorDia(diaBuscado);
+        int desde = 0;
+        int hasta = salidas.length;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (salidas[medio] <= segundos) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde - 1;
+    }
+
+    /**
+     * Arma la tabla de salidas de todos los dias a partir de las frecuencias, en una sola pasada.
+     * @return la tabla de salidas, indexada por dia (1-7)
+     */
+    private int[][] armarTablaSalidas() {
+        int[] cantidades = new int[8];
+        for (Frecuencia frecuencia : frecuencias) {
+            if (frecuencia.getDiaSemana() >= 1 && frecuencia.getDiaSemana() <= 7) {
+                cantidades[frecuencia.getDiaSemana()]++;
+            }
+        }
+        int[][] tabla = new int[8][];
+        for (int dia = 0; dia < tabla.length; dia++) {
+            tabla[dia] = new int[cantidades[dia]];
+            cantidades[dia] = 0;
+        }
+        for (Frecuencia frecuencia : frecuencias) {
+            int dia = frecuencia.getDiaSemana();
+            if (dia >= 1 && dia <= 7) {
+                tabla[dia][cantidades[dia]++] = frecuencia.getHora().toSecondOfDay();
+            }
+        }
+        for (int[] salidas : tabla) {
+            Arrays.sort(salidas);
+        }
+        return tabla;
+    }
+
     /**
      * Clase interna dentro de la clase Linea que representa con que frecuencia
      * para una linea por una o mas paradas en dias y horarios determinados
@@ -65,6 +65,15 @@ public class Parada {
         this.lineas.add(linea);
     }
 
+    /**
+     * Quita una linea de la parada. Se compara por instancia y no por codigo, asi al actualizar una linea se puede
+     * quitar la version anterior sin quitar la nueva
+     * @param linea la linea a quitar de la parada
+     */
+    public void quitarLinea(Linea linea) {
+        this.lineas.removeIf(l -> l == linea);
+    }
+
     /**
      * Agrega una parada a la lista de paradas a las que se puede llegar caminando
      * @param parada la parada a agregar
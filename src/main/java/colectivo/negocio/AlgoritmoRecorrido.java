@@ -37,4 +37,20 @@ public interface AlgoritmoRecorrido {
     List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
                                             LocalTime horaLlegada,
                                             Map<String, Tramo> tramos);
+
+    /**
+     * Calcula el recorrido usando un grafo ya construido, en lugar del mapa de tramos. Los algoritmos que recorren el
+     * grafo lo sobreescriben para tomarlo prestado y no reconstruirlo en cada consulta; el resto usa los tramos del
+     * grafo.
+     * @param paradaOrigen parada de origen del recorrido
+     * @param paradaDestino parada de destino del recorrido
+     * @param diaSemana dia de la semana en el que se va a realizar el recorrido, del 1 al 7
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param grafo grafo inmutable de la red, construido una sola vez al cargar los datos
+     * @return
+     */
+    default List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                    LocalTime horaLlegada, MapaGrafo grafo) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, grafo.getTramos());
+    }
 }
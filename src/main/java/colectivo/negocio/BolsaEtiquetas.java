@@ -0,0 +1,289 @@
+package colectivo.negocio;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase guarda las etiquetas de una busqueda multicriterio y, para cada parada, la bolsa de etiquetas que no
+ * estan dominadas. Cada etiqueta es un viaje parcial hasta una parada con tres criterios: hora de llegada, segundos
+ * caminando y cantidad de colectivos tomados. Una etiqueta domina a otra si no es peor en ningun criterio.
+ * Todo se guarda en arreglos de enteros que crecen al doble cuando se llenan, asi las bolsas no crean un objeto por
+ * etiqueta.
+ */
+final class BolsaEtiquetas {
+
+    /**
+     * Tipo de etiqueta del punto de partida.
+     */
+    static final int ORIGEN = 0;
+
+    /**
+     * Tipo de etiqueta a la que se llega en colectivo.
+     */
+    static final int COLECTIVO = 1;
+
+    /**
+     * Tipo de etiqueta a la que se llega caminando desde otra parada.
+     */
+    static final int CAMINATA = 2;
+
+    /**
+     * Hora de llegada de cada etiqueta, en segundos desde la medianoche.
+     */
+    private int[] llegada = new int[64];
+
+    /**
+     * Segundos caminando de cada etiqueta.
+     */
+    private int[] caminata = new int[64];
+
+    /**
+     * Cantidad de colectivos tomados en cada etiqueta.
+     */
+    private int[] colectivos = new int[64];
+
+    /**
+     * Parada de cada etiqueta.
+     */
+    private int[] parada = new int[64];
+
+    /**
+     * Tipo de cada etiqueta (ORIGEN, COLECTIVO o CAMINATA).
+     */
+    private int[] tipo = new int[64];
+
+    /**
+     * Etiqueta anterior de cada etiqueta, o -1 para el origen.
+     */
+    private int[] padre = new int[64];
+
+    /**
+     * Datos para reconstruir el ultimo tramo de cada etiqueta: linea, viaje, posicion de subida y de bajada para un
+     * colectivo, o la caminata para una etiqueta a pie. Se guardan cuatro enteros por etiqueta.
+     */
+    private int[] tramo = new int[256];
+
+    /**
+     * Cantidad de etiquetas creadas.
+     */
+    private int cantidadEtiquetas;
+
+    /**
+     * Etiquetas no dominadas de cada parada.
+     */
+    private final int[][] bolsas;
+
+    /**
+     * Cantidad de etiquetas en la bolsa de cada parada.
+     */
+    private final int[] tamanioBolsa;
+
+    /**
+     * Constructor de la clase BolsaEtiquetas con una bolsa vacia por parada.
+     * @param paradas cantidad de paradas del grafo
+     */
+    BolsaEtiquetas(int paradas) {
+        this.bolsas = new int[paradas][];
+        this.tamanioBolsa = new int[paradas];
+    }
+
+    /**
+     * Crea una etiqueta y la agrega a la bolsa de su parada, salvo que alguna etiqueta de esa bolsa o de la bolsa de
+     * la parada de destino la domine. Las etiquetas de la bolsa que quedan dominadas por la nueva se sacan.
+     * @param p indice denso de la parada
+     * @param horaLlegada hora de llegada a la parada
+     * @param segundosCaminando segundos caminando hasta la parada
+     * @param cantidadColectivos cantidad de colectivos tomados
+     * @param destino indice denso de la parada de destino, para podar, o -1
+     * @return el numero de la etiqueta creada, o -1 si quedo dominada
+     */
+    int agregar(int p, int horaLlegada, int segundosCaminando, int cantidadColectivos, int destino) {
+        if (dominada(p, horaLlegada, segundosCaminando, cantidadColectivos)
+                || (destino != -1 && destino != p && dominada(destino, horaLlegada, segundosCaminando, cantidadColectivos))) {
+            return -1;
+        }
+
+        //Sacamos de la bolsa las etiquetas que la nueva domina
+        int[] bolsa = bolsas[p];
+        int tamanio = tamanioBolsa[p];
+        for (int i = tamanio - 1; i >= 0; i--) {
+            int otra = bolsa[i];
+            if (horaLlegada <= llegada[otra] && segundosCaminando <= caminata[otra]
+                    && cantidadColectivos <= colectivos[otra]) {
+                bolsa[i] = bolsa[--tamanio];
+            }
+        }
+
+        int etiqueta = nuevaEtiqueta(p, horaLlegada, segundosCaminando, cantidadColectivos);
+        if (bolsa == null) {
+            bolsa = new int[4];
+        } else if (tamanio == bolsa.length) {
+            bolsa = Arrays.copyOf(bolsa, tamanio * 2);
+        }
+        bolsa[tamanio++] = etiqueta;
+        bolsas[p] = bolsa;
+        tamanioBolsa[p] = tamanio;
+        return etiqueta;
+    }
+
+    /**
+     * Indica si alguna etiqueta de la bolsa de una parada domina a la etiqueta dada.
+     * @param p indice denso de la parada
+     * @param horaLlegada hora de llegada
+     * @param segundosCaminando segundos caminando
+     * @param cantidadColectivos cantidad de colectivos
+     * @return true si la etiqueta esta dominada
+     */
+    private boolean dominada(int p, int horaLlegada, int segundosCaminando, int cantidadColectivos) {
+        int[] bolsa = bolsas[p];
+        for (int i = 0; i < tamanioBolsa[p]; i++) {
+            int otra = bolsa[i];
+            if (llegada[otra] <= horaLlegada && caminata[otra] <= segundosCaminando
+                    && colectivos[otra] <= cantidadColectivos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Crea una etiqueta en los arreglos, agrandandolos si hace falta.
+     * @return el numero de la etiqueta
+     */
+    private int nuevaEtiqueta(int p, int horaLlegada, int segundosCaminando, int cantidadColectivos) {
+        if (cantidadEtiquetas == llegada.length) {
+            int capacidad = cantidadEtiquetas * 2;
+            llegada = Arrays.copyOf(llegada, capacidad);
+            caminata = Arrays.copyOf(caminata, capacidad);
+            colectivos = Arrays.copyOf(colectivos, capacidad);
+            parada = Arrays.copyOf(parada, capacidad);
+            tipo = Arrays.copyOf(tipo, capacidad);
+            padre = Arrays.copyOf(padre, capacidad);
+            tramo = Arrays.copyOf(tramo, capacidad * 4);
+        }
+        int etiqueta = cantidadEtiquetas++;
+        llegada[etiqueta] = horaLlegada;
+        caminata[etiqueta] = segundosCaminando;
+        colectivos[etiqueta] = cantidadColectivos;
+        parada[etiqueta] = p;
+        tipo[etiqueta] = ORIGEN;
+        padre[etiqueta] = -1;
+        return etiqueta;
+    }
+
+    /**
+     * Guarda como se llego a una etiqueta, para poder reconstruir el viaje.
+     * @param etiqueta numero de la etiqueta
+     * @param tipoEtiqueta COLECTIVO o CAMINATA
+     * @param etiquetaPadre etiqueta desde la que se llego
+     * @param a linea o caminata
+     * @param b viaje de la linea
+     * @param c posicion de subida
+     * @param d posicion de bajada
+     */
+    void enlazar(int etiqueta, int tipoEtiqueta, int etiquetaPadre, int a, int b, int c, int d) {
+        tipo[etiqueta] = tipoEtiqueta;
+        padre[etiqueta] = etiquetaPadre;
+        tramo[etiqueta * 4] = a;
+        tramo[etiqueta * 4 + 1] = b;
+        tramo[etiqueta * 4 + 2] = c;
+        tramo[etiqueta * 4 + 3] = d;
+    }
+
+    /**
+     * Indica si una etiqueta sigue en la bolsa de su parada, es decir, si ninguna etiqueta posterior la domino.
+     * @param etiqueta numero de la etiqueta
+     * @return true si la etiqueta sigue en la bolsa
+     */
+    boolean vigente(int etiqueta) {
+        int p = parada[etiqueta];
+        for (int i = 0; i < tamanioBolsa[p]; i++) {
+            if (bolsas[p][i] == etiqueta) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtiene la cantidad de etiquetas en la bolsa de una parada.
+     * @param p indice denso de la parada
+     * @return cantidad de etiquetas
+     */
+    int tamanio(int p) {
+        return tamanioBolsa[p];
+    }
+
+    /**
+     * Obtiene una etiqueta de la bolsa de una parada.
+     * @param p indice denso de la parada
+     * @param i posicion dentro de la bolsa
+     * @return el numero de la etiqueta
+     */
+    int etiquetaEn(int p, int i) {
+        return bolsas[p][i];
+    }
+
+    /**
+     * Obtiene la hora de llegada de una etiqueta.
+     * @param etiqueta numero de la etiqueta
+     * @return hora de llegada en segundos desde la medianoche
+     */
+    int llegada(int etiqueta) {
+        return llegada[etiqueta];
+    }
+
+    /**
+     * Obtiene los segundos caminando de una etiqueta.
+     * @param etiqueta numero de la etiqueta
+     * @return segundos caminando
+     */
+    int caminata(int etiqueta) {
+        return caminata[etiqueta];
+    }
+
+    /**
+     * Obtiene la cantidad de colectivos de una etiqueta.
+     * @param etiqueta numero de la etiqueta
+     * @return cantidad de colectivos
+     */
+    int colectivos(int etiqueta) {
+        return colectivos[etiqueta];
+    }
+
+    /**
+     * Obtiene la parada de una etiqueta.
+     * @param etiqueta numero de la etiqueta
+     * @return indice denso de la parada
+     */
+    int parada(int etiqueta) {
+        return parada[etiqueta];
+    }
+
+    /**
+     * Obtiene el tipo de una etiqueta.
+     * @param etiqueta numero de la etiqueta
+     * @return ORIGEN, COLECTIVO o CAMINATA
+     */
+    int tipo(int etiqueta) {
+        return tipo[etiqueta];
+    }
+
+    /**
+     * Obtiene la etiqueta desde la que se llego a una etiqueta.
+     * @param etiqueta numero de la etiqueta
+     * @return la etiqueta anterior, o -1 para el origen
+     */
+    int padre(int etiqueta) {
+        return padre[etiqueta];
+    }
+
+    /**
+     * Obtiene uno de los cuatro datos del ultimo tramo de una etiqueta.
+     * @param etiqueta numero de la etiqueta
+     * @param dato 0 a 3, en el orden en que se guardaron con enlazar
+     * @return el dato
+     */
+    int tramo(int etiqueta, int dato) {
+        return tramo[etiqueta * 4 + dato];
+    }
+}
@@ -0,0 +1,140 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Recorrido;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase guarda los resultados de las ultimas consultas de recorridos, para no repetir el calculo cuando se hace
+ * la misma consulta otra vez. Tiene una cantidad maxima de entradas, y al pasarla se descarta la usada hace mas
+ * tiempo; las entradas tambien se descartan cuando pasan una edad maxima.
+ * La clave la arma quien consulta, y tiene que incluir todo lo que cambia el resultado (origen, destino, dia y la
+ * ventana de salida). Cuando cambian los datos de la red hay que llamar a invalidar.
+ * Se puede usar desde varios hilos a la vez.
+ */
+public final class CacheRecorridos {
+
+    /**
+     * Cantidad maxima de entradas.
+     */
+    private final int maximoEntradas;
+
+    /**
+     * Edad maxima de una entrada, en nanosegundos.
+     */
+    private final long edadMaximaNanos;
+
+    /**
+     * Entradas en orden de uso, de la usada hace mas tiempo a la ultima usada.
+     */
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Cantidad de consultas encontradas y no encontradas desde que se creo.
+     */
+    private long aciertos;
+    private long fallos;
+
+    /**
+     * Constructor de la clase CacheRecorridos.
+     * @param maximoEntradas cantidad maxima de consultas guardadas
+     * @param edadMaximaSegundos segundos que se guarda cada consulta
+     */
+    public CacheRecorridos(int maximoEntradas, long edadMaximaSegundos) {
+        this.maximoEntradas = Math.max(1, maximoEntradas);
+        this.edadMaximaNanos = edadMaximaSegundos * 1_000_000_000L;
+    }
+
+    /**
+     * Busca el resultado guardado de una consulta.
+     * @param clave clave de la consulta
+     * @return una copia de los recorridos guardados, o null si no estan o ya vencieron
+     */
+    public synchronized List<List<Recorrido>> obtener(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null && System.nanoTime() - entrada.creada > edadMaximaNanos) {
+            entradas.remove(clave);
+            entrada = null;
+        }
+        if (entrada == null) {
+            fallos++;
+            return null;
+        }
+        aciertos++;
+        return copiar(entrada.recorridos);
+    }
+
+    /**
+     * Guarda el resultado de una consulta, descartando la entrada usada hace mas tiempo si no hay lugar.
+     * @param clave clave de la consulta
+     * @param recorridos resultado de la consulta
+     */
+    public synchronized void guardar(String clave, List<List<Recorrido>> recorridos) {
+        entradas.put(clave, new Entrada(copiar(recorridos), System.nanoTime()));
+        Iterator<Map.Entry<String, Entrada>> masVieja = entradas.entrySet().iterator();
+        while (entradas.size() > maximoEntradas) {
+            masVieja.next();
+            masVieja.remove();
+        }
+    }
+
+    /**
+     * Descarta todas las entradas, porque cambiaron los datos de la red. Los contadores no se reinician.
+     */
+    public synchronized void invalidar() {
+        entradas.clear();
+    }
+
+    /**
+     * Obtiene la cantidad de consultas que se encontraron guardadas.
+     * @return cantidad de aciertos
+     */
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    /**
+     * Obtiene la cantidad de consultas que no estaban guardadas o ya habian vencido.
+     * @return cantidad de fallos
+     */
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    /**
+     * Obtiene la cantidad de consultas guardadas, incluidas las vencidas que todavia no se descartaron.
+     * @return cantidad de entradas
+     */
+    public synchronized int tamano() {
+        return entradas.size();
+    }
+
+    /**
+     * Copia las listas de un resultado, para que quien lo recibe pueda modificarlas sin cambiar lo guardado.
+     */
+    private static List<List<Recorrido>> copiar(List<List<Recorrido>> recorridos) {
+        List<List<Recorrido>> copia = new ArrayList<>(recorridos.size());
+        for (List<Recorrido> recorrido : recorridos) {
+            copia.add(new ArrayList<>(recorrido));
+        }
+        return copia;
+    }
+
+    /**
+     * Resultado guardado de una consulta con el momento en que se guardo.
+     */
+    private static final class Entrada {
+
+        private final List<List<Recorrido>> recorridos;
+        private final long creada;
+
+        Entrada(List<List<Recorrido>> recorridos, long creada) {
+            this.recorridos = recorridos;
+            this.creada = creada;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import colectivo.modelo.Tramo;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 /**
  * Clase que representa el calculo de un recorrido, esta clase se va a usar para implementar los algoritmos de
@@ -54,4 +55,29 @@ public class Calculo {
         return algoritmo.calcularRecorrido(origen, destino, diaSemana, hora, tramos);
     }
 
+    /**
+     * Igual que el anterior, pero le pasa al algoritmo el grafo ya construido de la red.
+     * @param origen
+     * @param destino
+     * @param diaSemana
+     * @param hora
+     * @param grafo
+     * @return
+     */
+    public List<List<Recorrido>> ejecutarCalculo(Parada origen, Parada destino, int diaSemana,
+                                                 LocalTime hora, MapaGrafo grafo) {
+        return algoritmo.calcularRecorrido(origen, destino, diaSemana, hora, grafo);
+    }
+
+    /**
+     * Corta el calculo si el hilo que lo ejecuta fue interrumpido, por ejemplo porque la consulta no termino en su
+     * plazo. Los algoritmos la llaman en su bucle principal, asi una estrategia descartada deja de usar el procesador.
+     * @throws CancellationException si el hilo fue interrumpido
+     */
+    static void comprobarInterrupcion() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Se interrumpio el calculo del recorrido");
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,358 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase calcula hasta K viajes alternativos entre dos paradas, en vez de un solo viaje. Arma dos arboles de
+ * caminos minimos con horarios: uno desde el origen con la llegada mas temprana a cada parada, y otro hacia el destino
+ * con la hora mas tarde a la que se puede estar en cada parada y llegar a tiempo. Cada parada intermedia da un viaje
+ * candidato (del origen a la parada por el primer arbol, y de la parada al destino por el segundo), asi que todas las
+ * alternativas salen de solo dos busquedas, sin repetir la busqueda para cada alternativa.
+ * Los candidatos se ordenan por hora de llegada y se eligen los que no comparten demasiado tiempo de viaje con los ya
+ * elegidos, para que las alternativas sean realmente distintas.
+ */
+public class CalculoAlternativas implements AlgoritmoRecorrido {
+
+    /**
+     * Valor que representa una parada todavia no alcanzada hacia adelante.
+     */
+    private static final int INFINITO = Integer.MAX_VALUE;
+
+    /**
+     * Valor que representa una parada desde la que no se llega a tiempo al destino.
+     */
+    private static final int MENOS_INFINITO = Integer.MIN_VALUE;
+
+    /**
+     * Cantidad de alternativas por defecto.
+     */
+    private static final int ALTERNATIVAS_POR_DEFECTO = 3;
+
+    /**
+     * Cantidad maxima de alternativas que se devuelven.
+     */
+    private final int cantidadAlternativas;
+
+    /**
+     * Cuanto puede durar una alternativa respecto del viaje mas rapido (1.5 es hasta un 50% mas).
+     */
+    private final double estiramientoMaximo;
+
+    /**
+     * Fraccion maxima del tiempo de viaje de una alternativa que puede compartir con otra ya elegida.
+     */
+    private final double maximoCompartido;
+
+    /**
+     * Constructor de la clase CalculoAlternativas con los valores por defecto.
+     */
+    public CalculoAlternativas() {
+        this(ALTERNATIVAS_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor de la clase CalculoAlternativas con una cantidad de alternativas.
+     * @param cantidadAlternativas cantidad maxima de viajes a devolver
+     */
+    public CalculoAlternativas(int cantidadAlternativas) {
+        this(cantidadAlternativas, 1.5, 0.8);
+    }
+
+    /**
+     * Constructor de la clase CalculoAlternativas con todos sus parametros.
+     * @param cantidadAlternativas cantidad maxima de viajes a devolver
+     * @param estiramientoMaximo cuanto puede durar una alternativa respecto del viaje mas rapido
+     * @param maximoCompartido fraccion maxima de tiempo de viaje compartido con una alternativa ya elegida
+     */
+    public CalculoAlternativas(int cantidadAlternativas, double estiramientoMaximo, double maximoCompartido) {
+        this.cantidadAlternativas = cantidadAlternativas;
+        this.estiramientoMaximo = estiramientoMaximo;
+        this.maximoCompartido = maximoCompartido;
+    }
+
+    /**
+     * Calcula las alternativas armando el grafo para esta consulta, cuando no se tiene uno ya construido.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param tramos
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, Map<String, Tramo> tramos) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
+
+    /**
+     * Calcula hasta la cantidad de alternativas indicada en el constructor.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        return calcularAlternativas(paradaOrigen, paradaDestino, diaSemana, horaLlegada, cantidadAlternativas,
+                mapaGrafo);
+    }
+
+    /**
+     * Calcula hasta K viajes distintos entre dos paradas, ordenados por hora de llegada. El primero es el viaje que
+     * llega antes.
+     * @param paradaOrigen parada de origen
+     * @param paradaDestino parada de destino
+     * @param diaSemana dia de la semana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param k cantidad maxima de alternativas
+     * @param mapaGrafo grafo inmutable de la red
+     * @return lista de viajes alternativos
+     */
+    public List<List<Recorrido>> calcularAlternativas(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                      LocalTime horaLlegada, int k, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino || k <= 0) {
+            return soluciones;
+        }
+        int n = mapaGrafo.cantidadParadas();
+        int salida = horaLlegada.toSecondOfDay();
+
+        //Arbol hacia adelante: llegada mas temprana a cada parada, hasta la hora limite
+        EspacioBusqueda adelante = EspacioBusqueda.delHilo(n);
+        int limite = arbolHaciaAdelante(mapaGrafo, diaSemana, origen, destino, salida, adelante);
+        if (adelante.tiempo(destino) == INFINITO) {
+            return soluciones;
+        }
+
+        //Arbol hacia atras: hora mas tarde en cada parada para llegar al destino antes del limite
+        EspacioBusqueda atras = EspacioBusqueda.opuestoDelHilo(n);
+        arbolHaciaAtras(mapaGrafo, diaSemana, destino, salida, limite, atras);
+
+        //Un candidato por parada alcanzada a tiempo por los dos arboles
+        List<Candidato> candidatos = new ArrayList<>();
+        for (int via = 0; via < n; via++) {
+            if (adelante.tiempo(via) == INFINITO || atras.tiempo(via) == INFINITO
+                    || adelante.tiempo(via) > ultimaHora(atras, via)) {
+                continue;
+            }
+            int[] aristas = unirArboles(mapaGrafo, origen, destino, via, adelante, atras);
+            if (aristas == null) {
+                continue;
+            }
+            int horaLlegadaDestino = evaluar(mapaGrafo, diaSemana, aristas, salida);
+            if (horaLlegadaDestino <= limite) {
+                candidatos.add(new Candidato(mapaGrafo, aristas, horaLlegadaDestino));
+            }
+        }
+        //Varias paradas de un mismo camino dan el mismo candidato; ordenando tambien por aristas quedan seguidos
+        candidatos.sort(Comparator.comparingInt((Candidato c) -> c.llegada).thenComparingInt(c -> c.aristas.length)
+                .thenComparing((x, y) -> Arrays.compare(x.aristas, y.aristas)));
+
+        //Elegimos los candidatos que no se parecen demasiado a los ya elegidos
+        List<Candidato> elegidos = new ArrayList<>();
+        Candidato anterior = null;
+        for (Candidato candidato : candidatos) {
+            if (elegidos.size() == k) {
+                break;
+            }
+            boolean repetido = anterior != null && Arrays.equals(anterior.aristas, candidato.aristas);
+            anterior = candidato;
+            if (!repetido && esDistinto(mapaGrafo, candidato, elegidos)) {
+                elegidos.add(candidato);
+                soluciones.add(mapaGrafo.armarCamino(candidato.aristas, diaSemana, salida));
+            }
+        }
+        return soluciones;
+    }
+
+    /**
+     * Arma el arbol de llegadas mas tempranas desde el origen en un espacio de trabajo: el tiempo es la llegada y el
+     * padre la arista con la que se llego. Cuando se llega al destino se fija la hora limite de las alternativas y se
+     * sigue hasta esa hora, asi el arbol cubre todas las paradas por las que puede pasar una alternativa.
+     * @return la hora limite de llegada al destino, o INFINITO si no se llega
+     */
+    private int arbolHaciaAdelante(MapaGrafo mapaGrafo, int dia, int origen, int destino, int salida,
+                                   EspacioBusqueda arbol) {
+        MonticuloIndexado cola = arbol.cola();
+        arbol.fijar(origen, salida, -1);
+        cola.agregarOBajar(origen, salida);
+        int limite = INFINITO;
+        while (!cola.estaVacio()) {
+            Calculo.comprobarInterrupcion();
+            int u = cola.sacarMinimo();
+            int llegadaU = arbol.tiempo(u);
+            if (llegadaU > limite) {
+                break;
+            }
+            if (u == destino) {
+                limite = salida + (int) Math.ceil((llegadaU - salida) * estiramientoMaximo);
+            }
+            for (int arista = mapaGrafo.inicioAristas(u); arista < mapaGrafo.finAristas(u); arista++) {
+                int nuevaLlegada = mapaGrafo.llegadaPorArista(arista, dia, llegadaU);
+                int v = mapaGrafo.destinoArista(arista);
+                if (nuevaLlegada < arbol.tiempo(v)) {
+                    arbol.fijar(v, nuevaLlegada, arista);
+                    cola.agregarOBajar(v, nuevaLlegada);
+                }
+            }
+        }
+        return limite;
+    }
+
+    /**
+     * Arma el arbol de horas mas tardes hacia el destino en un espacio de trabajo: para cada parada, la hora mas tarde
+     * a la que se puede estar en ella y llegar al destino antes del limite. La cola saca primero la hora mas tarde,
+     * por eso el tiempo que se guarda es la hora cambiada de signo, y el padre es la arista con la que se sigue hacia
+     * el destino. No baja de la hora de salida del origen.
+     */
+    private void arbolHaciaAtras(MapaGrafo mapaGrafo, int dia, int destino, int salida, int limite,
+                                 EspacioBusqueda arbol) {
+        MonticuloIndexado cola = arbol.cola();
+        arbol.fijar(destino, -limite, -1);
+        cola.agregarOBajar(destino, -limite);
+        while (!cola.estaVacio()) {
+            Calculo.comprobarInterrupcion();
+            int v = cola.sacarMinimo();
+            int horaV = ultimaHora(arbol, v);
+            if (horaV < salida) {
+                break;
+            }
+            for (int k = mapaGrafo.inicioEntrantes(v); k < mapaGrafo.finEntrantes(v); k++) {
+                int arista = mapaGrafo.aristaEntrante(k);
+                int nuevaHora = mapaGrafo.salidaPorArista(arista, dia, horaV);
+                int u = mapaGrafo.origenArista(arista);
+                if (nuevaHora != MENOS_INFINITO && -nuevaHora < arbol.tiempo(u)) {
+                    arbol.fijar(u, -nuevaHora, arista);
+                    cola.agregarOBajar(u, -nuevaHora);
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene la hora mas tarde en una parada del arbol hacia atras.
+     * @return la hora, o MENOS_INFINITO si desde la parada no se llega a tiempo
+     */
+    private static int ultimaHora(EspacioBusqueda arbol, int parada) {
+        int tiempo = arbol.tiempo(parada);
+        return tiempo == INFINITO ? MENOS_INFINITO : -tiempo;
+    }
+
+    /**
+     * Une el camino del origen a una parada (arbol hacia adelante) con el de la parada al destino (arbol hacia
+     * atras). Cada camino por separado no repite paradas; para ver si se cruzan, las paradas del primero se marcan en
+     * la cota del arbol hacia atras, que no se usa para otra cosa, con la parada intermedia como valor.
+     * @return las aristas del camino, o null si el camino pasa dos veces por la misma parada
+     */
+    private int[] unirArboles(MapaGrafo mapaGrafo, int origen, int destino, int via, EspacioBusqueda adelante,
+                              EspacioBusqueda atras) {
+        int hastaVia = 0;
+        for (int p = via; p != origen; p = mapaGrafo.origenArista(adelante.padre(p))) {
+            atras.fijarCota(p, via);
+            hastaVia++;
+        }
+        atras.fijarCota(origen, via);
+        int desdeVia = 0;
+        for (int p = via; p != destino; ) {
+            p = mapaGrafo.destinoArista(atras.padre(p));
+            if (atras.tieneCota(p) && atras.cota(p) == via) {
+                return null;
+            }
+            desdeVia++;
+        }
+
+        int[] aristas = new int[hastaVia + desdeVia];
+        int i = hastaVia;
+        for (int p = via; p != origen; p = mapaGrafo.origenArista(adelante.padre(p))) {
+            aristas[--i] = adelante.padre(p);
+        }
+        i = hastaVia;
+        for (int p = via; p != destino; p = mapaGrafo.destinoArista(atras.padre(p))) {
+            aristas[i++] = atras.padre(p);
+        }
+        return aristas;
+    }
+
+    /**
+     * Evalua un camino con horarios desde la hora de salida.
+     * @return hora de llegada al destino, o INFINITO si algun colectivo ya no pasa
+     */
+    private int evaluar(MapaGrafo mapaGrafo, int dia, int[] aristas, int salida) {
+        int hora = salida;
+        for (int arista : aristas) {
+            hora = mapaGrafo.llegadaPorArista(arista, dia, hora);
+            if (hora == INFINITO) {
+                return INFINITO;
+            }
+        }
+        return hora;
+    }
+
+    /**
+     * Indica si un candidato comparte con cada alternativa ya elegida a lo sumo la fraccion permitida de su tiempo
+     * de viaje. Se comparan las aristas, asi que el mismo tramo en otra linea cuenta como distinto.
+     */
+    private boolean esDistinto(MapaGrafo mapaGrafo, Candidato candidato, List<Candidato> elegidos) {
+        for (Candidato elegido : elegidos) {
+            int compartido = 0;
+            for (int arista : candidato.aristas) {
+                if (Arrays.binarySearch(elegido.ordenadas(), arista) >= 0) {
+                    compartido += mapaGrafo.tiempoArista(arista);
+                }
+            }
+            if (compartido > maximoCompartido * candidato.tiempoDeViaje) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Viaje candidato a alternativa, con sus aristas, su hora de llegada al destino y la suma de los tiempos de sus
+     * tramos.
+     */
+    private static final class Candidato {
+
+        private final int[] aristas;
+        private final int llegada;
+        private final int tiempoDeViaje;
+
+        /**
+         * Aristas ordenadas, para buscar las compartidas. Se arman solo si el candidato se elige.
+         */
+        private int[] ordenadas;
+
+        Candidato(MapaGrafo mapaGrafo, int[] aristas, int llegada) {
+            this.aristas = aristas;
+            this.llegada = llegada;
+            int total = 0;
+            for (int arista : aristas) {
+                total += mapaGrafo.tiempoArista(arista);
+            }
+            this.tiempoDeViaje = total;
+        }
+
+        int[] ordenadas() {
+            if (ordenadas == null) {
+                ordenadas = aristas.clone();
+                Arrays.sort(ordenadas);
+            }
+            return ordenadas;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase implementa una busqueda bidireccional sobre el grafo dependiente del horario. Una busqueda crece desde
+ * el origen teniendo en cuenta los horarios de los colectivos, y la otra crece desde el destino por la adyacencia
+ * inversa con los tiempos de los tramos sin esperas, que nunca sobreestiman lo que falta. Cuando las dos se
+ * encuentran se obtiene un primer viaje; a partir de ahi la busqueda con horarios descarta las paradas que, aun con la
+ * cota de la otra busqueda, no pueden mejorarlo, y termina cuando ninguna parada pendiente puede mejorarlo. El
+ * resultado es el mismo que el de Dijkstra.
+ * Sirve para viajes con hora de salida fija (se busca la llegada mas temprana) y con hora de llegada fija (se busca la
+ * salida mas tarde que llega a tiempo).
+ */
+public class CalculoBidireccional implements AlgoritmoRecorrido {
+
+    /**
+     * Valor que representa una parada todavia no alcanzada en la busqueda hacia adelante.
+     */
+    private static final int INFINITO = Integer.MAX_VALUE;
+
+    /**
+     * Valor que representa una parada todavia no alcanzada en la busqueda de la salida mas tarde.
+     */
+    private static final int MENOS_INFINITO = Integer.MIN_VALUE;
+
+    /**
+     * Cantidad de paradas expandidas por la busqueda con horarios en el ultimo calculo.
+     */
+    private int nodosExpandidos;
+
+    /**
+     * Obtiene la cantidad de paradas expandidas por la busqueda con horarios en el ultimo calculo.
+     * @return cantidad de paradas expandidas
+     */
+    public int getNodosExpandidos() {
+        return nodosExpandidos;
+    }
+
+    /**
+     * Calcula el recorrido armando el grafo para esta consulta, cuando no se tiene uno ya construido.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param tramos
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, Map<String, Tramo> tramos) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
+
+    /**
+     * Calcula el recorrido que llega antes al destino saliendo del origen a una hora fija.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        nodosExpandidos = 0;
+
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino) {
+            return soluciones;
+        }
+        int n = mapaGrafo.cantidadParadas();
+
+        //Cada busqueda usa uno de los espacios de trabajo del hilo. En la busqueda con horarios desde el origen el
+        //tiempo es la llegada y el padre la arista con la que se llego; en la busqueda sin esperas desde el destino,
+        //por la adyacencia inversa, el tiempo es la cota de lo que falta y el padre la arista hacia el destino
+        EspacioBusqueda haciaAdelante = EspacioBusqueda.delHilo(n);
+        EspacioBusqueda haciaAtras = EspacioBusqueda.opuestoDelHilo(n);
+        MonticuloIndexado adelante = haciaAdelante.cola();
+        MonticuloIndexado atras = haciaAtras.cola();
+        haciaAdelante.fijar(origen, horaLlegada.toSecondOfDay(), -1);
+        adelante.agregarOBajar(origen, horaLlegada.toSecondOfDay());
+        haciaAtras.fijar(destino, 0, -1);
+        atras.agregarOBajar(destino, 0);
+
+        int mejorLlegada = INFINITO;
+        int encuentro = -1;
+
+        while (!adelante.estaVacio()) {
+            Calculo.comprobarInterrupcion();
+            //Un paso de la busqueda desde el destino
+            int paradaAtras = atras.estaVacio() ? -1 : atras.sacarMinimo();
+            if (paradaAtras != -1 && !haciaAtras.cerrada(paradaAtras)) {
+                int v = paradaAtras;
+                haciaAtras.cerrar(v);
+                if (haciaAdelante.cerrada(v)) {
+                    int total = evaluarHaciaDestino(mapaGrafo, diaSemana, v, haciaAdelante.tiempo(v), haciaAtras,
+                            destino);
+                    if (total < mejorLlegada) {
+                        mejorLlegada = total;
+                        encuentro = v;
+                    }
+                }
+                for (int k = mapaGrafo.inicioEntrantes(v); k < mapaGrafo.finEntrantes(v); k++) {
+                    int arista = mapaGrafo.aristaEntrante(k);
+                    int u = mapaGrafo.origenArista(arista);
+                    int nuevaCota = haciaAtras.tiempo(v) + mapaGrafo.tiempoArista(arista);
+                    if (nuevaCota < haciaAtras.tiempo(u)) {
+                        haciaAtras.fijar(u, nuevaCota, arista);
+                        atras.agregarOBajar(u, nuevaCota);
+                    }
+                }
+            }
+
+            //Un paso de la busqueda desde el origen
+            int u = adelante.sacarMinimo();
+            if (haciaAdelante.cerrada(u)) {
+                continue;
+            }
+            int llegadaU = haciaAdelante.tiempo(u);
+            if (llegadaU >= mejorLlegada) {
+                break; //ninguna parada pendiente puede mejorar el viaje encontrado
+            }
+            if (u == destino) {
+                mejorLlegada = llegadaU;
+                encuentro = destino;
+                break;
+            }
+            haciaAdelante.cerrar(u);
+            nodosExpandidos++;
+            if (haciaAtras.cerrada(u)) {
+                int total = evaluarHaciaDestino(mapaGrafo, diaSemana, u, llegadaU, haciaAtras, destino);
+                if (total < mejorLlegada) {
+                    mejorLlegada = total;
+                    encuentro = u;
+                }
+            }
+
+            //Cota de lo que falta para las paradas que la busqueda desde el destino todavia no cerro
+            int cotaPendientes = atras.estaVacio() ? INFINITO : atras.claveMinima();
+            for (int arista = mapaGrafo.inicioAristas(u); arista < mapaGrafo.finAristas(u); arista++) {
+                int nuevaLlegada = mapaGrafo.llegadaPorArista(arista, diaSemana, llegadaU);
+                if (nuevaLlegada == INFINITO) {
+                    continue;
+                }
+                int v = mapaGrafo.destinoArista(arista);
+                int falta = haciaAtras.cerrada(v) ? haciaAtras.tiempo(v) : cotaPendientes;
+                if (falta == INFINITO || nuevaLlegada + falta >= mejorLlegada) {
+                    continue;
+                }
+                if (nuevaLlegada < haciaAdelante.tiempo(v)) {
+                    haciaAdelante.fijar(v, nuevaLlegada, arista);
+                    adelante.agregarOBajar(v, nuevaLlegada);
+                }
+            }
+        }
+
+        if (encuentro != -1) {
+            List<Integer> aristas = new ArrayList<>();
+            for (int p = encuentro; p != origen; p = mapaGrafo.origenArista(haciaAdelante.padre(p))) {
+                aristas.add(0, haciaAdelante.padre(p));
+            }
+            for (int p = encuentro; p != destino; p = mapaGrafo.destinoArista(haciaAtras.padre(p))) {
+                aristas.add(haciaAtras.padre(p));
+            }
+            soluciones.add(mapaGrafo.armarCamino(aristas, diaSemana, horaLlegada.toSecondOfDay()));
+        }
+        return soluciones;
+    }
+
+    /**
+     * Calcula el recorrido que sale lo mas tarde posible del origen y llega al destino antes de una hora fija. Es la
+     * misma busqueda bidireccional con los papeles cambiados: la busqueda con horarios crece desde el destino hacia
+     * atras buscando la salida mas tarde, y la busqueda sin esperas crece desde el origen.
+     * @param paradaOrigen parada de origen
+     * @param paradaDestino parada de destino
+     * @param diaSemana dia de la semana
+     * @param horaLimite hora a la que hay que llegar al destino
+     * @param mapaGrafo grafo inmutable de la red
+     * @return lista con el recorrido encontrado, o vacia si no se puede llegar a tiempo
+     */
+    public List<List<Recorrido>> calcularRecorridoLlegada(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                          LocalTime horaLimite, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        nodosExpandidos = 0;
+
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino) {
+            return soluciones;
+        }
+        int n = mapaGrafo.cantidadParadas();
+
+        //Busqueda con horarios desde el destino: la hora mas tarde a la que se puede estar en cada parada. La cola saca
+        //primero la salida mas tarde, por eso el tiempo que se guarda es la salida cambiada de signo, y el padre es la
+        //arista con la que se sigue hacia el destino
+        EspacioBusqueda haciaAtras = EspacioBusqueda.delHilo(n);
+        MonticuloIndexado atras = haciaAtras.cola();
+        haciaAtras.fijar(destino, -horaLimite.toSecondOfDay(), -1);
+        atras.agregarOBajar(destino, -horaLimite.toSecondOfDay());
+
+        //Busqueda sin esperas desde el origen: el tiempo es la cota desde el origen y el padre la arista con la que se
+        //llego
+        EspacioBusqueda haciaAdelante = EspacioBusqueda.opuestoDelHilo(n);
+        MonticuloIndexado adelante = haciaAdelante.cola();
+        haciaAdelante.fijar(origen, 0, -1);
+        adelante.agregarOBajar(origen, 0);
+
+        int mejorSalida = MENOS_INFINITO;
+        int encuentro = -1;
+
+        while (!atras.estaVacio()) {
+            Calculo.comprobarInterrupcion();
+            //Un paso de la busqueda desde el origen
+            int paradaAdelante = adelante.estaVacio() ? -1 : adelante.sacarMinimo();
+            if (paradaAdelante != -1 && !haciaAdelante.cerrada(paradaAdelante)) {
+                int u = paradaAdelante;
+                haciaAdelante.cerrar(u);
+                if (haciaAtras.cerrada(u)) {
+                    int total = evaluarDesdeOrigen(mapaGrafo, diaSemana, u, -haciaAtras.tiempo(u), haciaAdelante,
+                            origen);
+                    if (total > mejorSalida) {
+                        mejorSalida = total;
+                        encuentro = u;
+                    }
+                }
+                for (int arista = mapaGrafo.inicioAristas(u); arista < mapaGrafo.finAristas(u); arista++) {
+                    int v = mapaGrafo.destinoArista(arista);
+                    int nuevaCota = haciaAdelante.tiempo(u) + mapaGrafo.tiempoArista(arista);
+                    if (nuevaCota < haciaAdelante.tiempo(v)) {
+                        haciaAdelante.fijar(v, nuevaCota, arista);
+                        adelante.agregarOBajar(v, nuevaCota);
+                    }
+                }
+            }
+
+            //Un paso de la busqueda desde el destino
+            int v = atras.sacarMinimo();
+            if (haciaAtras.cerrada(v)) {
+                continue;
+            }
+            int salidaV = -haciaAtras.tiempo(v);
+            if (salidaV <= mejorSalida) {
+                break; //ninguna parada pendiente puede mejorar la salida encontrada
+            }
+            if (v == origen) {
+                mejorSalida = salidaV;
+                encuentro = origen;
+                break;
+            }
+            haciaAtras.cerrar(v);
+            nodosExpandidos++;
+            if (haciaAdelante.cerrada(v)) {
+                int total = evaluarDesdeOrigen(mapaGrafo, diaSemana, v, salidaV, haciaAdelante, origen);
+                if (total > mejorSalida) {
+                    mejorSalida = total;
+                    encuentro = v;
+                }
+            }
+
+            int cotaPendientes = adelante.estaVacio() ? INFINITO : adelante.claveMinima();
+            for (int k = mapaGrafo.inicioEntrantes(v); k < mapaGrafo.finEntrantes(v); k++) {
+                int arista = mapaGrafo.aristaEntrante(k);
+                int nuevaSalida = mapaGrafo.salidaPorArista(arista, diaSemana, salidaV);
+                if (nuevaSalida == MENOS_INFINITO) {
+                    continue;
+                }
+                int u = mapaGrafo.origenArista(arista);
+                int falta = haciaAdelante.cerrada(u) ? haciaAdelante.tiempo(u) : cotaPendientes;
+                if (falta == INFINITO || nuevaSalida - falta <= mejorSalida) {
+                    continue;
+                }
+                if (-nuevaSalida < haciaAtras.tiempo(u)) {
+                    haciaAtras.fijar(u, -nuevaSalida, arista);
+                    atras.agregarOBajar(u, -nuevaSalida);
+                }
+            }
+        }
+
+        if (encuentro != -1) {
+            List<Integer> aristas = new ArrayList<>();
+            for (int p = encuentro; p != origen; p = mapaGrafo.origenArista(haciaAdelante.padre(p))) {
+                aristas.add(0, haciaAdelante.padre(p));
+            }
+            for (int p = encuentro; p != destino; p = mapaGrafo.destinoArista(haciaAtras.padre(p))) {
+                aristas.add(haciaAtras.padre(p));
+            }
+            soluciones.add(mapaGrafo.armarCamino(aristas, diaSemana, mejorSalida));
+        }
+        return soluciones;
+    }
+
+    /**
+     * Evalua con horarios el camino del arbol de la busqueda sin esperas desde una parada hasta el destino.
+     * @param mapaGrafo grafo de la red
+     * @param dia dia de la semana
+     * @param parada parada de encuentro
+     * @param hora hora a la que se esta en la parada de encuentro
+     * @param arbol espacio de la busqueda sin esperas, con la arista hacia el destino de cada parada como padre
+     * @param destino indice de la parada de destino
+     * @return hora de llegada al destino, o INFINITO si algun colectivo ya no pasa
+     */
+    private int evaluarHaciaDestino(MapaGrafo mapaGrafo, int dia, int parada, int hora, EspacioBusqueda arbol,
+                                    int destino) {
+        int p = parada;
+        int t = hora;
+        while (p != destino && t != INFINITO) {
+            int arista = arbol.padre(p);
+            t = mapaGrafo.llegadaPorArista(arista, dia, t);
+            p = mapaGrafo.destinoArista(arista);
+        }
+        return t;
+    }
+
+    /**
+     * Evalua con horarios, hacia atras, el camino del arbol de la busqueda sin esperas desde el origen hasta una
+     * parada, y devuelve la hora mas tarde a la que se puede salir del origen.
+     * @param mapaGrafo grafo de la red
+     * @param dia dia de la semana
+     * @param parada parada de encuentro
+     * @param hora hora limite en la parada de encuentro
+     * @param arbol espacio de la busqueda sin esperas, con la arista desde el origen de cada parada como padre
+     * @param origen indice de la parada de origen
+     * @return hora de salida del origen, o MENOS_INFINITO si no hay colectivo que llegue a tiempo
+     */
+    private int evaluarDesdeOrigen(MapaGrafo mapaGrafo, int dia, int parada, int hora, EspacioBusqueda arbol,
+                                   int origen) {
+        int p = parada;
+        int t = hora;
+        while (p != origen && t != MENOS_INFINITO) {
+            int arista = arbol.padre(p);
+            t = mapaGrafo.salidaPorArista(arista, dia, t);
+            p = mapaGrafo.origenArista(arista);
+        }
+        return t;
+    }
+}
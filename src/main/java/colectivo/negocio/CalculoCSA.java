@@ -0,0 +1,123 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase implementa el algoritmo de escaneo de conexiones (Connection Scan Algorithm). En vez de explorar un
+ * grafo con una cola de prioridad, recorre una sola vez, en orden de hora de salida, el arreglo con todas las
+ * conexiones del dia (un colectivo que va de una parada a la siguiente) y se queda con la llegada mas temprana a cada
+ * parada. La tabla de conexiones es compartida y de solo lectura, asi que varias consultas pueden escanearla a la vez.
+ * La llegada a cada parada y la subida a cada viaje se guardan en el espacio de trabajo del hilo, asi una consulta no
+ * crea ni llena arreglos del tamano de la red.
+ */
+public class CalculoCSA implements AlgoritmoRecorrido {
+
+    /**
+     * Calcula el recorrido armando el grafo para esta consulta, cuando no se tiene uno ya construido.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param tramos
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, Map<String, Tramo> tramos) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
+
+    /**
+     * Calcula el recorrido que llega antes a la parada destino saliendo de la parada origen a la hora indicada.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino || diaSemana < 1 || diaSemana > 7) {
+            return soluciones;
+        }
+        TablaConexiones conexiones = mapaGrafo.obtenerConexiones(diaSemana);
+
+        //llegada mas temprana a cada parada con la conexion con la que se llego, y para cada viaje la conexion donde
+        //se subio, o -1 si todavia no se puede tomar
+        EspacioBusqueda espacio = EspacioBusqueda.delHilo(mapaGrafo.cantidadParadas());
+        espacio.reservarViajes(conexiones.cantidadViajes());
+        espacio.fijar(origen, horaLlegada.toSecondOfDay(), -1);
+
+        for (int c = conexiones.primeraConexionDesde(horaLlegada.toSecondOfDay()); c < conexiones.cantidadConexiones(); c++) {
+            //Las conexiones estan ordenadas por salida: ninguna de las que quedan puede mejorar la llegada al destino
+            if (conexiones.salida(c) >= espacio.tiempo(destino)) {
+                break;
+            }
+            //La interrupcion se mira cada tantas conexiones, para no sumar trabajo a cada una
+            if ((c & 1023) == 0) {
+                Calculo.comprobarInterrupcion();
+            }
+            int viaje = conexiones.viaje(c);
+            if (espacio.subida(viaje) == -1) {
+                if (espacio.tiempo(conexiones.paradaSalida(c)) > conexiones.salida(c)) {
+                    continue;
+                }
+                espacio.fijarSubida(viaje, c);
+            }
+            int paradaLlegada = conexiones.paradaLlegada(c);
+            if (conexiones.llegada(c) < espacio.tiempo(paradaLlegada)) {
+                espacio.fijar(paradaLlegada, conexiones.llegada(c), c);
+            }
+        }
+
+        if (espacio.padre(destino) != -1) {
+            soluciones.add(reconstruirViaje(mapaGrafo, conexiones, diaSemana, espacio, origen, destino));
+        }
+        return soluciones;
+    }
+
+    /**
+     * Reconstruye el viaje desde el destino hacia el origen: para cada parada se toma la conexion con la que se llego
+     * y la conexion donde se subio a ese mismo viaje, y se sigue desde la parada de subida.
+     * @param mapaGrafo grafo de la red
+     * @param conexiones tabla de conexiones del dia
+     * @param dia dia de la semana
+     * @param espacio espacio de trabajo de la busqueda, con la conexion de llegada a cada parada y la de subida a
+     *                cada viaje
+     * @param origen indice de la parada de origen
+     * @param destino indice de la parada de destino
+     * @return lista de recorridos, uno por cada tramo del viaje
+     */
+    private List<Recorrido> reconstruirViaje(MapaGrafo mapaGrafo, TablaConexiones conexiones, int dia,
+                                             EspacioBusqueda espacio, int origen, int destino) {
+        List<List<Recorrido>> colectivos = new ArrayList<>();
+        int parada = destino;
+        while (parada != origen) {
+            int bajada = espacio.padre(parada);
+            int viaje = conexiones.viaje(bajada);
+            int subida = espacio.subida(viaje);
+            colectivos.add(0, mapaGrafo.armarViaje(conexiones.lineaDeViaje(viaje), dia, conexiones.salidaDeViaje(viaje),
+                    conexiones.posicion(subida), conexiones.posicion(bajada) + 1));
+            parada = conexiones.paradaSalida(subida);
+        }
+
+        List<Recorrido> recorrido = new ArrayList<>();
+        for (List<Recorrido> tramosColectivo : colectivos) {
+            recorrido.addAll(tramosColectivo);
+        }
+        return recorrido;
+    }
+}
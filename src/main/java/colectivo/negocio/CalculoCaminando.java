@@ -39,10 +39,7 @@ public class CalculoCaminando implements AlgoritmoRecorrido {
         lineaPeaton.setCodigo(Constantes.CODIGO_LINEA_PEATON);
         lineaPeaton.setNombre(Constantes.NOMBRE_LINEA_PEATON);
 
-        double distancia = calcularHaversine(paradaOrigen, paradaDestino);
-        double tiempoEnHoras = distancia / 5.0;
-        double tiempoEnMinutos = tiempoEnHoras * 60;
-        int tiempoEnSegundos = (int) Math.round(tiempoEnMinutos * 60);
+        int tiempoEnSegundos = segundosCaminando(paradaOrigen, paradaDestino);
 
         List<Recorrido> opcionApie = new ArrayList<>();
 
@@ -60,21 +57,47 @@ public class CalculoCaminando implements AlgoritmoRecorrido {
         return soluciones;
     }
 
+    /**
+     * Calcula los segundos que se tarda en ir caminando de una parada a otra en linea recta, a 5 km/h.
+     * @param p1 parada de origen
+     * @param p2 parada de destino
+     * @return tiempo caminando en segundos
+     */
+    static int segundosCaminando(Parada p1, Parada p2) {
+        double distancia = calcularHaversine(p1, p2);
+        double tiempoEnHoras = distancia / 5.0;
+        double tiempoEnMinutos = tiempoEnHoras * 60;
+        return (int) Math.round(tiempoEnMinutos * 60);
+    }
+
     /**
      * Calcula la distancia entre dos paradas utilizando la formula de Haversine, que es una formula que se utiliza
      * para calcular la distancia entre dos puntos en la superficie de una esfera a partir de sus latitudes y
-     * longitudes.
+     * longitudes. Tambien la usa A* en CalculoDijkstra como cota inferior de la distancia al destino.
      * @param p1 punto 1, representado como un objeto Parada, que contiene la latitud y longitud del punto 1 de origen
      * @param p2 punto 2, representado como un objeto Parada, que contiene la latitud y longitud del punto 2 de destino
-     * @return
+     * @return distancia en kilometros
+     */
+    static double calcularHaversine(Parada p1, Parada p2) {
+        return calcularHaversine(p1.getLatitud(), p1.getLongitud(), p2.getLatitud(), p2.getLongitud());
+    }
+
+    /**
+     * Calcula la distancia entre dos puntos dados por su latitud y longitud, con la formula de Haversine. La usa
+     * tambien el indice espacial de paradas para las consultas por coordenadas.
+     * @param lat1 latitud del punto 1
+     * @param lon1 longitud del punto 1
+     * @param lat2 latitud del punto 2
+     * @param lon2 longitud del punto 2
+     * @return distancia en kilometros
      */
-    private double calcularHaversine(Parada p1, Parada p2) {
+    static double calcularHaversine(double lat1, double lon1, double lat2, double lon2) {
         double radioTierra = 6371; // Radio de la Tierra en kilómetros
-        double dlat = Math.toRadians(p2.getLatitud() - p1.getLatitud());
-        double dlon = Math.toRadians(p2.getLongitud() - p1.getLongitud());
+        double dlat = Math.toRadians(lat2 - lat1);
+        double dlon = Math.toRadians(lon2 - lon1);
 
         double a = Math.sin(dlat / 2) * Math.sin(dlat / 2) +
-                Math.cos(Math.toRadians(p1.getLatitud())) * Math.cos(Math.toRadians(p2.getLatitud())) *
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
                         Math.sin(dlon / 2) * Math.sin(dlon / 2);
 
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
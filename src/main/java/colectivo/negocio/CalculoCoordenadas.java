@@ -0,0 +1,160 @@
+package colectivo.negocio;
+
+import colectivo.aplicacion.Constantes;
+import colectivo.modelo.Linea;
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Esta clase calcula el recorrido entre dos puntos cualesquiera del mapa, dados por su latitud y longitud, en lugar de
+ * entre dos paradas. Busca con el indice espacial las paradas a distancia de caminata de cada punto y hace una sola
+ * busqueda de Dijkstra con varios origenes y varios destinos: cada parada de origen empieza con la hora a la que se
+ * llega caminando desde el punto, y al llegar a una parada de destino se suma lo que falta caminar hasta el punto.
+ * Asi se evita calcular un recorrido por cada par de paradas cercanas. Los tiempos a pie salen del mismo modelo de
+ * CalculoCaminando, y caminar directo de punto a punto tambien se considera.
+ */
+public class CalculoCoordenadas {
+
+    /**
+     * Indice espacial de las paradas.
+     */
+    private final IndiceEspacial indiceParadas;
+
+    /**
+     * Distancia maxima en kilometros que se acepta caminar desde el origen y hasta el destino.
+     */
+    private final double radioCaminataKm;
+
+    /**
+     * Constructor de la clase CalculoCoordenadas.
+     * @param indiceParadas indice espacial de las paradas
+     * @param radioCaminataKm distancia maxima a caminar en cada punta, en kilometros
+     */
+    public CalculoCoordenadas(IndiceEspacial indiceParadas, double radioCaminataKm) {
+        this.indiceParadas = indiceParadas;
+        this.radioCaminataKm = radioCaminataKm;
+    }
+
+    /**
+     * Calcula el recorrido que llega antes al punto de destino saliendo del punto de origen a la hora dada.
+     * @param latitudOrigen
+     * @param longitudOrigen
+     * @param latitudDestino
+     * @param longitudDestino
+     * @param diaSemana
+     * @param hora hora de salida desde el punto de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return lista con el recorrido: caminata hasta la primera parada, tramos en colectivo y caminata hasta el destino
+     */
+    public List<List<Recorrido>> calcularRecorrido(double latitudOrigen, double longitudOrigen, double latitudDestino,
+                                                   double longitudDestino, int diaSemana, LocalTime hora,
+                                                   MapaGrafo mapaGrafo) {
+        Parada puntoOrigen = new Parada(-1, "Origen", latitudOrigen, longitudOrigen);
+        Parada puntoDestino = new Parada(-2, "Destino", latitudDestino, longitudDestino);
+        int salida = hora.toSecondOfDay();
+        int n = mapaGrafo.cantidadParadas();
+
+        //Caminar directo es la primera solucion a mejorar
+        int mejor = salida + CalculoCaminando.segundosCaminando(puntoOrigen, puntoDestino);
+        int mejorParada = -1;
+
+        //La llegada y la arista padre de cada parada, la cola y los segundos a pie desde cada parada de destino hasta
+        //el punto (guardados como cota, solo en las paradas de destino) salen del espacio de trabajo del hilo
+        EspacioBusqueda espacio = EspacioBusqueda.delHilo(n);
+        for (Parada parada : candidatas(latitudDestino, longitudDestino)) {
+            int indice = mapaGrafo.indiceDe(parada.getCodigo());
+            if (indice != -1) {
+                espacio.fijarCota(indice, CalculoCaminando.segundosCaminando(parada, puntoDestino));
+            }
+        }
+
+        MonticuloIndexado cola = espacio.cola();
+        for (Parada parada : candidatas(latitudOrigen, longitudOrigen)) {
+            int indice = mapaGrafo.indiceDe(parada.getCodigo());
+            if (indice != -1) {
+                int llegadaCaminando = salida + CalculoCaminando.segundosCaminando(puntoOrigen, parada);
+                espacio.fijar(indice, llegadaCaminando, -1);
+                cola.agregarOBajar(indice, llegadaCaminando);
+            }
+        }
+
+        while (!cola.estaVacio()) {
+            int actual = cola.sacarMinimo();
+            int llegadaActual = espacio.tiempo(actual);
+            //Caminar hasta el destino no resta tiempo, asi que nada de lo que queda en la cola puede mejorar
+            if (llegadaActual >= mejor) {
+                break;
+            }
+            if (espacio.tieneCota(actual) && llegadaActual + espacio.cota(actual) < mejor) {
+                mejor = llegadaActual + espacio.cota(actual);
+                mejorParada = actual;
+            }
+            for (int arista = mapaGrafo.inicioAristas(actual); arista < mapaGrafo.finAristas(actual); arista++) {
+                int nuevaLlegada = mapaGrafo.llegadaPorArista(arista, diaSemana, llegadaActual);
+                int vecino = mapaGrafo.destinoArista(arista);
+                if (nuevaLlegada < espacio.tiempo(vecino)) {
+                    espacio.fijar(vecino, nuevaLlegada, arista);
+                    cola.agregarOBajar(vecino, nuevaLlegada);
+                }
+            }
+        }
+
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        List<Recorrido> camino = new ArrayList<>();
+        if (mejorParada == -1) {
+            camino.add(caminata(puntoOrigen, puntoDestino, salida));
+            soluciones.add(camino);
+            return soluciones;
+        }
+
+        List<Integer> aristas = new ArrayList<>();
+        int parada = mejorParada;
+        while (espacio.padre(parada) != -1) {
+            aristas.add(0, espacio.padre(parada));
+            parada = mapaGrafo.origenArista(espacio.padre(parada));
+        }
+        camino.add(caminata(puntoOrigen, mapaGrafo.paradaEn(parada), salida));
+        camino.addAll(mapaGrafo.armarCamino(aristas, diaSemana, espacio.tiempo(parada)));
+        camino.add(caminata(mapaGrafo.paradaEn(mejorParada), puntoDestino, espacio.tiempo(mejorParada)));
+        soluciones.add(camino);
+        return soluciones;
+    }
+
+    /**
+     * Obtiene las paradas a distancia de caminata de un punto, o la mas cercana si no hay ninguna en el radio.
+     */
+    private List<Parada> candidatas(double latitud, double longitud) {
+        List<Parada> paradas = indiceParadas.buscarEnRadio(latitud, longitud, radioCaminataKm);
+        if (paradas.isEmpty()) {
+            paradas = indiceParadas.buscarCercanas(latitud, longitud, 1);
+        }
+        return paradas;
+    }
+
+    /**
+     * Arma el recorrido a pie entre dos puntos, con la linea ficticia que usa CalculoCaminando.
+     * @param desde punto o parada de salida
+     * @param hasta punto o parada de llegada
+     * @param salida hora de salida en segundos
+     * @return el recorrido a pie
+     */
+    private Recorrido caminata(Parada desde, Parada hasta, int salida) {
+        Linea lineaPeaton = new Linea();
+        lineaPeaton.setCodigo(Constantes.CODIGO_LINEA_PEATON);
+        lineaPeaton.setNombre(Constantes.NOMBRE_LINEA_PEATON);
+
+        int segundos = CalculoCaminando.segundosCaminando(desde, hasta);
+        Recorrido r = new Recorrido();
+        r.setOrigen(desde);
+        r.setDestino(hasta);
+        r.setLinea(lineaPeaton);
+        r.setHoraSalida(MapaGrafo.aHora(salida));
+        r.setHoraLlegada(MapaGrafo.aHora(salida + segundos));
+        r.setDuracion(segundos);
+        return r;
+    }
+}
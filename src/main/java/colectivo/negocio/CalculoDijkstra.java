@@ -1,18 +1,70 @@
 package colectivo.negocio;
 
-import colectivo.modelo.Linea;
 import colectivo.modelo.Parada;
 import colectivo.modelo.Recorrido;
 import colectivo.modelo.Tramo;
 
 import java.time.LocalTime;
 import java.util.*;
-import java.time.temporal.ChronoUnit;
 /**
  * Esta clase implementa el algoritmo de recorrido dijkstra, que calcula el camino entre el origen y el destino,
  * teniendo en cuenta las paradas intermedias, buscando la menor cantidad de paradas.
+ * Tiene un modo A*: la cola se ordena por el tiempo acumulado mas una cota inferior del tiempo que falta hasta el
+ * destino (distancia en linea recta dividida por la mayor velocidad de los tramos), asi se exploran primero las
+ * paradas que van hacia el destino. La cota nunca sobreestima, por lo que el resultado es el mismo que sin A*.
+ * Si se tiene la jerarquia de contraccion del grafo, la cota es el tiempo minimo sin esperas hasta el destino, que
+ * es mucho mas ajustada, y las paradas desde las que no se puede llegar al destino se descartan.
  */
 public class CalculoDijkstra implements AlgoritmoRecorrido {
+
+    /**
+     * Indica si se usa la cota inferior hasta el destino para ordenar la cola (A*).
+     */
+    private final boolean aEstrella;
+
+    /**
+     * Jerarquia de contraccion para calcular la cota hasta el destino, o null para usar la distancia en linea recta.
+     */
+    private final JerarquiaContraccion jerarquia;
+
+    /**
+     * Cantidad de paradas expandidas en el ultimo calculo, para comparar Dijkstra con A*.
+     */
+    private int nodosExpandidos;
+
+    /**
+     * Constructor de la clase CalculoDijkstra sin A*.
+     */
+    public CalculoDijkstra() {
+        this(false);
+    }
+
+    /**
+     * Constructor de la clase CalculoDijkstra indicando si se usa A*.
+     * @param aEstrella true para ordenar la cola con la cota inferior hasta el destino
+     */
+    public CalculoDijkstra(boolean aEstrella) {
+        this.aEstrella = aEstrella;
+        this.jerarquia = null;
+    }
+
+    /**
+     * Constructor de la clase CalculoDijkstra con A*, usando la jerarquia de contraccion para la cota. La jerarquia
+     * solo se usa si se armo con el mismo grafo de la consulta.
+     * @param jerarquia jerarquia de contraccion del grafo, o null para usar la distancia en linea recta
+     */
+    public CalculoDijkstra(JerarquiaContraccion jerarquia) {
+        this.aEstrella = true;
+        this.jerarquia = jerarquia;
+    }
+
+    /**
+     * Obtiene la cantidad de paradas expandidas (sacadas de la cola y exploradas) en el ultimo calculo.
+     * @return cantidad de paradas expandidas
+     */
+    public int getNodosExpandidos() {
+        return nodosExpandidos;
+    }
     /**
      * Calcula el recorrido entre una parada origen y una parada destino, teniendo en cuenta el dia de la semana,
      * la hora de llegada y los tramos disponibles. Este metodo se va a usar en la implementacion del algoritmo de
@@ -28,173 +80,143 @@ public class CalculoDijkstra implements AlgoritmoRecorrido {
     @Override
     public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
                                                    LocalTime horaLlegada, Map<String, Tramo> tramos) {
-        List<List<Recorrido>> soluciones = new ArrayList<>();
-
-        //Objeto MapaGrafo
-        MapaGrafo mapaGrafo = new MapaGrafo();
-
-        //Extraemos las paradas de los tramos disponibles y los almacenamos en un mapa donde la clave es el codigo
-        //y el valor el objeto tipo parada
-        Map<Integer, Parada> todasLasParadas = extraerParadaTramo(tramos);
-
-        //Construimos el grafo a partir de las paradas y los tramos disponibles, utilizando el objeto MapaGrafo
-        mapaGrafo.construirGrafo(todasLasParadas, tramos);
-
-        //guardamos el tiempo minimo para llegar a cada parada
-        Map<Integer, Integer> tiemposMinimos = new HashMap<>();
+        //Sin un grafo ya construido, lo armamos para esta consulta
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
 
-        //guardamos el tramo padre para cada parada, es decir, el tramo que se utilizo para llegar a esa parada
-        //con el tiempo minimo
-        Map<Integer, Tramo> tramosPadres = new HashMap<>();
+    /**
+     * Calcula el recorrido tomando prestado el grafo ya construido de la red, sin reconstruirlo en cada consulta.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        nodosExpandidos = 0;
 
-        //inicialimos el tiempo minimo para llegar a cada parada como infinito
-        for (Integer idParada : todasLasParadas.keySet()) {
-            tiemposMinimos.put(idParada, Integer.MAX_VALUE);
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1) {
+            return soluciones;
         }
 
-        //configuracion de los puntos de partida
-        tiemposMinimos.put(paradaOrigen.getCodigo(), 0);
-        PriorityQueue<NodoDijkstra> cola = new PriorityQueue<>(Comparator.comparingInt(NodoDijkstra::getTiempoAcumulado));
-        cola.add(new NodoDijkstra(paradaOrigen, 0));
+        //Tiempo minimo y arista padre de cada parada, la cola y las cotas salen del espacio de trabajo del hilo: se
+        //reusan entre consultas y empiezan todas sin alcanzar sin recorrer la red
+        EspacioBusqueda espacio = EspacioBusqueda.delHilo(mapaGrafo.cantidadParadas());
+        //Con la jerarquia, la busqueda hacia arriba desde el destino se hace una sola vez para todas las cotas
+        JerarquiaContraccion.CotasDestino cotas = aEstrella && jerarquia != null && jerarquia.esDe(mapaGrafo)
+                ? jerarquia.hacia(destino) : null;
 
-        //inicializacion bucle while---
-        while (!cola.isEmpty()) {
-            NodoDijkstra nodoActual = cola.poll();
-            Parada paradaActual = nodoActual.getParada();
-            int tiempoAcumuladoActual = nodoActual.getTiempoAcumulado();
+        //configuracion de los puntos de partida. La cola guarda cada parada una sola vez y se le baja la prioridad en
+        //el lugar, sin crear un nodo por cada mejora
+        espacio.fijar(origen, 0, -1);
+        MonticuloIndexado cola = espacio.cola();
+        cola.agregarOBajar(origen, cota(mapaGrafo, espacio, cotas, origen, destino));
 
-            /**
-             * Si el tiempo acumulado para llegar a la parada actual es mayor que el tiempo minimo registrado para esa
-             * parada, significa que ya hemos encontrado un camino mas corto para llegar a esa parada, por lo que
-             * podemos omitir este nodo y continuar con el siguiente en la cola.
-             */
-            if (tiempoAcumuladoActual > tiemposMinimos.getOrDefault(paradaActual.getCodigo(), Integer.MAX_VALUE)) {
-                continue;
-            }
+        //inicializacion bucle while---
+        while (!cola.estaVacio()) {
+            Calculo.comprobarInterrupcion();
+            int paradaActual = cola.sacarMinimo();
+            int tiempoAcumuladoActual = espacio.tiempo(paradaActual);
 
             /**
              * Si ya llegamos a destino, podemos elegir frenar aca
              */
-            if (paradaActual.getCodigo() == paradaDestino.getCodigo()) {
+            if (paradaActual == destino) {
                 break; //podemos elegir frenar aca, ya que el primer camino que encontramos es el mas corto.
             }
+            nodosExpandidos++;
 
-            //Exploramos los tramos vecinos
-            for (Tramo tramo : mapaGrafo.obtenerTramosDesde(paradaActual.getCodigo())) {
-                if (tramo.getTipo() != 1) continue;
-                //LocalTime horaLlegadaAParada = horaLlegada.plusMinutes(tiempoAcumuladoActual);
-                int tiempoDelTramo = calcularTiempoTotalTramo(tramo, tiempoAcumuladoActual, diaSemana, horaLlegada, tramos);
+            //Exploramos las aristas vecinas, que en el CSR estan contiguas
+            for (int arista = mapaGrafo.inicioAristas(paradaActual); arista < mapaGrafo.finAristas(paradaActual); arista++) {
+                int tiempoDelTramo = calcularTiempoTotalTramo(mapaGrafo, arista, tiempoAcumuladoActual, diaSemana, horaLlegada);
 
                 //Si el tiempo total para recorrer el tramo es infinito, significa que no hay colectivos disponibles para ese tramo
                 if (tiempoDelTramo != Integer.MAX_VALUE) {
                     int nuevoTiempoTotal = tiempoAcumuladoActual + tiempoDelTramo;
-                    int tiempoMejorConocido = tiemposMinimos.getOrDefault(tramo.getFin().getCodigo(), Integer.MAX_VALUE);
+                    int vecina = mapaGrafo.destinoArista(arista);
 
                     // Si encontramos un camino más corto a la parada destino del tramo
-                    if (nuevoTiempoTotal < tiempoMejorConocido) {
-                        tiemposMinimos.put(tramo.getFin().getCodigo(), nuevoTiempoTotal);
-                        tramosPadres.put(tramo.getFin().getCodigo(), tramo);
-                        cola.add(new NodoDijkstra(tramo.getFin(), nuevoTiempoTotal));
+                    if (nuevoTiempoTotal < espacio.tiempo(vecina)) {
+                        int cotaVecina = cota(mapaGrafo, espacio, cotas, vecina, destino);
+                        if (cotaVecina == JerarquiaContraccion.INFINITO) {
+                            continue; //desde la vecina no se puede llegar al destino
+                        }
+                        espacio.fijar(vecina, nuevoTiempoTotal, arista);
+                        cola.agregarOBajar(vecina, nuevoTiempoTotal + cotaVecina);
                     }
                 }
             }
         }
         // Si encontramos un camino hasta el destino, lo reconstruimos
-        if (tramosPadres.containsKey(paradaDestino.getCodigo())) {
-            List<Recorrido> mejorCamino = reconstruirCamino(tramosPadres, paradaDestino, tramos);
+        if (espacio.padre(destino) != -1) {
+            List<Recorrido> mejorCamino = reconstruirCamino(mapaGrafo, espacio, destino);
             soluciones.add(mejorCamino);
         }
         return soluciones;
     }
 
     /**
-     * Extrae las paradas de los tramos disponibles y los almacena en un mapa donde la clave es el codigo
-     * de la parada y el valor el objeto de tipo Parada.
-     * Lo creamos ya que el el metodo calcularRecorrido recibe como parametros los tramos
-     * y entonces vamos a necesitar las paradas.
-     * @param tramos
-     * @return
+     * Calcula la cota inferior del tiempo que falta desde una parada hasta el destino, o 0 si no se usa A*.
+     * Las cotas de la jerarquia se guardan en el espacio de trabajo, porque una parada se puede mejorar varias veces.
+     * @param mapaGrafo grafo de la red
+     * @param espacio espacio de trabajo de la consulta
+     * @param cotas cotas de la jerarquia hacia el destino, o null si la jerarquia no es del grafo de la consulta
+     * @param parada indice de la parada
+     * @param destino indice de la parada de destino
+     * @return cota inferior en segundos, o JerarquiaContraccion.INFINITO si la jerarquia indica que no hay camino
      */
-    private Map<Integer, Parada> extraerParadaTramo(Map<String, Tramo> tramos) {
-        Map<Integer, Parada> paradas = new HashMap<>();
-        for (Tramo tramo : tramos.values()) {
-            paradas.putIfAbsent(tramo.getInicio().getCodigo(), tramo.getInicio());
-            paradas.putIfAbsent(tramo.getFin().getCodigo(), tramo.getFin());
+    private int cota(MapaGrafo mapaGrafo, EspacioBusqueda espacio, JerarquiaContraccion.CotasDestino cotas, int parada,
+                     int destino) {
+        if (!aEstrella) {
+            return 0;
         }
-        return paradas;
-    }
-
-    /**
-     * Encuentra la linea del tramo, verificando que el tramo sea de tipo colectivo y que la parada de fin del tramo
-     * @param inicio parada de inicio del tramo
-     * @param tramoBuscado del cual queremos encontar la linea
-     * @return
-     */
-    private Linea encontrarLineaDelTramo(Parada inicio, Tramo tramoBuscado, Map<String, Tramo> tramos) {
-        //Recorremos todas las lineas disponibles en el sistema
-        for (Linea linea : inicio.getLineas()) {
-            List<Parada> paradas = linea.getParadas();
-            for (int i = 0; i < paradas.size() - 1; i++) {
-                if (paradas.get(i).getCodigo() == tramoBuscado.getInicio().getCodigo() &&
-                        paradas.get(i + 1).getCodigo() == tramoBuscado.getFin().getCodigo()) {
-                    String clave = paradas.get(i).getCodigo() + "-" + paradas.get(i+1).getCodigo() + "-1";
-                    if (tramos.containsKey(clave)) {
-                        return linea;
-                    }
-                }
-            }
+        if (cotas == null) {
+            return mapaGrafo.cotaInferior(parada, destino);
         }
-        return null;
-    }
-
-    /**
-     * Calcula la cantidad de minutos de espera hasta el próximo colectivo disponible.
-     * @param horarios Lista de horarios de salida (deben estar ordenados).
-     * @param horaLlegadaAEstacion La hora exacta en la que el usuario está listo en la parada.
-     * @return Cantidad de minutos de espera, o -1 si no hay más colectivos por ese día.
-     */
-    private int calcularEspera(List<LocalTime> horarios, LocalTime horaLlegadaAEstacion) {
-        if (horarios == null || horarios.isEmpty()) {
-            return -1;
+        if (!espacio.tieneCota(parada)) {
+            espacio.fijarCota(parada, cotas.desde(parada));
         }
-        for (LocalTime horarioColectivo : horarios) {
-            if (horarioColectivo.isAfter(horaLlegadaAEstacion) || horarioColectivo.equals(horaLlegadaAEstacion)) {
-                long espera = ChronoUnit.MINUTES.between(horaLlegadaAEstacion, horarioColectivo);
-                return (int) espera;
-            }
-        }
-        return -1;
+        return espacio.cota(parada);
     }
 
     /**
-     * Reconstruye el camino desde la parada de destino hasta la parada de origen utilizando el mapa de tramos padres,
-     * que almacena el tramo utilizado para llegar a cada parada con el tiempo minimo.
-     * @param tramosPadres mapa que almacena el tramo utilizado para llegar a cada parada con el tiempo minimo
-     * @param paradaDestino parada de destino desde la cual se va a reconstruir el camino hacia la parada de origen
+     * Reconstruye el camino desde la parada de destino hasta la parada de origen utilizando las aristas padres,
+     * que almacenan la arista utilizada para llegar a cada parada con el tiempo minimo.
+     * @param mapaGrafo grafo de la red
+     * @param espacio espacio de trabajo con la arista utilizada para llegar a cada parada con el tiempo minimo, o -1
+     * para el origen
+     * @param destino indice de la parada de destino desde la cual se va a reconstruir el camino hacia el origen
      * @return
      */
-    private List<Recorrido> reconstruirCamino(Map<Integer, Tramo> tramosPadres, Parada paradaDestino, Map<String,
-            Tramo> tramos) {
+    private List<Recorrido> reconstruirCamino(MapaGrafo mapaGrafo, EspacioBusqueda espacio, int destino) {
         List<Recorrido> camino = new ArrayList<>();
-        Tramo tramoActual = tramosPadres.get(paradaDestino.getCodigo());
+        int aristaActual = espacio.padre(destino);
 
-        while (tramoActual != null) {
-            Linea linea = encontrarLineaDelTramo(tramoActual.getInicio(), tramoActual, tramos);
+        while (aristaActual != -1) {
+            Tramo tramo = mapaGrafo.tramoArista(aristaActual);
+            int linea = mapaGrafo.lineaArista(aristaActual);
             Recorrido r = new Recorrido();
-            r.setLinea(linea); // Aquí se setea la línea encontrada (o null si era a pie)
-            r.setOrigen(tramoActual.getInicio());
-            r.setDestino(tramoActual.getFin());
-            r.setDuracion(tramoActual.getTiempo());
+            r.setLinea(linea == -1 ? null : mapaGrafo.lineaEn(linea)); // null si ninguna linea recorre el tramo
+            r.setOrigen(tramo.getInicio());
+            r.setDestino(tramo.getFin());
+            r.setDuracion(tramo.getTiempo());
             camino.add(0, r);
-            tramoActual = tramosPadres.get(tramoActual.getInicio().getCodigo());
+            aristaActual = espacio.padre(mapaGrafo.origenArista(aristaActual));
         }
         return camino;
     }
 
     /**
-     * Calcula el tiempo total para recorrer un tramo, teniendo en cuenta el tiempo de espera si el tramo es de tipo
-     * colectivo, y el tiempo del tramo.
-     * @param tramo tramo del cual queremos calcular el tiempo total para recorrerlo
+     * Calcula el tiempo total para recorrer una arista, teniendo en cuenta el tiempo de espera si la arista la
+     * recorre una linea de colectivo, y el tiempo del tramo.
+     * @param mapaGrafo grafo de la red
+     * @param arista arista de la cual queremos calcular el tiempo total para recorrerla
      * @param tiempoAcumuladoActual tiempo acumulado para llegar a la parada de inicio del tramo, que se va a usar para
      * calcular la hora de llegada
      * @param diaSemana dia de la semana, que se va a usar para obtener los horarios de la linea del tramo si es de
@@ -203,79 +225,13 @@ public class CalculoDijkstra implements AlgoritmoRecorrido {
      * inicio del tramo, sumando el tiempo acumulado actual
      * @return
      */
-    private int calcularTiempoTotalTramo(Tramo tramo, int tiempoAcumuladoActual, int diaSemana, LocalTime horaLlegadaBase, Map<String, Tramo> tramos) {
-        Linea linea = encontrarLineaDelTramo(tramo.getInicio(), tramo, tramos);
-        if (linea == null) {
-            return tramo.getTiempo();
-        }
-        List<LocalTime> horarios = linea.obtenerHorariosPorDia(diaSemana);
-        LocalTime horaLlegadaAParada = horaLlegadaBase.plusSeconds(tiempoAcumuladoActual);
-
-        int tiempoEspera = calcularEspera(horarios, horaLlegadaAParada);
-
-        if (tiempoEspera == -1) {
+    private int calcularTiempoTotalTramo(MapaGrafo mapaGrafo, int arista, int tiempoAcumuladoActual, int diaSemana,
+                                         LocalTime horaLlegadaBase) {
+        int segundosLlegadaAParada = horaLlegadaBase.toSecondOfDay() + tiempoAcumuladoActual;
+        int llegada = mapaGrafo.llegadaPorArista(arista, diaSemana, segundosLlegadaAParada);
+        if (llegada == Integer.MAX_VALUE) {
             return Integer.MAX_VALUE;
         }
-        return tiempoEspera + tramo.getTiempo();
-    }
-
-    /**
-     * Clase interna que representa un nodo en el algoritmo de Dijkstra, con una parada y el tiempo acumulado para
-     * llegar a esa parada.
-     * Se declaro inner class por ser una clase que solo se va a usar dentro de la clase CalculoDijkstra,
-     * y para mantener el codigo organizado y encapsulado.
-     * Es estatica porque no necesita acceder a los miembros de la clase externa, y se puede instanciar sin necesidad
-     * de una instancia de la clase externa.
-     */
-    private static class NodoDijkstra {
-
-        /**
-         * Parada representada por el nodo de Dijkstra
-         */
-        private final Parada parada;
-
-        /**
-         * Tiempo acumulado para llegar a la parada representada por el nodo de Dijkstra
-         */
-        private final int tiempoAcumulado;
-
-        /**
-         * Constructor de la clase NodoDijkstra con la parada y el tiempo acumulado para llegar a esa parada
-         * @param parada
-         * @param tiempoAcumulado
-         */
-        public NodoDijkstra(Parada parada, int tiempoAcumulado) {
-            this.parada = parada;
-            this.tiempoAcumulado = tiempoAcumulado;
-        }
-
-        /**
-         * Obtiene la parada representada por el nodo de Dijkstra
-         * @return
-         */
-        public Parada getParada() {
-            return parada;
-        }
-
-        /**
-         * Obtiene el tiempo acumulado para llegar a la parada representada por el nodo de Dijkstra
-         * @return
-         */
-        public int getTiempoAcumulado() {
-            return tiempoAcumulado;
-        }
-
-        /**
-         * Obtiene una representación en forma de cadena del nodo de Dijkstra, mostrando la parada
-         * y el tiempo acumulado
-         * @return
-         */
-        @Override
-        public String toString() {
-            return "NodoDijkstra{" +
-                    "parada=" + parada.getCodigo() +
-                    ", tiempoAcumulado=" + tiempoAcumulado +
-                    '}';
-        }
+        return llegada - segundosLlegadaAParada;
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import colectivo.modelo.Recorrido;
 import colectivo.modelo.Tramo;
 
 import java.time.LocalTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +14,10 @@ import java.util.Map;
 /**
  * Esta clase implementa el algoritmo de recorrido directo, que calcula el camino directo entre el origen y el destino,
  * sin tener en cuenta las paradas intermedias, buscando una sola linea.
+ * Con el grafo de la red no hace falta recorrer las paradas de cada linea: las pasadas de cada parada ya dicen en que
+ * posicion de que linea esta, la cantidad de tramos que faltan hasta cada posicion dice con una resta si el viaje se
+ * puede hacer, y los segundos acumulados de cada linea dan la duracion con otra resta. Los tramos del viaje se arman
+ * recien cuando se piden.
  */
 public class CalculoDirecto implements AlgoritmoRecorrido {
 
@@ -35,6 +40,7 @@ public class CalculoDirecto implements AlgoritmoRecorrido {
         List<List<Recorrido>> soluciones = new ArrayList<>();
 
         for (Linea linea : paradaOrigen.getLineas()) {
+            Calculo.comprobarInterrupcion();
 
             //Indices de parada y origen
             int indiceOrigen = -1;
@@ -80,4 +86,111 @@ public class CalculoDirecto implements AlgoritmoRecorrido {
         }
         return soluciones;
     }
-}
\ No newline at end of file
+
+    /**
+     * Calcula los recorridos directos con el grafo de la red. Las lineas de la parada de origen y las de la de destino
+     * estan ordenadas, asi que las lineas comunes salen de recorrer las dos listas a la vez; como en el calculo con
+     * los tramos, se usa la ultima pasada de la linea por cada parada.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param mapaGrafo grafo inmutable de la red
+     * @return una lista de tramos por cada linea directa
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1) {
+            return soluciones;
+        }
+        IndiceDirecto indice = mapaGrafo.obtenerIndiceDirecto();
+
+        int pasadaOrigen = indice.inicioPasadas(origen);
+        int pasadaDestino = indice.inicioPasadas(destino);
+        while (pasadaOrigen < indice.finPasadas(origen) && pasadaDestino < indice.finPasadas(destino)) {
+            Calculo.comprobarInterrupcion();
+            int lineaOrigen = indice.lineaPasada(pasadaOrigen);
+            int lineaDestino = indice.lineaPasada(pasadaDestino);
+            if (lineaOrigen < lineaDestino) {
+                pasadaOrigen++;
+            } else if (lineaDestino < lineaOrigen) {
+                pasadaDestino++;
+            } else {
+                int subida = indice.posicionPasada(pasadaOrigen);
+                int bajada = indice.posicionPasada(pasadaDestino);
+                if (subida < bajada && indice.estaCompleto(lineaOrigen, subida, bajada)) {
+                    soluciones.add(new ViajeDirecto(mapaGrafo.lineaEn(lineaOrigen), indice, lineaOrigen, subida,
+                            bajada));
+                }
+                pasadaOrigen++;
+                pasadaDestino++;
+            }
+        }
+        return soluciones;
+    }
+
+    /**
+     * Viaje directo en una linea entre dos posiciones de su lista de paradas. Se comporta como la lista de sus tramos,
+     * pero cada tramo se arma la primera vez que se pide, asi un viaje que no se muestra no crea ningun Recorrido; la
+     * duracion total sale de los segundos acumulados de la linea sin armar ninguno. Es de solo lectura, y cada tramo
+     * se arma una sola vez aunque lo pidan varios hilos.
+     */
+    public static final class ViajeDirecto extends AbstractList<Recorrido> {
+
+        private final Linea linea;
+        private final IndiceDirecto indice;
+        private final int indiceLinea;
+        private final int subida;
+
+        /**
+         * Tramos ya armados, null los que todavia no se pidieron.
+         */
+        private final Recorrido[] tramos;
+
+        /**
+         * Duracion total en segundos, de los acumulados de la linea.
+         */
+        private final int duracion;
+
+        private ViajeDirecto(Linea linea, IndiceDirecto indice, int indiceLinea, int subida, int bajada) {
+            this.linea = linea;
+            this.indice = indice;
+            this.indiceLinea = indiceLinea;
+            this.subida = subida;
+            this.tramos = new Recorrido[bajada - subida];
+            this.duracion = indice.segundos(indiceLinea, subida, bajada);
+        }
+
+        /**
+         * Obtiene la duracion total del viaje sin armar sus tramos.
+         * @return duracion en segundos
+         */
+        public int getDuracion() {
+            return duracion;
+        }
+
+        @Override
+        public synchronized Recorrido get(int i) {
+            Recorrido tramoRecorrido = tramos[i];
+            if (tramoRecorrido == null) {
+                List<Parada> paradasDeEstaLinea = linea.getParadas();
+                tramoRecorrido = new Recorrido();
+                tramoRecorrido.setOrigen(paradasDeEstaLinea.get(subida + i));
+                tramoRecorrido.setDestino(paradasDeEstaLinea.get(subida + i + 1));
+                tramoRecorrido.setLinea(linea);
+                tramoRecorrido.setDuracion(indice.tramo(indiceLinea, subida + i).getTiempo());
+                tramos[i] = tramoRecorrido;
+            }
+            return tramoRecorrido;
+        }
+
+        @Override
+        public int size() {
+            return tramos.length;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Esta clase calcula la isocrona de una parada: la hora de llegada mas temprana a todas las paradas que se alcanzan
+ * desde ella en colectivo dentro de un tiempo maximo, saliendo a una hora dada. Es la misma busqueda dependiente del
+ * horario que CalculoDijkstra, pero sin destino: se sigue hasta que la parada que sale de la cola supera el tiempo
+ * maximo, asi una sola busqueda reemplaza a calcular un recorrido hasta cada parada.
+ */
+public class CalculoIsocrona {
+
+    /**
+     * Calcula la hora de llegada mas temprana a cada parada alcanzable dentro del tiempo maximo.
+     * @param paradaOrigen parada de salida
+     * @param diaSemana dia de la semana (1-7)
+     * @param horaSalida hora de salida desde el origen
+     * @param segundosMaximos tiempo maximo de viaje, en segundos
+     * @param mapaGrafo grafo inmutable de la red
+     * @return las paradas alcanzadas con su hora de llegada, en orden de llegada y empezando por el origen; vacio si
+     * el origen no esta en el grafo
+     */
+    public Map<Parada, LocalTime> calcularLlegadas(Parada paradaOrigen, int diaSemana, LocalTime horaSalida,
+                                                   int segundosMaximos, MapaGrafo mapaGrafo) {
+        Map<Parada, LocalTime> llegadas = new LinkedHashMap<>();
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        if (origen == -1 || segundosMaximos < 0) {
+            return llegadas;
+        }
+        int salida = horaSalida.toSecondOfDay();
+        EspacioBusqueda espacio = EspacioBusqueda.delHilo(mapaGrafo.cantidadParadas());
+        int[] alcanzadas = espacio.alcanzadas();
+        int cantidad = barrer(mapaGrafo, origen, diaSemana, salida, salida + segundosMaximos, espacio, alcanzadas);
+        for (int i = 0; i < cantidad; i++) {
+            llegadas.put(mapaGrafo.paradaEn(alcanzadas[i]), MapaGrafo.aHora(espacio.tiempo(alcanzadas[i])));
+        }
+        return llegadas;
+    }
+
+    /**
+     * Hace la busqueda desde una parada hasta una hora limite, dejando la llegada a cada parada en el espacio de
+     * trabajo. Tambien la usa MatrizTiempos, una vez por origen.
+     * @param mapaGrafo grafo inmutable de la red
+     * @param origen indice denso de la parada de salida
+     * @param diaSemana dia de la semana (1-7)
+     * @param salida hora de salida en segundos
+     * @param limite hora maxima de llegada en segundos
+     * @param espacio espacio de trabajo del hilo, recien obtenido
+     * @param alcanzadas arreglo donde se dejan las paradas alcanzadas en orden de llegada
+     * @return cantidad de paradas alcanzadas
+     */
+    static int barrer(MapaGrafo mapaGrafo, int origen, int diaSemana, int salida, int limite,
+                      EspacioBusqueda espacio, int[] alcanzadas) {
+        MonticuloIndexado cola = espacio.cola();
+        espacio.fijar(origen, salida, -1);
+        cola.agregarOBajar(origen, salida);
+        int cantidad = 0;
+
+        //Solo entran a la cola las paradas que llegan antes del limite, y salen en orden de llegada
+        while (!cola.estaVacio()) {
+            int actual = cola.sacarMinimo();
+            int tiempoActual = espacio.tiempo(actual);
+            alcanzadas[cantidad++] = actual;
+
+            for (int arista = mapaGrafo.inicioAristas(actual); arista < mapaGrafo.finAristas(actual); arista++) {
+                int nuevaLlegada = mapaGrafo.llegadaPorArista(arista, diaSemana, tiempoActual);
+                int vecino = mapaGrafo.destinoArista(arista);
+                if (nuevaLlegada <= limite && nuevaLlegada < espacio.tiempo(vecino)) {
+                    espacio.fijar(vecino, nuevaLlegada, arista);
+                    cola.agregarOBajar(vecino, nuevaLlegada);
+                }
+            }
+        }
+        return cantidad;
+    }
+}
@@ -0,0 +1,299 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase implementa una busqueda multicriterio por rondas, al estilo de McRAPTOR. En vez de minimizar un solo
+ * valor, cada parada guarda una bolsa con todos los viajes parciales que no estan dominados segun la hora de llegada,
+ * la cantidad de colectivos tomados y los segundos caminando. Devuelve todos los viajes optimos de Pareto hasta el
+ * destino, incluyendo el viaje directo caminando y los viajes con tramos a pie entre paradas, asi una sola busqueda
+ * reemplaza a los calculos caminando, directo y con transbordo por separado.
+ */
+public class CalculoMulticriterio implements AlgoritmoRecorrido {
+
+    /**
+     * Cantidad maxima de colectivos por viaje por defecto.
+     */
+    private static final int RONDAS_POR_DEFECTO = 5;
+
+    /**
+     * Valor que indica que una linea no esta en la cola de la ronda.
+     */
+    private static final int INFINITO = Integer.MAX_VALUE;
+
+    /**
+     * Cantidad maxima de colectivos que se pueden tomar en un mismo viaje.
+     */
+    private final int maximoRondas;
+
+    /**
+     * Constructor de la clase CalculoMulticriterio con la cantidad de colectivos por defecto.
+     */
+    public CalculoMulticriterio() {
+        this(RONDAS_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor de la clase CalculoMulticriterio con una cantidad maxima de colectivos.
+     * @param maximoRondas cantidad maxima de colectivos por viaje
+     */
+    public CalculoMulticriterio(int maximoRondas) {
+        this.maximoRondas = maximoRondas;
+    }
+
+    /**
+     * Calcula los recorridos armando el grafo para esta consulta, cuando no se tiene uno ya construido.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param tramos
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, Map<String, Tramo> tramos) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
+
+    /**
+     * Calcula los recorridos optimos de Pareto entre una parada origen y una parada destino. Ningun recorrido devuelto
+     * llega mas tarde, usa mas colectivos y camina mas que otro a la vez. Se devuelven ordenados por hora de llegada.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino) {
+            return soluciones;
+        }
+        int salida = horaLlegada.toSecondOfDay();
+        BolsaEtiquetas bolsa = new BolsaEtiquetas(mapaGrafo.cantidadParadas());
+
+        //Ronda 0: el origen, el viaje directo caminando y las caminatas desde el origen
+        int etiquetaOrigen = bolsa.agregar(origen, salida, 0, 0, -1);
+        List<Recorrido> caminataDirecta = new CalculoCaminando()
+                .calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, mapaGrafo.getTramos()).get(0);
+        int segundosCaminataDirecta = caminataDirecta.get(0).getDuracion();
+        int etiquetaDirecta = bolsa.agregar(destino, salida + segundosCaminataDirecta, segundosCaminataDirecta, 0, -1);
+        if (etiquetaDirecta != -1) {
+            bolsa.enlazar(etiquetaDirecta, BolsaEtiquetas.CAMINATA, etiquetaOrigen, -1, 0, 0, 0);
+        }
+
+        int[] nuevas = relajarCaminatas(mapaGrafo, bolsa, destino, new int[]{etiquetaOrigen});
+
+        int[] cola = new int[mapaGrafo.cantidadLineas()];
+        for (int k = 1; k <= maximoRondas && nuevas.length > 0; k++) {
+            //Cola de lineas: desde la primera posicion de cada linea donde hay una etiqueta nueva
+            Arrays.fill(cola, INFINITO);
+            for (int etiqueta : nuevas) {
+                int parada = bolsa.parada(etiqueta);
+                for (int pasada = mapaGrafo.inicioPasadas(parada); pasada < mapaGrafo.finPasadas(parada); pasada++) {
+                    int linea = mapaGrafo.lineaPasada(pasada);
+                    cola[linea] = Math.min(cola[linea], mapaGrafo.posicionPasada(pasada));
+                }
+            }
+
+            int[] nuevasRonda = new int[16];
+            int cantidadRonda = 0;
+            for (int linea = 0; linea < cola.length; linea++) {
+                if (cola[linea] != INFINITO) {
+                    int[] creadas = recorrerLinea(mapaGrafo, bolsa, diaSemana, linea, cola[linea], k, destino);
+                    if (cantidadRonda + creadas.length > nuevasRonda.length) {
+                        nuevasRonda = Arrays.copyOf(nuevasRonda, Math.max(nuevasRonda.length * 2, cantidadRonda + creadas.length));
+                    }
+                    System.arraycopy(creadas, 0, nuevasRonda, cantidadRonda, creadas.length);
+                    cantidadRonda += creadas.length;
+                }
+            }
+            //Despues de bajar del colectivo se puede caminar hasta otra parada para el proximo transbordo
+            nuevas = relajarCaminatas(mapaGrafo, bolsa, destino, Arrays.copyOf(nuevasRonda, cantidadRonda));
+        }
+
+        List<Integer> ordenadas = new ArrayList<>();
+        for (int i = 0; i < bolsa.tamanio(destino); i++) {
+            ordenadas.add(bolsa.etiquetaEn(destino, i));
+        }
+        ordenadas.sort(Comparator.<Integer>comparingInt(bolsa::llegada).thenComparingInt(bolsa::colectivos));
+        for (int etiqueta : ordenadas) {
+            soluciones.add(reconstruirViaje(mapaGrafo, bolsa, diaSemana, etiqueta, caminataDirecta));
+        }
+        return soluciones;
+    }
+
+    /**
+     * Recorre una linea desde una posicion, llevando la bolsa de viajes de la linea que se pueden tomar: en cada
+     * parada primero se baja con cada viaje de la bolsa de la linea, y despues se suben las etiquetas de la ronda
+     * anterior que esperan en la parada. En la bolsa de la linea un viaje domina a otro si sale antes y se camino menos.
+     * @param mapaGrafo grafo de la red
+     * @param bolsa etiquetas de la busqueda
+     * @param dia dia de la semana
+     * @param linea indice denso de la linea
+     * @param desde primera posicion a recorrer
+     * @param ronda ronda actual, es decir, cantidad de colectivos al bajar
+     * @param destino indice de la parada de destino, para podar
+     * @return las etiquetas creadas al bajar
+     */
+    private int[] recorrerLinea(MapaGrafo mapaGrafo, BolsaEtiquetas bolsa, int dia, int linea, int desde, int ronda,
+                                int destino) {
+        int[] creadas = new int[4];
+        int cantidadCreadas = 0;
+
+        //Bolsa de la linea: etiqueta desde la que se subio, viaje, posicion de subida y segundos caminando
+        int[] padres = new int[4];
+        int[] viajes = new int[4];
+        int[] subidas = new int[4];
+        int[] caminatas = new int[4];
+        int enLinea = 0;
+
+        for (int pos = desde; pos < mapaGrafo.largoDeLinea(linea); pos++) {
+            int parada = mapaGrafo.paradaDeLinea(linea, pos);
+
+            for (int i = 0; i < enLinea; i++) {
+                int hora = mapaGrafo.horaDeViaje(linea, dia, viajes[i], pos);
+                int etiqueta = bolsa.agregar(parada, hora, caminatas[i], ronda, destino);
+                if (etiqueta != -1) {
+                    bolsa.enlazar(etiqueta, BolsaEtiquetas.COLECTIVO, padres[i], linea, viajes[i], subidas[i], pos);
+                    if (cantidadCreadas == creadas.length) {
+                        creadas = Arrays.copyOf(creadas, cantidadCreadas * 2);
+                    }
+                    creadas[cantidadCreadas++] = etiqueta;
+                }
+            }
+
+            for (int j = 0; j < bolsa.tamanio(parada); j++) {
+                int etiqueta = bolsa.etiquetaEn(parada, j);
+                if (bolsa.colectivos(etiqueta) != ronda - 1) {
+                    continue;
+                }
+                int viaje = mapaGrafo.primerViajeDesde(linea, dia, pos, bolsa.llegada(etiqueta));
+                if (viaje == -1 || dominadaEnLinea(viajes, caminatas, enLinea, viaje, bolsa.caminata(etiqueta))) {
+                    continue;
+                }
+                //Sacamos de la bolsa de la linea los viajes que el nuevo domina
+                for (int i = enLinea - 1; i >= 0; i--) {
+                    if (viaje <= viajes[i] && bolsa.caminata(etiqueta) <= caminatas[i]) {
+                        enLinea--;
+                        padres[i] = padres[enLinea];
+                        viajes[i] = viajes[enLinea];
+                        subidas[i] = subidas[enLinea];
+                        caminatas[i] = caminatas[enLinea];
+                    }
+                }
+                if (enLinea == padres.length) {
+                    padres = Arrays.copyOf(padres, enLinea * 2);
+                    viajes = Arrays.copyOf(viajes, enLinea * 2);
+                    subidas = Arrays.copyOf(subidas, enLinea * 2);
+                    caminatas = Arrays.copyOf(caminatas, enLinea * 2);
+                }
+                padres[enLinea] = etiqueta;
+                viajes[enLinea] = viaje;
+                subidas[enLinea] = pos;
+                caminatas[enLinea] = bolsa.caminata(etiqueta);
+                enLinea++;
+            }
+        }
+        return Arrays.copyOf(creadas, cantidadCreadas);
+    }
+
+    /**
+     * Indica si algun viaje de la bolsa de la linea domina a un viaje nuevo.
+     * @return true si hay un viaje que sale antes o igual y se camino menos o igual
+     */
+    private boolean dominadaEnLinea(int[] viajes, int[] caminatas, int enLinea, int viaje, int caminata) {
+        for (int i = 0; i < enLinea; i++) {
+            if (viajes[i] <= viaje && caminatas[i] <= caminata) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Agrega las caminatas desde las etiquetas nuevas de la ronda. Solo se camina desde etiquetas a las que no se
+     * llego caminando, para no encadenar caminatas.
+     * @param mapaGrafo grafo de la red
+     * @param bolsa etiquetas de la busqueda
+     * @param destino indice de la parada de destino, para podar
+     * @param nuevas etiquetas nuevas de la ronda
+     * @return las etiquetas nuevas de la ronda junto con las creadas caminando
+     */
+    private int[] relajarCaminatas(MapaGrafo mapaGrafo, BolsaEtiquetas bolsa, int destino, int[] nuevas) {
+        List<Integer> caminando = new ArrayList<>();
+        for (int etiqueta : nuevas) {
+            if (bolsa.tipo(etiqueta) == BolsaEtiquetas.CAMINATA || !bolsa.vigente(etiqueta)) {
+                continue;
+            }
+            int parada = bolsa.parada(etiqueta);
+            for (int c = mapaGrafo.inicioCaminatas(parada); c < mapaGrafo.finCaminatas(parada); c++) {
+                int tiempo = mapaGrafo.tiempoCaminata(c);
+                int creada = bolsa.agregar(mapaGrafo.destinoCaminata(c), bolsa.llegada(etiqueta) + tiempo,
+                        bolsa.caminata(etiqueta) + tiempo, bolsa.colectivos(etiqueta), destino);
+                if (creada != -1) {
+                    bolsa.enlazar(creada, BolsaEtiquetas.CAMINATA, etiqueta, tiempo, 0, 0, 0);
+                    caminando.add(creada);
+                }
+            }
+        }
+        int[] todas = Arrays.copyOf(nuevas, nuevas.length + caminando.size());
+        for (int i = 0; i < caminando.size(); i++) {
+            todas[nuevas.length + i] = caminando.get(i);
+        }
+        return todas;
+    }
+
+    /**
+     * Reconstruye el viaje de una etiqueta del destino siguiendo las etiquetas anteriores hasta el origen.
+     * @param mapaGrafo grafo de la red
+     * @param bolsa etiquetas de la busqueda
+     * @param dia dia de la semana
+     * @param etiqueta etiqueta del destino
+     * @param caminataDirecta recorrido del viaje directo caminando, calculado por CalculoCaminando
+     * @return lista de recorridos del viaje
+     */
+    private List<Recorrido> reconstruirViaje(MapaGrafo mapaGrafo, BolsaEtiquetas bolsa, int dia, int etiqueta,
+                                             List<Recorrido> caminataDirecta) {
+        List<Recorrido> viaje = new ArrayList<>();
+        while (bolsa.tipo(etiqueta) != BolsaEtiquetas.ORIGEN) {
+            int padre = bolsa.padre(etiqueta);
+            if (bolsa.tipo(etiqueta) == BolsaEtiquetas.COLECTIVO) {
+                viaje.addAll(0, mapaGrafo.armarViaje(bolsa.tramo(etiqueta, 0), dia, bolsa.tramo(etiqueta, 1),
+                        bolsa.tramo(etiqueta, 2), bolsa.tramo(etiqueta, 3)));
+            } else if (bolsa.tramo(etiqueta, 0) == -1) {
+                Recorrido r = caminataDirecta.get(0);
+                r.setHoraSalida(MapaGrafo.aHora(bolsa.llegada(padre)));
+                r.setHoraLlegada(MapaGrafo.aHora(bolsa.llegada(etiqueta)));
+                viaje.add(0, r);
+            } else {
+                Recorrido r = new Recorrido();
+                r.setLinea(null); // a pie, igual que los tramos sin linea en Dijkstra
+                r.setOrigen(mapaGrafo.paradaEn(bolsa.parada(padre)));
+                r.setDestino(mapaGrafo.paradaEn(bolsa.parada(etiqueta)));
+                r.setHoraSalida(MapaGrafo.aHora(bolsa.llegada(padre)));
+                r.setHoraLlegada(MapaGrafo.aHora(bolsa.llegada(etiqueta)));
+                r.setDuracion(bolsa.tramo(etiqueta, 0));
+                viaje.add(0, r);
+            }
+            etiqueta = padre;
+        }
+        return viaje;
+    }
+}
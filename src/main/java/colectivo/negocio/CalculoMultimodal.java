@@ -0,0 +1,345 @@
+package colectivo.negocio;
+
+import colectivo.aplicacion.Constantes;
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase implementa una busqueda multimodal que combina los tramos en colectivo con las caminatas entre paradas,
+ * que Dijkstra no usa. Recorre las dos capas del grafo multimodal y ordena la cola por un costo que suma el tiempo de
+ * viaje, una penalizacion por cada transbordo (subir a un colectivo distinto del que se venia) y un recargo sobre el
+ * tiempo caminando, asi se prefieren los viajes con menos transbordos y menos caminata cuando la diferencia de tiempo
+ * es chica.
+ * Las etiquetas van en las aristas y no en las paradas, porque el transbordo depende de la linea con la que se llego.
+ * Caminar desde el origen hasta el primer colectivo no cuenta como transbordo, por eso cada etiqueta tambien recuerda
+ * si ya subio a algun colectivo.
+ * Como las esperas dependen del horario, un solo costo por arista no alcanza: una etiqueta mas barata pero que llega
+ * mas tarde puede perder un colectivo que otra alcanza. Por eso cada arista guarda las etiquetas que no se dominan en
+ * hora de llegada y recargo (penalizaciones y caminata), y la cola las saca por costo; la primera que llega al destino
+ * es la de menor costo.
+ * Para que las caminatas no agranden la busqueda, despues de una caminata no se puede hacer otra: solo se camina al
+ * salir, al bajar de un colectivo o para llegar al destino.
+ */
+public class CalculoMultimodal implements AlgoritmoRecorrido {
+
+    /**
+     * Valor que representa una arista todavia no alcanzada.
+     */
+    private static final int INFINITO = Integer.MAX_VALUE;
+
+    /**
+     * Segundos que se suman al costo por cada transbordo.
+     */
+    private final int penalizacionTransbordo;
+
+    /**
+     * Factor por el que se multiplica el tiempo caminando en el costo (1 es sin recargo).
+     */
+    private final double factorCaminata;
+
+    /**
+     * Constructor de la clase CalculoMultimodal con 5 minutos por transbordo y la caminata un 50% mas cara.
+     */
+    public CalculoMultimodal() {
+        this(300, 1.5);
+    }
+
+    /**
+     * Constructor de la clase CalculoMultimodal con sus penalizaciones.
+     * @param penalizacionTransbordo segundos que se suman al costo por cada transbordo
+     * @param factorCaminata factor por el que se multiplica el tiempo caminando en el costo
+     */
+    public CalculoMultimodal(int penalizacionTransbordo, double factorCaminata) {
+        this.penalizacionTransbordo = penalizacionTransbordo;
+        this.factorCaminata = factorCaminata;
+    }
+
+    /**
+     * Calcula el recorrido armando el grafo para esta consulta, cuando no se tiene uno ya construido.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param tramos
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, Map<String, Tramo> tramos) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
+
+    /**
+     * Calcula el recorrido de menor costo combinando colectivos y caminatas.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino) {
+            return soluciones;
+        }
+        GrafoMultimodal grafo = mapaGrafo.obtenerMultimodal();
+        int salida = horaLlegada.toSecondOfDay();
+        //Las etiquetas y su cola son del hilo y se reusan entre consultas
+        Etiquetas etiquetas = Etiquetas.delHilo(grafo.cantidadAristas());
+
+        //Desde el origen se puede caminar o subir a cualquier colectivo, sin penalizacion por transbordo
+        for (int arista = grafo.inicio(origen); arista < grafo.fin(origen); arista++) {
+            relajar(mapaGrafo, grafo, diaSemana, -1, arista, salida, salida, 0, etiquetas);
+        }
+
+        int etiquetaDestino = -1;
+        while (etiquetas.hayPendientes()) {
+            Calculo.comprobarInterrupcion();
+            int actual = etiquetas.sacarMinima();
+            if (!etiquetas.vigente[actual]) {
+                continue;
+            }
+            int aristaActual = etiquetas.arista[actual];
+            int parada = grafo.destino(aristaActual);
+            if (parada == destino) {
+                etiquetaDestino = actual;
+                break;
+            }
+            //Despues de una caminata solo se puede subir a un colectivo
+            int fin = (grafo.modo(aristaActual) == Constantes.CAMINANDO)
+                    ? grafo.inicioCaminatas(parada) : grafo.fin(parada);
+            for (int arista = grafo.inicio(parada); arista < fin; arista++) {
+                relajar(mapaGrafo, grafo, diaSemana, actual, arista, salida, etiquetas.hora[actual],
+                        etiquetas.recargo[actual], etiquetas);
+            }
+        }
+
+        if (etiquetaDestino != -1) {
+            soluciones.add(reconstruir(mapaGrafo, grafo, origen, etiquetaDestino, etiquetas));
+        }
+        return soluciones;
+    }
+
+    /**
+     * Relaja una arista desde la etiqueta con la que se llego a su parada de inicio.
+     * @param anterior etiqueta con la que se llego, o -1 si se sale del origen
+     * @param salida hora de salida del origen
+     * @param horaActual hora de llegada a la parada
+     * @param recargoActual recargo acumulado al llegar a la parada
+     */
+    private void relajar(MapaGrafo mapaGrafo, GrafoMultimodal grafo, int dia, int anterior, int arista, int salida,
+                         int horaActual, long recargoActual, Etiquetas etiquetas) {
+        int nuevaHora;
+        long recargo = 0;
+        boolean viajoAntes = anterior != -1 && etiquetas.viajo[anterior];
+        boolean viajo = viajoAntes;
+        if (grafo.modo(arista) == Constantes.CAMINANDO) {
+            nuevaHora = horaActual + grafo.tiempo(arista);
+            recargo = Math.round(grafo.tiempo(arista) * (factorCaminata - 1));
+        } else {
+            nuevaHora = mapaGrafo.llegadaPorArista(grafo.original(arista), dia, horaActual);
+            if (nuevaHora == INFINITO) {
+                return;
+            }
+            viajo = true;
+            //Es transbordo subir a una linea distinta de la que se venia, o volver a subir despues de bajar y caminar;
+            //caminar desde el origen hasta el primer colectivo no es transbordo
+            int aristaAnterior = anterior == -1 ? -1 : etiquetas.arista[anterior];
+            boolean transbordo = viajoAntes && grafo.linea(arista) != -1
+                    && (grafo.modo(aristaAnterior) == Constantes.CAMINANDO
+                    || grafo.linea(aristaAnterior) != grafo.linea(arista));
+            if (transbordo) {
+                recargo = penalizacionTransbordo;
+            }
+        }
+        long nuevoRecargo = recargoActual + recargo;
+        etiquetas.agregar(arista, nuevaHora, nuevoRecargo, viajo, anterior, (int) ((nuevaHora - salida) + nuevoRecargo));
+    }
+
+    /**
+     * Reconstruye el viaje siguiendo las etiquetas anteriores desde la ultima.
+     * @return lista de recorridos, uno por tramo o caminata
+     */
+    private List<Recorrido> reconstruir(MapaGrafo mapaGrafo, GrafoMultimodal grafo, int origen, int ultima,
+                                        Etiquetas etiquetas) {
+        List<Integer> recorridas = new ArrayList<>();
+        for (int etiqueta = ultima; etiqueta != -1; etiqueta = etiquetas.padre[etiqueta]) {
+            recorridas.add(0, etiqueta);
+        }
+        List<Recorrido> camino = new ArrayList<>();
+        int desde = origen;
+        for (int etiqueta : recorridas) {
+            int arista = etiquetas.arista[etiqueta];
+            int hora = etiquetas.hora[etiqueta];
+            Recorrido r = new Recorrido();
+            if (grafo.modo(arista) == Constantes.CAMINANDO) {
+                r.setLinea(null); // a pie
+                r.setOrigen(mapaGrafo.paradaEn(desde));
+                r.setDestino(mapaGrafo.paradaEn(grafo.destino(arista)));
+            } else {
+                Tramo tramo = mapaGrafo.tramoArista(grafo.original(arista));
+                int linea = grafo.linea(arista);
+                r.setLinea(linea == -1 ? null : mapaGrafo.lineaEn(linea));
+                r.setOrigen(tramo.getInicio());
+                r.setDestino(tramo.getFin());
+            }
+            r.setHoraSalida(MapaGrafo.aHora(hora - grafo.tiempo(arista)));
+            r.setHoraLlegada(MapaGrafo.aHora(hora));
+            r.setDuracion(grafo.tiempo(arista));
+            camino.add(r);
+            desde = grafo.destino(arista);
+        }
+        return camino;
+    }
+
+    /**
+     * Etiquetas de una busqueda. Cada etiqueta es un viaje parcial que termina en una arista, con su hora de llegada,
+     * su recargo, si ya subio a algun colectivo y la etiqueta anterior. Las etiquetas no dominadas de cada arista
+     * forman una lista enlazada, y una etiqueta que queda dominada se saca de la lista y deja de estar vigente, asi la
+     * cola la saltea.
+     * Hay una por hilo y se reusa entre consultas: los arreglos de etiquetas crecen al doble cuando se llenan y no se
+     * achican, y la primera etiqueta de cada arista guarda la epoca en que se escribio, como en EspacioBusqueda, asi
+     * empezar una busqueda no recorre todas las aristas.
+     */
+    private static final class Etiquetas {
+
+        /**
+         * Etiquetas de cada hilo.
+         */
+        private static final ThreadLocal<Etiquetas> POR_HILO = new ThreadLocal<>();
+
+        private int[] arista = new int[256];
+        private int[] hora = new int[256];
+        private long[] recargo = new long[256];
+        private boolean[] viajo = new boolean[256];
+        private int[] padre = new int[256];
+        private int[] siguiente = new int[256];
+        private boolean[] vigente = new boolean[256];
+        private int cantidad;
+
+        /**
+         * Etiquetas pendientes, por costo. Crece junto con los arreglos de etiquetas.
+         */
+        private MonticuloIndexado cola = new MonticuloIndexado(256);
+
+        /**
+         * Primera etiqueta vigente de cada arista, valida solo si marcaPrimera tiene la epoca actual.
+         */
+        private final int[] primera;
+        private final int[] marcaPrimera;
+        private int epoca;
+
+        private Etiquetas(int cantidadAristas) {
+            this.primera = new int[cantidadAristas];
+            this.marcaPrimera = new int[cantidadAristas];
+        }
+
+        /**
+         * Obtiene las etiquetas del hilo actual vacias para una busqueda nueva, creandolas la primera vez o si la red
+         * crecio.
+         */
+        static Etiquetas delHilo(int cantidadAristas) {
+            Etiquetas etiquetas = POR_HILO.get();
+            if (etiquetas == null || etiquetas.primera.length < cantidadAristas) {
+                etiquetas = new Etiquetas(cantidadAristas);
+                POR_HILO.set(etiquetas);
+            }
+            etiquetas.cola.limpiar();
+            etiquetas.cantidad = 0;
+            etiquetas.epoca++;
+            if (etiquetas.epoca == Integer.MAX_VALUE) {
+                Arrays.fill(etiquetas.marcaPrimera, 0);
+                etiquetas.epoca = 1;
+            }
+            return etiquetas;
+        }
+
+        boolean hayPendientes() {
+            return !cola.estaVacio();
+        }
+
+        int sacarMinima() {
+            return cola.sacarMinimo();
+        }
+
+        private int primera(int a) {
+            return marcaPrimera[a] == epoca ? primera[a] : -1;
+        }
+
+        private void fijarPrimera(int a, int e) {
+            primera[a] = e;
+            marcaPrimera[a] = epoca;
+        }
+
+        /**
+         * Agrega una etiqueta a una arista y a la cola si ninguna de las vigentes la domina, y saca las que pasa a
+         * dominar. Una etiqueta que todavia no subio a ningun colectivo no paga transbordo al subir, asi que no la
+         * domina una que ya subio.
+         * @param costo clave de la etiqueta en la cola
+         */
+        void agregar(int a, int nuevaHora, long nuevoRecargo, boolean nuevaViajo, int anterior, int costo) {
+            int previa = -1;
+            for (int e = primera(a); e != -1; e = siguiente[e]) {
+                if (hora[e] <= nuevaHora && recargo[e] <= nuevoRecargo && (!viajo[e] || nuevaViajo)) {
+                    return;
+                }
+                if (nuevaHora <= hora[e] && nuevoRecargo <= recargo[e] && (!nuevaViajo || viajo[e])) {
+                    vigente[e] = false;
+                    if (previa == -1) {
+                        fijarPrimera(a, siguiente[e]);
+                    } else {
+                        siguiente[previa] = siguiente[e];
+                    }
+                } else {
+                    previa = e;
+                }
+            }
+            if (cantidad == arista.length) {
+                crecer();
+            }
+            int e = cantidad++;
+            arista[e] = a;
+            hora[e] = nuevaHora;
+            recargo[e] = nuevoRecargo;
+            viajo[e] = nuevaViajo;
+            padre[e] = anterior;
+            vigente[e] = true;
+            siguiente[e] = primera(a);
+            fijarPrimera(a, e);
+            cola.agregarOBajar(e, costo);
+        }
+
+        /**
+         * Duplica los arreglos de etiquetas y pasa las pendientes a una cola del nuevo tamano.
+         */
+        private void crecer() {
+            int nuevoLargo = cantidad * 2;
+            arista = Arrays.copyOf(arista, nuevoLargo);
+            hora = Arrays.copyOf(hora, nuevoLargo);
+            recargo = Arrays.copyOf(recargo, nuevoLargo);
+            viajo = Arrays.copyOf(viajo, nuevoLargo);
+            padre = Arrays.copyOf(padre, nuevoLargo);
+            siguiente = Arrays.copyOf(siguiente, nuevoLargo);
+            vigente = Arrays.copyOf(vigente, nuevoLargo);
+            MonticuloIndexado nueva = new MonticuloIndexado(nuevoLargo);
+            for (int e = 0; e < cantidad; e++) {
+                if (cola.contiene(e)) {
+                    nueva.agregarOBajar(e, cola.clave(e));
+                }
+            }
+            cola = nueva;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase implementa el algoritmo RAPTOR (Round-bAsed Public Transit Optimized Router), que calcula el camino entre
+ * el origen y el destino por rondas: en la ronda k se recorren, en orden, las paradas de cada linea que pasa por alguna
+ * parada mejorada en la ronda anterior, asi que la ronda k encuentra los mejores viajes que usan k colectivos.
+ * No usa cola de prioridad, solo recorre arreglos de las lineas, y devuelve el viaje mas rapido para cada cantidad de
+ * transbordos.
+ */
+public class CalculoRaptor implements AlgoritmoRecorrido {
+
+    /**
+     * Cantidad maxima de rondas (colectivos) por defecto.
+     */
+    private static final int RONDAS_POR_DEFECTO = 8;
+
+    /**
+     * Valor que representa una parada todavia no alcanzada.
+     */
+    private static final int INFINITO = Integer.MAX_VALUE;
+
+    /**
+     * Cantidad maxima de rondas, es decir, de colectivos que se pueden tomar en un mismo viaje.
+     */
+    private final int maximoRondas;
+
+    /**
+     * Constructor de la clase CalculoRaptor con la cantidad de rondas por defecto.
+     */
+    public CalculoRaptor() {
+        this(RONDAS_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor de la clase CalculoRaptor con una cantidad maxima de rondas.
+     * @param maximoRondas cantidad maxima de colectivos por viaje
+     */
+    public CalculoRaptor(int maximoRondas) {
+        this.maximoRondas = maximoRondas;
+    }
+
+    /**
+     * Calcula el recorrido armando el grafo para esta consulta, cuando no se tiene uno ya construido.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param tramos
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, Map<String, Tramo> tramos) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
+
+    /**
+     * Calcula los recorridos entre una parada origen y una parada destino saliendo a la hora indicada. Devuelve, para
+     * cada cantidad de colectivos, el viaje que llega antes, siempre que llegue antes que los viajes con menos
+     * transbordos.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino) {
+            return soluciones;
+        }
+
+        EtiquetasRaptor etiquetas = new EtiquetasRaptor(maximoRondas, mapaGrafo.cantidadParadas(),
+                mapaGrafo.cantidadLineas());
+        etiquetas.llegada[0][origen] = horaLlegada.toSecondOfDay();
+        etiquetas.mejorLlegada[origen] = horaLlegada.toSecondOfDay();
+        etiquetas.marcada[origen] = true;
+
+        ejecutarRondas(mapaGrafo, diaSemana, etiquetas, destino);
+
+        //Un viaje por cada ronda en la que mejoro la llegada al destino
+        for (int k = 1; k <= maximoRondas; k++) {
+            if (etiquetas.lineaPadre[k][destino] != -1) {
+                soluciones.add(reconstruirViaje(mapaGrafo, diaSemana, etiquetas, k, destino));
+            }
+        }
+        return soluciones;
+    }
+
+    /**
+     * Ejecuta las rondas de RAPTOR sobre las etiquetas, a partir de las paradas marcadas. En cada ronda primero se
+     * arma la cola de lineas a recorrer (cada linea desde la primera posicion marcada), y despues se recorre cada
+     * linea subiendo al primer viaje que se puede tomar y bajando en las paradas donde se mejora la llegada.
+     * @param mapaGrafo grafo de la red
+     * @param dia dia de la semana
+     * @param etiquetas etiquetas de la busqueda, con el origen ya marcado
+     * @param destino indice de la parada de destino, para podar por llegada al destino, o -1 para no podar
+     */
+    void ejecutarRondas(MapaGrafo mapaGrafo, int dia, EtiquetasRaptor etiquetas, int destino) {
+        int[] cola = etiquetas.posicionEnCola;
+        arrastrarEtiquetas(etiquetas, 0);
+
+        for (int k = 1; k <= maximoRondas; k++) {
+            Calculo.comprobarInterrupcion();
+            int[] anterior = etiquetas.llegada[k - 1];
+            int[] actual = etiquetas.llegada[k];
+
+            //Cola de lineas: para cada linea, la primera posicion marcada de su recorrido
+            Arrays.fill(cola, INFINITO);
+            boolean hayMarcadas = false;
+            for (int parada = 0; parada < etiquetas.marcada.length; parada++) {
+                if (!etiquetas.marcada[parada]) {
+                    continue;
+                }
+                etiquetas.marcada[parada] = false;
+                hayMarcadas = true;
+                for (int pasada = mapaGrafo.inicioPasadas(parada); pasada < mapaGrafo.finPasadas(parada); pasada++) {
+                    int linea = mapaGrafo.lineaPasada(pasada);
+                    cola[linea] = Math.min(cola[linea], mapaGrafo.posicionPasada(pasada));
+                }
+            }
+            if (!hayMarcadas) {
+                //Igual pasamos las etiquetas a las rondas que faltan, por si se reutilizan en otra busqueda
+                for (int j = k; j < maximoRondas; j++) {
+                    arrastrarEtiquetas(etiquetas, j);
+                }
+                break;
+            }
+
+            //Recorremos cada linea de la cola desde su primera posicion marcada
+            for (int linea = 0; linea < cola.length; linea++) {
+                if (cola[linea] == INFINITO) {
+                    continue;
+                }
+                int viaje = -1;
+                int posicionSubida = -1;
+                for (int pos = cola[linea]; pos < mapaGrafo.largoDeLinea(linea); pos++) {
+                    int parada = mapaGrafo.paradaDeLinea(linea, pos);
+                    int horaViaje = (viaje == -1) ? INFINITO : mapaGrafo.horaDeViaje(linea, dia, viaje, pos);
+
+                    //Bajamos si el viaje mejora la llegada a la parada con a lo sumo k colectivos (y no llega
+                    //despues que al destino). Se compara con la llegada de esta ronda y no con la mejor de todas,
+                    //porque al reutilizar las etiquetas entre salidas la mejor puede venir de una ronda posterior
+                    int cota = (destino == -1) ? actual[parada]
+                            : Math.min(actual[parada], etiquetas.mejorLlegada[destino]);
+                    if (viaje != -1 && horaViaje < cota) {
+                        actual[parada] = horaViaje;
+                        etiquetas.mejorLlegada[parada] = horaViaje;
+                        etiquetas.lineaPadre[k][parada] = linea;
+                        etiquetas.viajePadre[k][parada] = viaje;
+                        etiquetas.subidaPadre[k][parada] = posicionSubida;
+                        etiquetas.bajadaPadre[k][parada] = pos;
+                        etiquetas.marcada[parada] = true;
+                    }
+
+                    //Si en la ronda anterior llegamos a esta parada antes que el viaje actual, probamos uno anterior
+                    if (anterior[parada] != INFINITO && anterior[parada] <= horaViaje) {
+                        int otroViaje = mapaGrafo.primerViajeDesde(linea, dia, pos, anterior[parada]);
+                        if (otroViaje != -1 && parada == etiquetas.origen
+                                && mapaGrafo.horaDeViaje(linea, dia, otroViaje, pos) > etiquetas.ultimaSalidaOrigen) {
+                            otroViaje = -1;
+                        }
+                        if (otroViaje != -1 && (viaje == -1 || otroViaje < viaje)) {
+                            viaje = otroViaje;
+                            posicionSubida = pos;
+                        }
+                    }
+                }
+            }
+
+            //Las etiquetas de la proxima ronda parten de las de esta
+            if (k < maximoRondas) {
+                arrastrarEtiquetas(etiquetas, k);
+            }
+        }
+    }
+
+    /**
+     * Pasa las llegadas de una ronda a la siguiente cuando son mejores, asi la ronda siguiente parte de lo que ya se
+     * alcanzo con menos colectivos. Si una llegada se reemplaza, se borra el padre de la ronda siguiente, porque esa
+     * llegada no la mejoro esa ronda (puede haber quedado de una busqueda anterior del perfil).
+     * @param etiquetas etiquetas de la busqueda
+     * @param ronda ronda cuyas llegadas se pasan a la siguiente
+     */
+    private void arrastrarEtiquetas(EtiquetasRaptor etiquetas, int ronda) {
+        int[] actual = etiquetas.llegada[ronda];
+        int[] siguiente = etiquetas.llegada[ronda + 1];
+        for (int parada = 0; parada < actual.length; parada++) {
+            if (actual[parada] < siguiente[parada]) {
+                siguiente[parada] = actual[parada];
+                etiquetas.lineaPadre[ronda + 1][parada] = -1;
+            }
+        }
+    }
+
+    /**
+     * Calcula el perfil de viajes entre dos paradas para las salidas dentro de una ventana horaria: todos los viajes
+     * que no son superados por otro que sale mas tarde y llega antes o a la misma hora (conjunto de Pareto de salida y
+     * llegada). Sigue la idea de rRAPTOR: se toman las salidas de colectivos desde el origen dentro de la ventana, de la
+     * mas tarde a la mas temprana, y se corren las rondas sin reiniciar las etiquetas, porque lo que se alcanza saliendo
+     * mas tarde tambien se alcanza saliendo antes. Asi cada salida solo recorre lo que mejora.
+     * @param paradaOrigen parada de origen
+     * @param paradaDestino parada de destino
+     * @param diaSemana dia de la semana (1-7)
+     * @param desde inicio de la ventana de salida
+     * @param hasta fin de la ventana de salida
+     * @param mapaGrafo grafo inmutable de la red
+     * @return los viajes del perfil ordenados por hora de salida
+     */
+    public List<List<Recorrido>> calcularPerfil(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                LocalTime desde, LocalTime hasta, MapaGrafo mapaGrafo) {
+        List<List<Recorrido>> perfil = new ArrayList<>();
+
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino) {
+            return perfil;
+        }
+
+        int[] salidas = salidasDesdeOrigen(mapaGrafo, diaSemana, origen, desde.toSecondOfDay(), hasta.toSecondOfDay());
+        EtiquetasRaptor etiquetas = new EtiquetasRaptor(maximoRondas, mapaGrafo.cantidadParadas(),
+                mapaGrafo.cantidadLineas());
+        etiquetas.origen = origen;
+        etiquetas.ultimaSalidaOrigen = hasta.toSecondOfDay();
+
+        for (int i = salidas.length - 1; i >= 0; i--) {
+            int llegadaAnterior = etiquetas.mejorLlegada[destino];
+            etiquetas.llegada[0][origen] = salidas[i];
+            etiquetas.mejorLlegada[origen] = salidas[i];
+            etiquetas.marcada[origen] = true;
+
+            ejecutarRondas(mapaGrafo, diaSemana, etiquetas, destino);
+
+            //Si saliendo a esta hora se llega antes que saliendo mas tarde, el viaje es parte del perfil
+            if (etiquetas.mejorLlegada[destino] < llegadaAnterior) {
+                int ronda = 1;
+                while (etiquetas.llegada[ronda][destino] != etiquetas.mejorLlegada[destino]) {
+                    ronda++;
+                }
+                perfil.add(0, reconstruirViaje(mapaGrafo, diaSemana, etiquetas, ronda, destino));
+            }
+        }
+        return perfil;
+    }
+
+    /**
+     * Junta las horas, sin repetir y ordenadas, a las que sale algun colectivo desde la parada de origen dentro de la
+     * ventana, recorriendo las lineas que pasan por la parada.
+     * @param mapaGrafo grafo de la red
+     * @param dia dia de la semana
+     * @param origen indice de la parada de origen
+     * @param desde inicio de la ventana, en segundos desde la medianoche
+     * @param hasta fin de la ventana, en segundos desde la medianoche
+     * @return las horas de salida ordenadas de menor a mayor
+     */
+    int[] salidasDesdeOrigen(MapaGrafo mapaGrafo, int dia, int origen, int desde, int hasta) {
+        int cantidad = 0;
+        int[] horas = new int[16];
+        for (int pasada = mapaGrafo.inicioPasadas(origen); pasada < mapaGrafo.finPasadas(origen); pasada++) {
+            int linea = mapaGrafo.lineaPasada(pasada);
+            int posicion = mapaGrafo.posicionPasada(pasada);
+            int viaje = mapaGrafo.primerViajeDesde(linea, dia, posicion, desde);
+            if (viaje == -1) {
+                continue;
+            }
+            int cantidadViajes = mapaGrafo.lineaEn(linea).obtenerSalidasPorDia(dia).length;
+            for (; viaje < cantidadViajes; viaje++) {
+                int hora = mapaGrafo.horaDeViaje(linea, dia, viaje, posicion);
+                if (hora > hasta) {
+                    break;
+                }
+                if (cantidad == horas.length) {
+                    horas = Arrays.copyOf(horas, cantidad * 2);
+                }
+                horas[cantidad++] = hora;
+            }
+        }
+        int[] ordenadas = Arrays.copyOf(horas, cantidad);
+        Arrays.sort(ordenadas);
+        int distintas = 0;
+        for (int i = 0; i < ordenadas.length; i++) {
+            if (distintas == 0 || ordenadas[i] != ordenadas[distintas - 1]) {
+                ordenadas[distintas++] = ordenadas[i];
+            }
+        }
+        return Arrays.copyOf(ordenadas, distintas);
+    }
+
+    /**
+     * Reconstruye el viaje que llega a una parada en una ronda, siguiendo hacia atras los colectivos tomados.
+     * @param mapaGrafo grafo de la red
+     * @param dia dia de la semana
+     * @param etiquetas etiquetas de la busqueda
+     * @param ronda ronda en la que se llego a la parada
+     * @param parada indice de la parada de llegada
+     * @return lista de recorridos, uno por cada tramo del viaje
+     */
+    List<Recorrido> reconstruirViaje(MapaGrafo mapaGrafo, int dia, EtiquetasRaptor etiquetas, int ronda,
+                                     int parada) {
+        List<List<Recorrido>> colectivos = new ArrayList<>();
+        int k = ronda;
+        while (k > 0) {
+            //La etiqueta pudo haber quedado de una ronda anterior, buscamos la ronda que la mejoro
+            while (k > 0 && etiquetas.lineaPadre[k][parada] == -1) {
+                k--;
+            }
+            if (k == 0) {
+                break;
+            }
+            int linea = etiquetas.lineaPadre[k][parada];
+            int subida = etiquetas.subidaPadre[k][parada];
+            colectivos.add(0, mapaGrafo.armarViaje(linea, dia, etiquetas.viajePadre[k][parada], subida,
+                    etiquetas.bajadaPadre[k][parada]));
+            parada = mapaGrafo.paradaDeLinea(linea, subida);
+            k--;
+        }
+
+        List<Recorrido> viaje = new ArrayList<>();
+        for (List<Recorrido> tramosColectivo : colectivos) {
+            viaje.addAll(tramosColectivo);
+        }
+        return viaje;
+    }
+
+    /**
+     * Etiquetas de una busqueda RAPTOR: la hora de llegada a cada parada en cada ronda, y de donde viene cada
+     * llegada para poder reconstruir el viaje.
+     * Se declaro inner class porque solo la usan los algoritmos por rondas de este paquete.
+     */
+    static class EtiquetasRaptor {
+
+        /**
+         * Hora de llegada a cada parada en cada ronda, en segundos desde la medianoche.
+         */
+        final int[][] llegada;
+
+        /**
+         * Mejor hora de llegada a cada parada en cualquier ronda, para podar.
+         */
+        final int[] mejorLlegada;
+
+        /**
+         * Paradas mejoradas en la ultima ronda.
+         */
+        final boolean[] marcada;
+
+        /**
+         * Linea con la que se llego a cada parada en cada ronda, o -1 si la ronda no mejoro la parada.
+         */
+        final int[][] lineaPadre;
+
+        /**
+         * Viaje de la linea con el que se llego a cada parada en cada ronda.
+         */
+        final int[][] viajePadre;
+
+        /**
+         * Posicion del recorrido de la linea donde se subio.
+         */
+        final int[][] subidaPadre;
+
+        /**
+         * Posicion del recorrido de la linea donde se bajo.
+         */
+        final int[][] bajadaPadre;
+
+        /**
+         * Primera posicion a recorrer de cada linea en la ronda actual.
+         */
+        final int[] posicionEnCola;
+
+        /**
+         * Indice de la parada de origen, o -1 si no se limitan las salidas desde el origen.
+         */
+        int origen = -1;
+
+        /**
+         * Ultima hora a la que se puede tomar un colectivo en el origen. Lo usa el perfil para que ningun viaje salga
+         * despues de la ventana.
+         */
+        int ultimaSalidaOrigen = INFINITO;
+
+        /**
+         * Constructor de las etiquetas, con todas las paradas sin alcanzar.
+         * @param rondas cantidad maxima de rondas
+         * @param paradas cantidad de paradas del grafo
+         * @param lineas cantidad de lineas del grafo
+         */
+        EtiquetasRaptor(int rondas, int paradas, int lineas) {
+            this.llegada = new int[rondas + 1][paradas];
+            this.mejorLlegada = new int[paradas];
+            this.marcada = new boolean[paradas];
+            this.lineaPadre = new int[rondas + 1][paradas];
+            this.viajePadre = new int[rondas + 1][paradas];
+            this.subidaPadre = new int[rondas + 1][paradas];
+            this.bajadaPadre = new int[rondas + 1][paradas];
+            this.posicionEnCola = new int[lineas];
+            for (int k = 0; k <= rondas; k++) {
+                Arrays.fill(llegada[k], INFINITO);
+                Arrays.fill(lineaPadre[k], -1);
+            }
+            Arrays.fill(mejorLlegada, INFINITO);
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Esta clase implementa el ruteo basado en viajes (Trip-Based Routing). En lugar de etiquetar paradas, trabaja con los
+ * viajes de cada linea: se precalculan, para cada viaje y cada parada de su recorrido, los transbordos al primer viaje
+ * de cada otra linea que se puede tomar en esa parada despues de bajar. Despues se descartan los transbordos que no
+ * mejoran la llegada a ninguna parada respecto de seguir en el mismo colectivo o de los transbordos de mas adelante,
+ * que son la mayoria.
+ * Una consulta es una busqueda en anchura sobre tramos de viaje (un viaje desde la posicion donde se subio): la ronda
+ * k tiene los tramos a los que se llega con k colectivos, y cada viaje guarda la primera posicion desde la que ya se
+ * recorrio, asi ningun tramo se recorre dos veces. No usa cola de prioridad ni etiquetas por parada.
+ * Los transbordos se calculan una sola vez para los siete dias, repartiendo las lineas entre varios hilos. El resultado
+ * es el mismo que el de CalculoRaptor con la misma cantidad de rondas.
+ */
+public class CalculoTripBased implements AlgoritmoRecorrido {
+
+    /**
+     * Grafo con el que se calcularon los transbordos.
+     */
+    private final MapaGrafo mapaGrafo;
+
+    /**
+     * Cantidad maxima de colectivos por viaje.
+     */
+    private final int maximoRondas;
+
+    /**
+     * Viajes y transbordos de cada dia (posiciones 1 a 7).
+     */
+    private final ViajesDelDia[] porDia = new ViajesDelDia[8];
+
+    /**
+     * Calcula los transbordos entre viajes de toda la red.
+     * @param mapaGrafo grafo inmutable de la red
+     * @param maximoRondas cantidad maxima de colectivos por viaje
+     * @param hilos cantidad de hilos para repartir las lineas
+     */
+    public CalculoTripBased(MapaGrafo mapaGrafo, int maximoRondas, int hilos) {
+        this.mapaGrafo = mapaGrafo;
+        this.maximoRondas = maximoRondas;
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(Math.max(1, hilos));
+        try {
+            int cantidadLineas = mapaGrafo.cantidadLineas();
+            List<Future<int[][]>> tareas = new ArrayList<>();
+            for (int dia = 1; dia <= 7; dia++) {
+                porDia[dia] = new ViajesDelDia(mapaGrafo, dia);
+                for (int linea = 0; linea < cantidadLineas; linea++) {
+                    ViajesDelDia viajes = porDia[dia];
+                    int l = linea;
+                    tareas.add(ejecutor.submit(() -> viajes.calcularTransbordos(mapaGrafo, l)));
+                }
+            }
+            for (int dia = 1; dia <= 7; dia++) {
+                int[][][] porLinea = new int[cantidadLineas][][];
+                for (int linea = 0; linea < cantidadLineas; linea++) {
+                    porLinea[linea] = tareas.get((dia - 1) * cantidadLineas + linea).get();
+                }
+                porDia[dia].guardarTransbordos(porLinea);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpio el calculo de los transbordos entre viajes", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al calcular los transbordos entre viajes", e.getCause());
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    /**
+     * Indica si los transbordos se calcularon con un grafo dado.
+     * @param otroGrafo grafo a comparar
+     * @return true si es el mismo grafo
+     */
+    public boolean esDe(MapaGrafo otroGrafo) {
+        return mapaGrafo == otroGrafo;
+    }
+
+    /**
+     * Obtiene la cantidad total de transbordos guardados, de todos los dias.
+     * @return cantidad de transbordos
+     */
+    public int cantidadTransbordos() {
+        int total = 0;
+        for (int dia = 1; dia <= 7; dia++) {
+            total += porDia[dia].viajeTransbordo.length;
+        }
+        return total;
+    }
+
+    /**
+     * Calcula el recorrido armando el grafo para esta consulta. Como los transbordos estan atados a su grafo, se
+     * resuelve con RAPTOR.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param tramos
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, Map<String, Tramo> tramos) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
+
+    /**
+     * Calcula los recorridos recorriendo los viajes por rondas. Devuelve, para cada cantidad de colectivos, el viaje
+     * que llega antes, siempre que llegue antes que los viajes con menos transbordos. Si el grafo no es el de los
+     * transbordos, se resuelve con RAPTOR.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        if (!esDe(mapaGrafo)) {
+            return new CalculoRaptor(maximoRondas).calcularRecorrido(paradaOrigen, paradaDestino, diaSemana,
+                    horaLlegada, mapaGrafo);
+        }
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino || diaSemana < 1 || diaSemana > 7) {
+            return soluciones;
+        }
+        ViajesDelDia viajes = porDia[diaSemana];
+        Busqueda busqueda = new Busqueda(viajes);
+
+        //Ronda 1: el primer viaje de cada linea que pasa por el origen
+        int salida = horaLlegada.toSecondOfDay();
+        for (int pasada = mapaGrafo.inicioPasadas(origen); pasada < mapaGrafo.finPasadas(origen); pasada++) {
+            int linea = mapaGrafo.lineaPasada(pasada);
+            int posicion = mapaGrafo.posicionPasada(pasada);
+            if (posicion == mapaGrafo.largoDeLinea(linea) - 1) {
+                continue;
+            }
+            int viaje = mapaGrafo.primerViajeDesde(linea, diaSemana, posicion, salida);
+            if (viaje != -1) {
+                busqueda.encolar(viajes.primerViaje[linea] + viaje, posicion, -1, -1);
+            }
+        }
+
+        int mejorLlegada = Integer.MAX_VALUE;
+        int inicioRonda = 0;
+        for (int ronda = 1; ronda <= maximoRondas && inicioRonda < busqueda.cantidad; ronda++) {
+            int finRonda = busqueda.cantidad;
+
+            //Primero se ve si algun tramo de la ronda llega al destino antes que lo encontrado
+            int mejorTramo = -1;
+            int mejorBajada = -1;
+            for (int s = inicioRonda; s < finRonda; s++) {
+                int viaje = busqueda.viaje[s];
+                int linea = viajes.lineaDeViaje[viaje];
+                int salidaLinea = viajes.salidaDeViaje[viaje];
+                for (int pos = busqueda.subida[s] + 1; pos <= busqueda.fin[s]; pos++) {
+                    if (mapaGrafo.paradaDeLinea(linea, pos) == destino) {
+                        int hora = mapaGrafo.horaDeViaje(linea, diaSemana, salidaLinea, pos);
+                        if (hora < mejorLlegada) {
+                            mejorLlegada = hora;
+                            mejorTramo = s;
+                            mejorBajada = pos;
+                        }
+                    }
+                }
+            }
+            if (mejorTramo != -1) {
+                soluciones.add(reconstruirViaje(viajes, busqueda, diaSemana, mejorTramo, mejorBajada));
+            }
+
+            //Despues se siguen los transbordos de cada tramo, hasta la primera parada a la que ya se llega tarde
+            for (int s = inicioRonda; s < finRonda; s++) {
+                Calculo.comprobarInterrupcion();
+                int viaje = busqueda.viaje[s];
+                int linea = viajes.lineaDeViaje[viaje];
+                int salidaLinea = viajes.salidaDeViaje[viaje];
+                for (int pos = busqueda.subida[s] + 1; pos <= busqueda.fin[s]; pos++) {
+                    if (mapaGrafo.horaDeViaje(linea, diaSemana, salidaLinea, pos) >= mejorLlegada) {
+                        break;
+                    }
+                    int lugar = viajes.inicioPosiciones[viaje] + pos;
+                    for (int t = viajes.inicioTransbordos[lugar]; t < viajes.inicioTransbordos[lugar + 1]; t++) {
+                        busqueda.encolar(viajes.viajeTransbordo[t], viajes.posicionTransbordo[t], s, pos);
+                    }
+                }
+            }
+            inicioRonda = finRonda;
+        }
+        return soluciones;
+    }
+
+    /**
+     * Reconstruye el viaje que termina bajando de un tramo en una posicion, siguiendo los tramos anteriores.
+     * @param viajes viajes del dia
+     * @param busqueda tramos de la busqueda
+     * @param dia dia de la semana
+     * @param tramo ultimo tramo del viaje
+     * @param bajada posicion donde se baja del ultimo tramo
+     * @return lista de recorridos, uno por tramo de colectivo
+     */
+    private List<Recorrido> reconstruirViaje(ViajesDelDia viajes, Busqueda busqueda, int dia, int tramo, int bajada) {
+        List<Recorrido> recorrido = new ArrayList<>();
+        while (tramo != -1) {
+            int viaje = busqueda.viaje[tramo];
+            recorrido.addAll(0, mapaGrafo.armarViaje(viajes.lineaDeViaje[viaje], dia, viajes.salidaDeViaje[viaje],
+                    busqueda.subida[tramo], bajada));
+            bajada = busqueda.bajadaPadre[tramo];
+            tramo = busqueda.padre[tramo];
+        }
+        return recorrido;
+    }
+
+    /**
+     * Viajes de un dia y sus transbordos. Los viajes se numeran de 0 a cantidadViajes - 1 entre todas las lineas, los
+     * de cada linea seguidos y en orden de salida. Los transbordos quedan en arreglos paralelos, agrupados por viaje y
+     * posicion de bajada con el mismo esquema que las aristas del grafo.
+     */
+    private static final class ViajesDelDia {
+
+        /**
+         * Dia de la semana de los viajes.
+         */
+        private final int dia;
+
+        /**
+         * Primer viaje de cada linea, con una posicion de mas para el fin de la ultima.
+         */
+        private final int[] primerViaje;
+
+        /**
+         * Linea de cada viaje.
+         */
+        private final int[] lineaDeViaje;
+
+        /**
+         * Indice de cada viaje dentro de las salidas del dia de su linea.
+         */
+        private final int[] salidaDeViaje;
+
+        /**
+         * Lugar de la posicion 0 de cada viaje entre todas las posiciones de todos los viajes.
+         */
+        private final int[] inicioPosiciones;
+
+        /**
+         * Inicio de los transbordos de cada posicion de cada viaje, con una posicion de mas al final.
+         */
+        private int[] inicioTransbordos;
+
+        /**
+         * Viaje al que se sube y posicion donde se sube en cada transbordo.
+         */
+        private int[] viajeTransbordo;
+        private int[] posicionTransbordo;
+
+        /**
+         * Numera los viajes del dia.
+         * @param mapaGrafo grafo de la red
+         * @param dia dia de la semana
+         */
+        ViajesDelDia(MapaGrafo mapaGrafo, int dia) {
+            this.dia = dia;
+            int cantidadLineas = mapaGrafo.cantidadLineas();
+            this.primerViaje = new int[cantidadLineas + 1];
+            for (int l = 0; l < cantidadLineas; l++) {
+                int salidas = mapaGrafo.largoDeLinea(l) > 1 ? mapaGrafo.lineaEn(l).obtenerSalidasPorDia(dia).length : 0;
+                primerViaje[l + 1] = primerViaje[l] + salidas;
+            }
+            int cantidadViajes = primerViaje[cantidadLineas];
+            this.lineaDeViaje = new int[cantidadViajes];
+            this.salidaDeViaje = new int[cantidadViajes];
+            this.inicioPosiciones = new int[cantidadViajes + 1];
+            for (int l = 0; l < cantidadLineas; l++) {
+                for (int v = primerViaje[l]; v < primerViaje[l + 1]; v++) {
+                    lineaDeViaje[v] = l;
+                    salidaDeViaje[v] = v - primerViaje[l];
+                    inicioPosiciones[v + 1] = inicioPosiciones[v] + mapaGrafo.largoDeLinea(l);
+                }
+            }
+        }
+
+        /**
+         * Calcula los transbordos de los viajes de una linea y descarta los que no mejoran ninguna llegada. Para cada
+         * viaje se recorren sus posiciones de la ultima a la primera, guardando la mejor llegada a cada parada
+         * alcanzada desde mas adelante; un transbordo se queda solo si el viaje al que sube mejora alguna.
+         * @param mapaGrafo grafo de la red
+         * @param linea indice denso de la linea
+         * @return para cada viaje de la linea, tres enteros por transbordo (posicion de bajada, viaje y posicion de
+         * subida), ordenados por posicion de bajada
+         */
+        int[][] calcularTransbordos(MapaGrafo mapaGrafo, int linea) {
+            int largo = mapaGrafo.largoDeLinea(linea);
+            int[][] resultado = new int[primerViaje[linea + 1] - primerViaje[linea]][];
+            int[] mejorLlegada = new int[mapaGrafo.cantidadParadas()];
+            Arrays.fill(mejorLlegada, Integer.MAX_VALUE);
+            int[] tocadas = new int[mapaGrafo.cantidadParadas()];
+
+            for (int v = 0; v < resultado.length; v++) {
+                int cantidadTocadas = 0;
+                int[] transbordos = new int[0];
+                int cantidad = 0;
+                for (int i = largo - 1; i >= 1; i--) {
+                    int parada = mapaGrafo.paradaDeLinea(linea, i);
+                    int llegada = mapaGrafo.horaDeViaje(linea, dia, v, i);
+                    if (llegada < mejorLlegada[parada]) {
+                        if (mejorLlegada[parada] == Integer.MAX_VALUE) {
+                            tocadas[cantidadTocadas++] = parada;
+                        }
+                        mejorLlegada[parada] = llegada;
+                    }
+                    int anterior = mapaGrafo.paradaDeLinea(linea, i - 1);
+
+                    for (int pasada = mapaGrafo.inicioPasadas(parada); pasada < mapaGrafo.finPasadas(parada); pasada++) {
+                        int otraLinea = mapaGrafo.lineaPasada(pasada);
+                        int j = mapaGrafo.posicionPasada(pasada);
+                        int otroLargo = mapaGrafo.largoDeLinea(otraLinea);
+                        if (j == otroLargo - 1) {
+                            continue;
+                        }
+                        int u = mapaGrafo.primerViajeDesde(otraLinea, dia, j, llegada);
+                        if (u == -1) {
+                            continue;
+                        }
+                        //En la misma linea solo sirve pasar a un viaje anterior o volver a una posicion anterior
+                        if (otraLinea == linea && u >= v && j >= i) {
+                            continue;
+                        }
+                        //Bajar para subir a un colectivo que vuelve a la parada anterior no sirve
+                        if (mapaGrafo.paradaDeLinea(otraLinea, j + 1) == anterior) {
+                            continue;
+                        }
+                        boolean mejora = false;
+                        for (int k = j + 1; k < otroLargo; k++) {
+                            int otraParada = mapaGrafo.paradaDeLinea(otraLinea, k);
+                            int otraLlegada = mapaGrafo.horaDeViaje(otraLinea, dia, u, k);
+                            if (otraLlegada < mejorLlegada[otraParada]) {
+                                if (mejorLlegada[otraParada] == Integer.MAX_VALUE) {
+                                    tocadas[cantidadTocadas++] = otraParada;
+                                }
+                                mejorLlegada[otraParada] = otraLlegada;
+                                mejora = true;
+                            }
+                        }
+                        if (mejora) {
+                            if (cantidad + 3 > transbordos.length) {
+                                transbordos = Arrays.copyOf(transbordos, Math.max(12, transbordos.length * 2));
+                            }
+                            transbordos[cantidad++] = i;
+                            transbordos[cantidad++] = primerViaje[otraLinea] + u;
+                            transbordos[cantidad++] = j;
+                        }
+                    }
+                }
+                for (int t = 0; t < cantidadTocadas; t++) {
+                    mejorLlegada[tocadas[t]] = Integer.MAX_VALUE;
+                }
+                resultado[v] = Arrays.copyOf(transbordos, cantidad);
+            }
+            return resultado;
+        }
+
+        /**
+         * Pasa los transbordos calculados por linea a los arreglos paralelos del dia.
+         * @param porLinea transbordos de cada viaje de cada linea, como los devuelve calcularTransbordos
+         */
+        void guardarTransbordos(int[][][] porLinea) {
+            int cantidadViajes = lineaDeViaje.length;
+            this.inicioTransbordos = new int[inicioPosiciones[cantidadViajes] + 1];
+            int total = 0;
+            for (int[][] deLinea : porLinea) {
+                for (int[] deViaje : deLinea) {
+                    total += deViaje.length / 3;
+                }
+            }
+            this.viajeTransbordo = new int[total];
+            this.posicionTransbordo = new int[total];
+
+            //Los transbordos de cada viaje vienen de la ultima posicion a la primera, se cuentan y se ubican por lugar
+            for (int v = 0; v < cantidadViajes; v++) {
+                int[] deViaje = porLinea[lineaDeViaje[v]][salidaDeViaje[v]];
+                for (int t = 0; t < deViaje.length; t += 3) {
+                    inicioTransbordos[inicioPosiciones[v] + deViaje[t] + 1]++;
+                }
+            }
+            for (int lugar = 0; lugar < inicioTransbordos.length - 1; lugar++) {
+                inicioTransbordos[lugar + 1] += inicioTransbordos[lugar];
+            }
+            int[] siguiente = Arrays.copyOf(inicioTransbordos, inicioTransbordos.length - 1);
+            for (int v = 0; v < cantidadViajes; v++) {
+                int[] deViaje = porLinea[lineaDeViaje[v]][salidaDeViaje[v]];
+                for (int t = 0; t < deViaje.length; t += 3) {
+                    int lugar = siguiente[inicioPosiciones[v] + deViaje[t]]++;
+                    viajeTransbordo[lugar] = deViaje[t + 1];
+                    posicionTransbordo[lugar] = deViaje[t + 2];
+                }
+            }
+        }
+    }
+
+    /**
+     * Tramos de viaje de una consulta, en el orden en que se encolan: primero todos los de la ronda 1, despues los de
+     * la ronda 2, y asi. Guarda tambien la primera posicion alcanzada de cada viaje.
+     */
+    private static final class Busqueda {
+
+        /**
+         * Viajes del dia de la consulta.
+         */
+        private final ViajesDelDia viajes;
+
+        /**
+         * Primera posicion desde la que ya se recorrio cada viaje, o el largo de su linea si no se recorrio.
+         */
+        private final int[] primeraPosicion;
+
+        /**
+         * Viaje, posicion de subida y ultima posicion a recorrer de cada tramo.
+         */
+        private int[] viaje = new int[64];
+        private int[] subida = new int[64];
+        private int[] fin = new int[64];
+
+        /**
+         * Tramo anterior de cada tramo (-1 para los de la primera ronda) y posicion donde se bajo de el.
+         */
+        private int[] padre = new int[64];
+        private int[] bajadaPadre = new int[64];
+
+        /**
+         * Cantidad de tramos encolados.
+         */
+        private int cantidad;
+
+        Busqueda(ViajesDelDia viajes) {
+            this.viajes = viajes;
+            int cantidadViajes = viajes.lineaDeViaje.length;
+            this.primeraPosicion = new int[cantidadViajes];
+            for (int v = 0; v < cantidadViajes; v++) {
+                primeraPosicion[v] = viajes.inicioPosiciones[v + 1] - viajes.inicioPosiciones[v];
+            }
+        }
+
+        /**
+         * Encola un viaje desde una posicion si no se recorrio ya desde esa posicion o una anterior. Como los viajes
+         * siguientes de la misma linea pasan mas tarde, tampoco hace falta recorrerlos desde esa posicion.
+         * @param v viaje
+         * @param posicion posicion de subida
+         * @param tramoPadre tramo del que se viene, o -1
+         * @param bajada posicion donde se bajo del tramo padre
+         */
+        void encolar(int v, int posicion, int tramoPadre, int bajada) {
+            if (posicion >= primeraPosicion[v]) {
+                return;
+            }
+            if (cantidad == viaje.length) {
+                int nuevo = cantidad * 2;
+                viaje = Arrays.copyOf(viaje, nuevo);
+                subida = Arrays.copyOf(subida, nuevo);
+                fin = Arrays.copyOf(fin, nuevo);
+                padre = Arrays.copyOf(padre, nuevo);
+                bajadaPadre = Arrays.copyOf(bajadaPadre, nuevo);
+            }
+            int largo = viajes.inicioPosiciones[v + 1] - viajes.inicioPosiciones[v];
+            viaje[cantidad] = v;
+            subida[cantidad] = posicion;
+            fin[cantidad] = Math.min(primeraPosicion[v], largo - 1);
+            padre[cantidad] = tramoPadre;
+            bajadaPadre[cantidad] = bajada;
+            cantidad++;
+
+            int ultimo = viajes.primerViaje[viajes.lineaDeViaje[v] + 1];
+            for (int siguiente = v; siguiente < ultimo && primeraPosicion[siguiente] > posicion; siguiente++) {
+                primeraPosicion[siguiente] = posicion;
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package colectivo.negocio;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase guarda los arreglos de trabajo de una busqueda sobre las paradas (tiempo, arista padre, cota y si esta
+ * cerrada cada parada, la cola, las paradas alcanzadas en orden, y para el escaneo de conexiones la conexion de subida
+ * de cada viaje), para no crearlos en cada consulta. Hay uno por hilo y se reusa entre consultas, y uno mas por hilo
+ * para las busquedas que crecen a la vez desde las dos puntas.
+ * En lugar de volver a llenar los arreglos al empezar cada busqueda, cada posicion guarda la epoca (el numero de
+ * busqueda) en que se escribio; si no es la actual, la posicion vale lo mismo que recien inicializada. Asi empezar
+ * una busqueda cuesta lo mismo para cualquier tamano de red.
+ * No se puede usar para dos busquedas a la vez en el mismo hilo.
+ */
+final class EspacioBusqueda {
+
+    /**
+     * Valor de una parada todavia no alcanzada.
+     */
+    static final int INFINITO = Integer.MAX_VALUE;
+
+    /**
+     * Espacio de trabajo de cada hilo.
+     */
+    private static final ThreadLocal<EspacioBusqueda> POR_HILO = new ThreadLocal<>();
+
+    /**
+     * Segundo espacio de trabajo de cada hilo, para la busqueda desde la otra punta.
+     */
+    private static final ThreadLocal<EspacioBusqueda> OPUESTO_POR_HILO = new ThreadLocal<>();
+
+    /**
+     * Tiempo y arista padre de cada parada (en el escaneo de conexiones, la conexion con la que se llego), validos
+     * solo si marcaTiempo tiene la epoca actual.
+     */
+    private final int[] tiempo;
+    private final int[] padre;
+    private final int[] marcaTiempo;
+
+    /**
+     * Cota hasta el destino de cada parada, valida solo si marcaCota tiene la epoca actual.
+     */
+    private final int[] cota;
+    private final int[] marcaCota;
+
+    /**
+     * Paradas ya cerradas en esta busqueda: cada posicion vale true si tiene la epoca actual.
+     */
+    private final int[] marcaCerrada;
+
+    /**
+     * Lugar para anotar las paradas alcanzadas en el orden en que se cierran. No tiene marcas: cada busqueda que lo
+     * usa lleva su propia cantidad.
+     */
+    private final int[] alcanzadas;
+
+    /**
+     * Conexion donde se subio a cada viaje del dia, valida solo si marcaSubida tiene la epoca actual. Crece la primera
+     * vez que se pide para un dia con mas viajes.
+     */
+    private int[] subida = new int[0];
+    private int[] marcaSubida = new int[0];
+
+    /**
+     * Cola de la busqueda, que se vacia al empezar la siguiente.
+     */
+    private final MonticuloIndexado cola;
+
+    /**
+     * Numero de la busqueda actual.
+     */
+    private int epoca;
+
+    /**
+     * Constructor de la clase EspacioBusqueda.
+     * @param capacidad cantidad de paradas que admite
+     */
+    private EspacioBusqueda(int capacidad) {
+        this.tiempo = new int[capacidad];
+        this.padre = new int[capacidad];
+        this.marcaTiempo = new int[capacidad];
+        this.cota = new int[capacidad];
+        this.marcaCota = new int[capacidad];
+        this.marcaCerrada = new int[capacidad];
+        this.alcanzadas = new int[capacidad];
+        this.cola = new MonticuloIndexado(capacidad);
+    }
+
+    /**
+     * Obtiene el espacio de trabajo del hilo actual listo para una busqueda nueva, creandolo la primera vez o si la
+     * red crecio.
+     * @param cantidadParadas cantidad de paradas de la red
+     * @return el espacio de trabajo del hilo, con todas las paradas sin alcanzar
+     */
+    static EspacioBusqueda delHilo(int cantidadParadas) {
+        return obtener(POR_HILO, cantidadParadas);
+    }
+
+    /**
+     * Obtiene el segundo espacio de trabajo del hilo actual, para la busqueda que crece desde la otra punta en las
+     * busquedas bidireccionales. Es independiente del que devuelve delHilo, asi las dos busquedas se pueden usar a la
+     * vez.
+     * @param cantidadParadas cantidad de paradas de la red
+     * @return el segundo espacio de trabajo del hilo, con todas las paradas sin alcanzar
+     */
+    static EspacioBusqueda opuestoDelHilo(int cantidadParadas) {
+        return obtener(OPUESTO_POR_HILO, cantidadParadas);
+    }
+
+    /**
+     * Obtiene el espacio de trabajo de uno de los ThreadLocal, creandolo la primera vez o si la red crecio.
+     */
+    private static EspacioBusqueda obtener(ThreadLocal<EspacioBusqueda> porHilo, int cantidadParadas) {
+        EspacioBusqueda espacio = porHilo.get();
+        if (espacio == null || espacio.tiempo.length < cantidadParadas) {
+            espacio = new EspacioBusqueda(cantidadParadas);
+            porHilo.set(espacio);
+        }
+        espacio.iniciar();
+        return espacio;
+    }
+
+    /**
+     * Empieza una busqueda nueva pasando a la epoca siguiente. Solo si las epocas dan la vuelta se limpian las marcas.
+     */
+    private void iniciar() {
+        cola.limpiar();
+        epoca++;
+        if (epoca == Integer.MAX_VALUE) {
+            Arrays.fill(marcaTiempo, 0);
+            Arrays.fill(marcaCota, 0);
+            Arrays.fill(marcaCerrada, 0);
+            Arrays.fill(marcaSubida, 0);
+            epoca = 1;
+        }
+    }
+
+    /**
+     * Obtiene la cola de la busqueda, vacia al empezar.
+     * @return la cola
+     */
+    MonticuloIndexado cola() {
+        return cola;
+    }
+
+    /**
+     * Obtiene el arreglo donde anotar las paradas alcanzadas, con lugar para todas las paradas. Lo que tenga de una
+     * busqueda anterior no vale.
+     * @return el arreglo de paradas alcanzadas
+     */
+    int[] alcanzadas() {
+        return alcanzadas;
+    }
+
+    /**
+     * Obtiene el tiempo de una parada en esta busqueda.
+     * @param parada indice denso de la parada
+     * @return el tiempo, o INFINITO si todavia no se alcanzo
+     */
+    int tiempo(int parada) {
+        return marcaTiempo[parada] == epoca ? tiempo[parada] : INFINITO;
+    }
+
+    /**
+     * Obtiene la arista con la que se llego a una parada en esta busqueda.
+     * @param parada indice denso de la parada
+     * @return la arista, o -1 si es el origen o todavia no se alcanzo
+     */
+    int padre(int parada) {
+        return marcaTiempo[parada] == epoca ? padre[parada] : -1;
+    }
+
+    /**
+     * Guarda el tiempo de una parada y la arista con la que se llego.
+     * @param parada indice denso de la parada
+     * @param nuevoTiempo tiempo de la parada
+     * @param arista arista con la que se llego, o -1 para el origen
+     */
+    void fijar(int parada, int nuevoTiempo, int arista) {
+        tiempo[parada] = nuevoTiempo;
+        padre[parada] = arista;
+        marcaTiempo[parada] = epoca;
+    }
+
+    /**
+     * Indica si ya se guardo la cota de una parada en esta busqueda.
+     * @param parada indice denso de la parada
+     * @return true si la cota ya se calculo
+     */
+    boolean tieneCota(int parada) {
+        return marcaCota[parada] == epoca;
+    }
+
+    /**
+     * Obtiene la cota guardada de una parada.
+     * @param parada indice denso de la parada
+     * @return la cota, solo valida si tieneCota devuelve true
+     */
+    int cota(int parada) {
+        return cota[parada];
+    }
+
+    /**
+     * Guarda la cota de una parada en esta busqueda.
+     * @param parada indice denso de la parada
+     * @param nuevaCota cota hasta el destino
+     */
+    void fijarCota(int parada, int nuevaCota) {
+        cota[parada] = nuevaCota;
+        marcaCota[parada] = epoca;
+    }
+
+    /**
+     * Indica si una parada ya se cerro en esta busqueda.
+     * @param parada indice denso de la parada
+     * @return true si la parada ya se cerro
+     */
+    boolean cerrada(int parada) {
+        return marcaCerrada[parada] == epoca;
+    }
+
+    /**
+     * Cierra una parada en esta busqueda.
+     * @param parada indice denso de la parada
+     */
+    void cerrar(int parada) {
+        marcaCerrada[parada] = epoca;
+    }
+
+    /**
+     * Deja lugar para la conexion de subida de una cantidad de viajes, todos sin subida en esta busqueda.
+     * @param cantidadViajes cantidad de viajes del dia
+     */
+    void reservarViajes(int cantidadViajes) {
+        if (subida.length < cantidadViajes) {
+            subida = new int[cantidadViajes];
+            marcaSubida = new int[cantidadViajes];
+        }
+    }
+
+    /**
+     * Obtiene la conexion donde se subio a un viaje en esta busqueda.
+     * @param viaje indice del viaje en la tabla de conexiones
+     * @return la conexion, o -1 si todavia no se puede tomar
+     */
+    int subida(int viaje) {
+        return marcaSubida[viaje] == epoca ? subida[viaje] : -1;
+    }
+
+    /**
+     * Guarda la conexion donde se subio a un viaje.
+     * @param viaje indice del viaje en la tabla de conexiones
+     * @param conexion conexion de subida
+     */
+    void fijarSubida(int viaje, int conexion) {
+        subida[viaje] = conexion;
+        marcaSubida[viaje] = epoca;
+    }
+}
@@ -0,0 +1,168 @@
+package colectivo.negocio;
+
+import colectivo.aplicacion.Constantes;
+
+/**
+ * Esta clase junta en una sola lista de adyacencia las dos capas de aristas del grafo: la capa de colectivos (una
+ * arista por tramo y linea) y la capa a pie (las caminatas, en los dos sentidos). Cada arista guarda su modo
+ * (Constantes.COLECTIVO o Constantes.CAMINANDO) en un arreglo de bytes, y las aristas de cada parada quedan contiguas,
+ * primero las de colectivo y despues las caminatas, asi una busqueda puede recorrer una capa o las dos.
+ * Es inmutable, se arma una sola vez por grafo y se comparte entre consultas.
+ */
+final class GrafoMultimodal {
+
+    /**
+     * Inicio de las aristas de cada parada: van de inicio[p] a inicio[p + 1] - 1. Tiene n + 1 posiciones.
+     */
+    private final int[] inicio;
+
+    /**
+     * Primera caminata de cada parada: las aristas de colectivo de p van de inicio[p] a inicioCaminatas[p] - 1, y las
+     * caminatas de inicioCaminatas[p] a inicio[p + 1] - 1.
+     */
+    private final int[] inicioCaminatas;
+
+    /**
+     * Indice denso de la parada de destino de cada arista.
+     */
+    private final int[] destino;
+
+    /**
+     * Tiempo de cada arista en segundos.
+     */
+    private final int[] tiempo;
+
+    /**
+     * Modo de cada arista: Constantes.COLECTIVO o Constantes.CAMINANDO.
+     */
+    private final byte[] modo;
+
+    /**
+     * Linea de cada arista, o -1 para las caminatas y los tramos sin linea.
+     */
+    private final int[] linea;
+
+    /**
+     * Indice de la arista en su capa del MapaGrafo: la arista de colectivo o la caminata.
+     */
+    private final int[] original;
+
+    /**
+     * Constructor de la clase GrafoMultimodal, arma las dos capas a partir del grafo.
+     * @param mapaGrafo grafo de la red
+     */
+    GrafoMultimodal(MapaGrafo mapaGrafo) {
+        int n = mapaGrafo.cantidadParadas();
+        int cantidad = mapaGrafo.inicioAristas(n) + mapaGrafo.inicioCaminatas(n);
+        this.inicio = new int[n + 1];
+        this.inicioCaminatas = new int[n];
+        this.destino = new int[cantidad];
+        this.tiempo = new int[cantidad];
+        this.modo = new byte[cantidad];
+        this.linea = new int[cantidad];
+        this.original = new int[cantidad];
+
+        int arista = 0;
+        for (int p = 0; p < n; p++) {
+            inicio[p] = arista;
+            for (int a = mapaGrafo.inicioAristas(p); a < mapaGrafo.finAristas(p); a++) {
+                destino[arista] = mapaGrafo.destinoArista(a);
+                tiempo[arista] = mapaGrafo.tiempoArista(a);
+                modo[arista] = Constantes.COLECTIVO;
+                linea[arista] = mapaGrafo.lineaArista(a);
+                original[arista] = a;
+                arista++;
+            }
+            inicioCaminatas[p] = arista;
+            for (int c = mapaGrafo.inicioCaminatas(p); c < mapaGrafo.finCaminatas(p); c++) {
+                destino[arista] = mapaGrafo.destinoCaminata(c);
+                tiempo[arista] = mapaGrafo.tiempoCaminata(c);
+                modo[arista] = Constantes.CAMINANDO;
+                linea[arista] = -1;
+                original[arista] = c;
+                arista++;
+            }
+        }
+        inicio[n] = arista;
+    }
+
+    /**
+     * Obtiene la cantidad total de aristas de las dos capas.
+     * @return cantidad de aristas
+     */
+    int cantidadAristas() {
+        return destino.length;
+    }
+
+    /**
+     * Obtiene la primera arista de una parada.
+     * @param parada indice denso de la parada
+     * @return posicion de la primera arista
+     */
+    int inicio(int parada) {
+        return inicio[parada];
+    }
+
+    /**
+     * Obtiene la primera caminata de una parada, que es donde termina su capa de colectivos.
+     * @param parada indice denso de la parada
+     * @return posicion de la primera caminata
+     */
+    int inicioCaminatas(int parada) {
+        return inicioCaminatas[parada];
+    }
+
+    /**
+     * Obtiene la posicion siguiente a la ultima arista de una parada.
+     * @param parada indice denso de la parada
+     * @return fin (exclusivo) de las aristas de la parada
+     */
+    int fin(int parada) {
+        return inicio[parada + 1];
+    }
+
+    /**
+     * Obtiene la parada de destino de una arista.
+     * @param arista posicion de la arista
+     * @return indice denso de la parada de destino
+     */
+    int destino(int arista) {
+        return destino[arista];
+    }
+
+    /**
+     * Obtiene el tiempo de una arista.
+     * @param arista posicion de la arista
+     * @return tiempo en segundos
+     */
+    int tiempo(int arista) {
+        return tiempo[arista];
+    }
+
+    /**
+     * Obtiene el modo de una arista.
+     * @param arista posicion de la arista
+     * @return Constantes.COLECTIVO o Constantes.CAMINANDO
+     */
+    int modo(int arista) {
+        return modo[arista];
+    }
+
+    /**
+     * Obtiene la linea de una arista.
+     * @param arista posicion de la arista
+     * @return indice denso de la linea, o -1 si es una caminata o un tramo sin linea
+     */
+    int linea(int arista) {
+        return linea[arista];
+    }
+
+    /**
+     * Obtiene el indice de la arista en su capa del MapaGrafo.
+     * @param arista posicion de la arista
+     * @return la arista de colectivo o la caminata correspondiente
+     */
+    int original(int arista) {
+        return original[arista];
+    }
+}
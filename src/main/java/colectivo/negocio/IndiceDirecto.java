@@ -0,0 +1,193 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Tramo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase guarda lo que necesita el calculo directo para no recorrer las paradas de cada linea en cada consulta.
+ * Para cada parada, las lineas que pasan por ella con la ultima posicion en que pasan, ordenadas por linea; y para
+ * cada linea, su lista completa de paradas con el tramo en colectivo hasta la siguiente, los segundos acumulados y la
+ * cantidad de tramos que faltan hasta cada posicion.
+ * A diferencia del recorrido de la linea en MapaGrafo, que se corta en el primer tramo que falta, aca se guarda la
+ * lista entera, porque el calculo directo solo descarta un viaje si le falta un tramo entre la subida y la bajada.
+ * Es inmutable y se arma una sola vez por grafo.
+ */
+final class IndiceDirecto {
+
+    /**
+     * Inicio de las lineas de cada parada, con el mismo esquema que las aristas del grafo.
+     */
+    private final int[] inicioLineas;
+
+    /**
+     * Linea y ultima posicion en su lista de paradas de cada pasada, ordenadas por linea dentro de cada parada.
+     */
+    private final int[] lineaPasada;
+    private final int[] posicionPasada;
+
+    /**
+     * Tramo en colectivo desde cada posicion de cada linea hasta la siguiente, o null si no existe.
+     */
+    private final Tramo[][] tramos;
+
+    /**
+     * Segundos acumulados desde la cabecera hasta cada posicion de cada linea, sumando solo los tramos que existen.
+     */
+    private final int[][] acumulado;
+
+    /**
+     * Cantidad de tramos que faltan desde la cabecera hasta cada posicion de cada linea.
+     */
+    private final int[][] faltantes;
+
+    /**
+     * Constructor privado de la clase IndiceDirecto, el indice se arma con {@link #armar(MapaGrafo)}.
+     */
+    private IndiceDirecto(int[] inicioLineas, int[] lineaPasada, int[] posicionPasada, Tramo[][] tramos,
+                          int[][] acumulado, int[][] faltantes) {
+        this.inicioLineas = inicioLineas;
+        this.lineaPasada = lineaPasada;
+        this.posicionPasada = posicionPasada;
+        this.tramos = tramos;
+        this.acumulado = acumulado;
+        this.faltantes = faltantes;
+    }
+
+    /**
+     * Arma el indice a partir de las lineas y los tramos del grafo.
+     * @param mapaGrafo grafo de la red
+     * @return el indice
+     */
+    static IndiceDirecto armar(MapaGrafo mapaGrafo) {
+        int cantidadLineas = mapaGrafo.cantidadLineas();
+        int n = mapaGrafo.cantidadParadas();
+        Map<String, Tramo> tramosPorClave = mapaGrafo.getTramos();
+        Tramo[][] tramos = new Tramo[cantidadLineas][];
+        int[][] acumulado = new int[cantidadLineas][];
+        int[][] faltantes = new int[cantidadLineas][];
+
+        //Ultima posicion de cada linea en cada parada, por linea
+        int[][] ultimaPosicion = new int[cantidadLineas][];
+        int[] cantidadPorParada = new int[n];
+        for (int l = 0; l < cantidadLineas; l++) {
+            List<Parada> paradas = mapaGrafo.lineaEn(l).getParadas();
+            int largo = paradas.size();
+            tramos[l] = new Tramo[Math.max(0, largo - 1)];
+            acumulado[l] = new int[largo];
+            faltantes[l] = new int[largo];
+            for (int i = 0; i + 1 < largo; i++) {
+                String clave = paradas.get(i).getCodigo() + "-" + paradas.get(i + 1).getCodigo() + "-1";
+                Tramo tramo = tramosPorClave.get(clave);
+                tramos[l][i] = tramo;
+                acumulado[l][i + 1] = acumulado[l][i] + (tramo == null ? 0 : tramo.getTiempo());
+                faltantes[l][i + 1] = faltantes[l][i] + (tramo == null ? 1 : 0);
+            }
+
+            Map<Integer, Integer> ultima = new HashMap<>();
+            for (int i = 0; i < largo; i++) {
+                int parada = mapaGrafo.indiceDe(paradas.get(i).getCodigo());
+                if (parada != -1) {
+                    ultima.put(parada, i);
+                }
+            }
+            ultimaPosicion[l] = new int[ultima.size() * 2];
+            int k = 0;
+            for (Map.Entry<Integer, Integer> entrada : ultima.entrySet()) {
+                ultimaPosicion[l][k++] = entrada.getKey();
+                ultimaPosicion[l][k++] = entrada.getValue();
+                cantidadPorParada[entrada.getKey()]++;
+            }
+        }
+
+        //Las pasadas se agregan linea por linea, asi quedan ordenadas por linea dentro de cada parada
+        int[] inicioLineas = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            inicioLineas[i + 1] = inicioLineas[i] + cantidadPorParada[i];
+        }
+        int[] lineaPasada = new int[inicioLineas[n]];
+        int[] posicionPasada = new int[inicioLineas[n]];
+        int[] siguiente = Arrays.copyOf(inicioLineas, n);
+        for (int l = 0; l < cantidadLineas; l++) {
+            for (int k = 0; k < ultimaPosicion[l].length; k += 2) {
+                int lugar = siguiente[ultimaPosicion[l][k]]++;
+                lineaPasada[lugar] = l;
+                posicionPasada[lugar] = ultimaPosicion[l][k + 1];
+            }
+        }
+        return new IndiceDirecto(inicioLineas, lineaPasada, posicionPasada, tramos, acumulado, faltantes);
+    }
+
+    /**
+     * Obtiene la primera pasada de una parada.
+     * @param parada indice denso de la parada
+     * @return indice de la primera pasada
+     */
+    int inicioPasadas(int parada) {
+        return inicioLineas[parada];
+    }
+
+    /**
+     * Obtiene el fin (exclusivo) de las pasadas de una parada.
+     * @param parada indice denso de la parada
+     * @return indice siguiente a la ultima pasada
+     */
+    int finPasadas(int parada) {
+        return inicioLineas[parada + 1];
+    }
+
+    /**
+     * Obtiene la linea de una pasada.
+     * @param pasada indice de la pasada
+     * @return indice denso de la linea
+     */
+    int lineaPasada(int pasada) {
+        return lineaPasada[pasada];
+    }
+
+    /**
+     * Obtiene la ultima posicion de una pasada en la lista de paradas de su linea.
+     * @param pasada indice de la pasada
+     * @return posicion en la lista de paradas de la linea
+     */
+    int posicionPasada(int pasada) {
+        return posicionPasada[pasada];
+    }
+
+    /**
+     * Indica si existen todos los tramos en colectivo entre dos posiciones de una linea.
+     * @param linea indice denso de la linea
+     * @param desde posicion de subida
+     * @param hasta posicion de bajada
+     * @return true si no falta ningun tramo
+     */
+    boolean estaCompleto(int linea, int desde, int hasta) {
+        return faltantes[linea][hasta] == faltantes[linea][desde];
+    }
+
+    /**
+     * Obtiene los segundos en colectivo entre dos posiciones de una linea, con una resta de los acumulados. Solo es
+     * la duracion del viaje si estaCompleto devuelve true.
+     * @param linea indice denso de la linea
+     * @param desde posicion de subida
+     * @param hasta posicion de bajada
+     * @return segundos entre las dos posiciones
+     */
+    int segundos(int linea, int desde, int hasta) {
+        return acumulado[linea][hasta] - acumulado[linea][desde];
+    }
+
+    /**
+     * Obtiene el tramo en colectivo desde una posicion de una linea hasta la siguiente.
+     * @param linea indice denso de la linea
+     * @param posicion posicion en la lista de paradas de la linea
+     * @return el tramo, o null si no existe
+     */
+    Tramo tramo(int linea, int posicion) {
+        return tramos[linea][posicion];
+    }
+}
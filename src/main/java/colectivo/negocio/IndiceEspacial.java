@@ -0,0 +1,319 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase es un indice espacial de las paradas, para buscar las mas cercanas a un punto sin recorrer todas. Reparte
+ * las paradas en una grilla uniforme de latitud y longitud, con celdas de un tamano pensado para que haya pocas paradas
+ * en cada una; una consulta solo mira las celdas que caen dentro del radio buscado y despues filtra y ordena por la
+ * distancia exacta de Haversine.
+ * Es inmutable: agregar, cambiar o sacar una parada devuelve un indice nuevo que comparte todas las celdas con el
+ * anterior salvo las que cambiaron, asi las consultas en curso siguen usando el indice viejo. La grilla se fija al
+ * armar el indice; las paradas que despues quedan fuera de sus limites van a las celdas del borde.
+ */
+public final class IndiceEspacial {
+
+    /**
+     * Radio de la Tierra en kilometros, el mismo que usa CalculoCaminando.
+     */
+    private static final double RADIO_TIERRA = 6371;
+
+    /**
+     * Cantidad de paradas por celda que se busca al elegir el tamano de la grilla.
+     */
+    private static final int PARADAS_POR_CELDA = 2;
+
+    /**
+     * Latitud y longitud de la esquina sur oeste de la grilla.
+     */
+    private final double latitudMinima;
+    private final double longitudMinima;
+
+    /**
+     * Tamano de cada celda en grados de latitud y de longitud.
+     */
+    private final double altoCelda;
+    private final double anchoCelda;
+
+    /**
+     * Cantidad de filas (latitud) y columnas (longitud) de la grilla.
+     */
+    private final int filas;
+    private final int columnas;
+
+    /**
+     * Paradas de cada celda, por fila y columna (celda = fila * columnas + columna), o null si esta vacia. Los arreglos
+     * no se modifican nunca, se reemplazan.
+     */
+    private final Entrada[][] celdas;
+
+    /**
+     * Celda en la que esta cada parada, por codigo, para poder sacarla aunque sus coordenadas hayan cambiado.
+     */
+    private final Map<Integer, Integer> celdaPorCodigo;
+
+    /**
+     * Constructor de la clase IndiceEspacial, arma la grilla a partir de las paradas.
+     * @param paradas paradas a indexar
+     */
+    public IndiceEspacial(Collection<Parada> paradas) {
+        double latMin = Double.POSITIVE_INFINITY, latMax = Double.NEGATIVE_INFINITY;
+        double lonMin = Double.POSITIVE_INFINITY, lonMax = Double.NEGATIVE_INFINITY;
+        for (Parada parada : paradas) {
+            latMin = Math.min(latMin, parada.getLatitud());
+            latMax = Math.max(latMax, parada.getLatitud());
+            lonMin = Math.min(lonMin, parada.getLongitud());
+            lonMax = Math.max(lonMax, parada.getLongitud());
+        }
+        if (paradas.isEmpty()) {
+            latMin = latMax = lonMin = lonMax = 0;
+        }
+
+        //Celdas de igual tamano en kilometros: a la longitud se la estira segun la latitud media
+        double coseno = Math.max(0.01, Math.cos(Math.toRadians((latMin + latMax) / 2)));
+        double altoLat = Math.max(latMax - latMin, 1e-6);
+        double anchoLat = Math.max((lonMax - lonMin) * coseno, 1e-6);
+        int celdasBuscadas = Math.max(1, paradas.size() / PARADAS_POR_CELDA);
+        double alto = Math.sqrt(altoLat * anchoLat / celdasBuscadas);
+
+        this.latitudMinima = latMin;
+        this.longitudMinima = lonMin;
+        this.altoCelda = alto;
+        this.anchoCelda = alto / coseno;
+        this.filas = Math.max(1, (int) Math.ceil(altoLat / alto));
+        this.columnas = Math.max(1, (int) Math.ceil((lonMax - lonMin) / anchoCelda));
+        this.celdas = new Entrada[filas * columnas][];
+        this.celdaPorCodigo = new HashMap<>();
+
+        //Primero se cuentan las paradas de cada celda para armar arreglos justos
+        int[] cantidad = new int[celdas.length];
+        for (Parada parada : paradas) {
+            cantidad[celdaDe(parada.getLatitud(), parada.getLongitud())]++;
+        }
+        for (Parada parada : paradas) {
+            int celda = celdaDe(parada.getLatitud(), parada.getLongitud());
+            if (celdas[celda] == null) {
+                celdas[celda] = new Entrada[cantidad[celda]];
+                cantidad[celda] = 0;
+            }
+            celdas[celda][cantidad[celda]++] = new Entrada(parada);
+            celdaPorCodigo.put(parada.getCodigo(), celda);
+        }
+    }
+
+    /**
+     * Constructor que usan las modificaciones, con la misma grilla que otro indice.
+     */
+    private IndiceEspacial(IndiceEspacial base, Entrada[][] celdas, Map<Integer, Integer> celdaPorCodigo) {
+        this.latitudMinima = base.latitudMinima;
+        this.longitudMinima = base.longitudMinima;
+        this.altoCelda = base.altoCelda;
+        this.anchoCelda = base.anchoCelda;
+        this.filas = base.filas;
+        this.columnas = base.columnas;
+        this.celdas = celdas;
+        this.celdaPorCodigo = celdaPorCodigo;
+    }
+
+    /**
+     * Obtiene la cantidad de paradas del indice.
+     * @return cantidad de paradas
+     */
+    public int cantidadParadas() {
+        return celdaPorCodigo.size();
+    }
+
+    /**
+     * Busca las paradas que estan a menos de un radio de un punto.
+     * @param latitud latitud del punto
+     * @param longitud longitud del punto
+     * @param radioKm radio en kilometros
+     * @return paradas dentro del radio, de la mas cercana a la mas lejana
+     */
+    public List<Parada> buscarEnRadio(double latitud, double longitud, double radioKm) {
+        List<Entrada> encontradas = entradasEnRadio(latitud, longitud, radioKm);
+        List<Parada> paradas = new ArrayList<>(encontradas.size());
+        for (Entrada entrada : encontradas) {
+            paradas.add(entrada.parada);
+        }
+        return paradas;
+    }
+
+    /**
+     * Busca las paradas mas cercanas a un punto. Agranda el radio de busqueda al doble hasta juntar la cantidad
+     * pedida o cubrir todo el indice.
+     * @param latitud latitud del punto
+     * @param longitud longitud del punto
+     * @param cantidad cantidad de paradas buscadas
+     * @return hasta cantidad paradas, de la mas cercana a la mas lejana
+     */
+    public List<Parada> buscarCercanas(double latitud, double longitud, int cantidad) {
+        List<Parada> paradas = new ArrayList<>();
+        if (cantidad <= 0 || celdaPorCodigo.isEmpty()) {
+            return paradas;
+        }
+        int buscadas = Math.min(cantidad, celdaPorCodigo.size());
+        //Se empieza por el radio en que, con la densidad de la grilla, se esperan las paradas buscadas
+        double radio = Math.toRadians(altoCelda) * RADIO_TIERRA * Math.sqrt(buscadas);
+        List<Entrada> encontradas = entradasEnRadio(latitud, longitud, radio);
+        while (encontradas.size() < buscadas) {
+            radio *= 2;
+            encontradas = entradasEnRadio(latitud, longitud, radio);
+        }
+        for (int i = 0; i < buscadas; i++) {
+            paradas.add(encontradas.get(i).parada);
+        }
+        return paradas;
+    }
+
+    /**
+     * Devuelve un indice con la parada agregada, o con su posicion actualizada si ya estaba.
+     * @param parada parada a agregar o actualizar
+     * @return indice nuevo
+     */
+    public IndiceEspacial conParada(Parada parada) {
+        Entrada[][] nuevas = celdas.clone();
+        Map<Integer, Integer> nuevasCeldas = new HashMap<>(celdaPorCodigo);
+        Integer anterior = nuevasCeldas.get(parada.getCodigo());
+        if (anterior != null) {
+            nuevas[anterior] = quitar(nuevas[anterior], parada.getCodigo());
+        }
+        int celda = celdaDe(parada.getLatitud(), parada.getLongitud());
+        Entrada[] actuales = nuevas[celda];
+        Entrada[] agrandada = new Entrada[actuales == null ? 1 : actuales.length + 1];
+        if (actuales != null) {
+            System.arraycopy(actuales, 0, agrandada, 0, actuales.length);
+        }
+        agrandada[agrandada.length - 1] = new Entrada(parada);
+        nuevas[celda] = agrandada;
+        nuevasCeldas.put(parada.getCodigo(), celda);
+        return new IndiceEspacial(this, nuevas, nuevasCeldas);
+    }
+
+    /**
+     * Devuelve un indice sin la parada. Si no estaba, devuelve el mismo indice.
+     * @param parada parada a sacar
+     * @return indice nuevo
+     */
+    public IndiceEspacial sinParada(Parada parada) {
+        Integer anterior = celdaPorCodigo.get(parada.getCodigo());
+        if (anterior == null) {
+            return this;
+        }
+        Entrada[][] nuevas = celdas.clone();
+        nuevas[anterior] = quitar(nuevas[anterior], parada.getCodigo());
+        Map<Integer, Integer> nuevasCeldas = new HashMap<>(celdaPorCodigo);
+        nuevasCeldas.remove(parada.getCodigo());
+        return new IndiceEspacial(this, nuevas, nuevasCeldas);
+    }
+
+    /**
+     * Junta las paradas dentro del radio, recorriendo solo las celdas que lo pueden contener.
+     * @return paradas dentro del radio, de la mas cercana a la mas lejana
+     */
+    private List<Entrada> entradasEnRadio(double latitud, double longitud, double radioKm) {
+        List<Entrada> encontradas = new ArrayList<>();
+        double angulo = radioKm / RADIO_TIERRA;
+        double deltaLatitud = Math.toDegrees(angulo);
+        int filaDesde = fila(latitud - deltaLatitud);
+        int filaHasta = fila(latitud + deltaLatitud);
+        int columnaDesde = 0;
+        int columnaHasta = columnas - 1;
+        //La mayor diferencia de longitud dentro del radio es asin(sen(radio) / cos(latitud)), salvo cerca de los polos
+        double seno = Math.sin(Math.min(angulo, Math.PI / 2)) / Math.cos(Math.toRadians(latitud));
+        if (angulo < Math.PI / 2 && seno < 1) {
+            double deltaLongitud = Math.toDegrees(Math.asin(seno));
+            columnaDesde = columna(longitud - deltaLongitud);
+            columnaHasta = columna(longitud + deltaLongitud);
+        }
+        for (int f = filaDesde; f <= filaHasta; f++) {
+            for (int c = columnaDesde; c <= columnaHasta; c++) {
+                Entrada[] celda = celdas[f * columnas + c];
+                if (celda == null) {
+                    continue;
+                }
+                for (Entrada entrada : celda) {
+                    double distancia = CalculoCaminando.calcularHaversine(latitud, longitud, entrada.latitud,
+                            entrada.longitud);
+                    if (distancia <= radioKm) {
+                        encontradas.add(new Entrada(entrada, distancia));
+                    }
+                }
+            }
+        }
+        encontradas.sort(Comparator.comparingDouble(entrada -> entrada.distancia));
+        return encontradas;
+    }
+
+    /**
+     * Saca de una celda la parada con el codigo dado.
+     * @return celda nueva, o null si queda vacia
+     */
+    private static Entrada[] quitar(Entrada[] celda, int codigo) {
+        if (celda == null) {
+            return null;
+        }
+        List<Entrada> quedan = new ArrayList<>(celda.length);
+        for (Entrada entrada : celda) {
+            if (entrada.parada.getCodigo() != codigo) {
+                quedan.add(entrada);
+            }
+        }
+        return quedan.isEmpty() ? null : quedan.toArray(new Entrada[0]);
+    }
+
+    /**
+     * Obtiene la celda de un punto, llevando al borde los puntos fuera de la grilla.
+     */
+    private int celdaDe(double latitud, double longitud) {
+        return fila(latitud) * columnas + columna(longitud);
+    }
+
+    private int fila(double latitud) {
+        int fila = (int) Math.floor((latitud - latitudMinima) / altoCelda);
+        return Math.max(0, Math.min(filas - 1, fila));
+    }
+
+    private int columna(double longitud) {
+        int columna = (int) Math.floor((longitud - longitudMinima) / anchoCelda);
+        return Math.max(0, Math.min(columnas - 1, columna));
+    }
+
+    /**
+     * Parada guardada en una celda, con las coordenadas que tenia al indexarla.
+     */
+    private static final class Entrada {
+
+        private final Parada parada;
+
+        private final double latitud;
+
+        private final double longitud;
+
+        /**
+         * Distancia al punto consultado, solo se usa en las copias que devuelve una consulta.
+         */
+        private final double distancia;
+
+        private Entrada(Parada parada) {
+            this.parada = parada;
+            this.latitud = parada.getLatitud();
+            this.longitud = parada.getLongitud();
+            this.distancia = 0;
+        }
+
+        private Entrada(Entrada original, double distancia) {
+            this.parada = original.parada;
+            this.latitud = original.latitud;
+            this.longitud = original.longitud;
+            this.distancia = distancia;
+        }
+    }
+}
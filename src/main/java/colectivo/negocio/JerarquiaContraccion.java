@@ -0,0 +1,634 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Esta clase arma una jerarquia de contraccion sobre el grafo de tramos con los tiempos fijos de cada tramo, sin
+ * tener en cuenta los horarios. Las paradas se contraen de a una, de la menos importante a la mas importante, y
+ * cuando sacar una parada rompe un camino minimo entre sus vecinas se agrega un atajo con la suma de los tiempos.
+ * Despues, una consulta de tiempo minimo entre dos paradas es una busqueda bidireccional que solo sube en la
+ * jerarquia, y visita unas pocas paradas.
+ * El tiempo minimo sin esperas nunca es mayor al tiempo real de un viaje en colectivo, asi que sirve como cota
+ * inferior para podar las busquedas con horarios y para mostrar una estimacion rapida.
+ * La jerarquia es inmutable, esta atada al grafo con el que se armo y se puede guardar en un archivo para no
+ * volver a armarla al iniciar la aplicacion.
+ */
+public final class JerarquiaContraccion {
+
+    /**
+     * Valor que representa un tiempo infinito (paradas que no se conectan).
+     */
+    public static final int INFINITO = Integer.MAX_VALUE;
+
+    /**
+     * Numero que identifica a los archivos de jerarquia.
+     */
+    private static final int FORMATO = 0x43484331;
+
+    /**
+     * Cantidad maxima de paradas que cierra la busqueda de caminos alternativos al contraer una parada. Si no se
+     * encuentra un camino alternativo dentro de ese limite se agrega el atajo, que nunca es incorrecto.
+     */
+    private static final int LIMITE_TESTIGOS = 64;
+
+    /**
+     * Grafo con el que se armo la jerarquia.
+     */
+    private final MapaGrafo mapaGrafo;
+
+    /**
+     * Firma de los tramos del grafo, para saber si un archivo guardado corresponde a la red actual.
+     */
+    private final long firma;
+
+    /**
+     * Orden de contraccion de cada parada: mas alto es mas importante.
+     */
+    private final int[] rango;
+
+    /**
+     * Aristas hacia paradas mas importantes, en formato CSR: las de la parada p estan entre inicioSubidas[p] e
+     * inicioSubidas[p + 1].
+     */
+    private final int[] inicioSubidas;
+    private final int[] destinoSubida;
+    private final int[] tiempoSubida;
+
+    /**
+     * Aristas que llegan desde paradas mas importantes, para la busqueda hacia atras desde el destino, en formato CSR.
+     */
+    private final int[] inicioBajadas;
+    private final int[] origenBajada;
+    private final int[] tiempoBajada;
+
+    /**
+     * Espacio de trabajo de las consultas de cada hilo.
+     */
+    private static final ThreadLocal<EspacioJerarquia> POR_HILO = new ThreadLocal<>();
+
+    /**
+     * Arma la jerarquia contrayendo todas las paradas del grafo.
+     * @param mapaGrafo grafo inmutable de la red
+     */
+    public JerarquiaContraccion(MapaGrafo mapaGrafo) {
+        this.mapaGrafo = mapaGrafo;
+        this.firma = firmaDe(mapaGrafo);
+        int n = mapaGrafo.cantidadParadas();
+        this.rango = new int[n];
+
+        //Grafo que se va contrayendo, con el menor tiempo por cada par de paradas
+        ListaAristas[] salientes = new ListaAristas[n];
+        ListaAristas[] entrantes = new ListaAristas[n];
+        for (int p = 0; p < n; p++) {
+            salientes[p] = new ListaAristas();
+            entrantes[p] = new ListaAristas();
+        }
+        for (int u = 0; u < n; u++) {
+            for (int arista = mapaGrafo.inicioAristas(u); arista < mapaGrafo.finAristas(u); arista++) {
+                int v = mapaGrafo.destinoArista(arista);
+                if (v != u) {
+                    salientes[u].mejorar(v, mapaGrafo.tiempoArista(arista));
+                    entrantes[v].mejorar(u, mapaGrafo.tiempoArista(arista));
+                }
+            }
+        }
+
+        Contraccion contraccion = new Contraccion(n, salientes, entrantes);
+        int[][] subidas = new int[n][];
+        int[][] bajadas = new int[n][];
+        int[] vecinosContraidos = new int[n];
+        PriorityQueue<long[]> cola = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        for (int p = 0; p < n; p++) {
+            cola.add(new long[]{contraccion.importancia(p, vecinosContraidos[p]), p});
+        }
+
+        int orden = 0;
+        while (!cola.isEmpty()) {
+            int p = (int) cola.poll()[1];
+            //La importancia cambia a medida que se contraen las vecinas: si ya no es la menor, vuelve a la cola
+            long importancia = contraccion.importancia(p, vecinosContraidos[p]);
+            if (!cola.isEmpty() && importancia > cola.peek()[0]) {
+                cola.add(new long[]{importancia, p});
+                continue;
+            }
+            subidas[p] = salientes[p].copiar();
+            bajadas[p] = entrantes[p].copiar();
+            contraccion.contraer(p, true);
+            rango[p] = orden++;
+            for (int i = 0; i < salientes[p].cantidad; i++) {
+                vecinosContraidos[salientes[p].destino[i]]++;
+            }
+            for (int i = 0; i < entrantes[p].cantidad; i++) {
+                vecinosContraidos[entrantes[p].destino[i]]++;
+            }
+        }
+
+        //Pasamos las aristas hacia arriba a formato CSR
+        this.inicioSubidas = new int[n + 1];
+        this.inicioBajadas = new int[n + 1];
+        for (int p = 0; p < n; p++) {
+            inicioSubidas[p + 1] = inicioSubidas[p] + subidas[p].length / 2;
+            inicioBajadas[p + 1] = inicioBajadas[p] + bajadas[p].length / 2;
+        }
+        this.destinoSubida = new int[inicioSubidas[n]];
+        this.tiempoSubida = new int[inicioSubidas[n]];
+        this.origenBajada = new int[inicioBajadas[n]];
+        this.tiempoBajada = new int[inicioBajadas[n]];
+        for (int p = 0; p < n; p++) {
+            for (int i = 0; i < subidas[p].length / 2; i++) {
+                destinoSubida[inicioSubidas[p] + i] = subidas[p][2 * i];
+                tiempoSubida[inicioSubidas[p] + i] = subidas[p][2 * i + 1];
+            }
+            for (int i = 0; i < bajadas[p].length / 2; i++) {
+                origenBajada[inicioBajadas[p] + i] = bajadas[p][2 * i];
+                tiempoBajada[inicioBajadas[p] + i] = bajadas[p][2 * i + 1];
+            }
+        }
+    }
+
+    /**
+     * Constructor usado al leer una jerarquia guardada.
+     */
+    private JerarquiaContraccion(MapaGrafo mapaGrafo, long firma, int[] rango, int[] inicioSubidas,
+                                 int[] destinoSubida, int[] tiempoSubida, int[] inicioBajadas, int[] origenBajada,
+                                 int[] tiempoBajada) {
+        this.mapaGrafo = mapaGrafo;
+        this.firma = firma;
+        this.rango = rango;
+        this.inicioSubidas = inicioSubidas;
+        this.destinoSubida = destinoSubida;
+        this.tiempoSubida = tiempoSubida;
+        this.inicioBajadas = inicioBajadas;
+        this.origenBajada = origenBajada;
+        this.tiempoBajada = tiempoBajada;
+    }
+
+    /**
+     * Indica si la jerarquia se armo con un grafo dado.
+     * @param otroGrafo grafo a comparar
+     * @return true si es el mismo grafo
+     */
+    public boolean esDe(MapaGrafo otroGrafo) {
+        return mapaGrafo == otroGrafo;
+    }
+
+    /**
+     * Calcula el tiempo minimo entre dos paradas sumando solo los tiempos de los tramos, sin esperas.
+     * @param origen parada de origen
+     * @param destino parada de destino
+     * @return tiempo minimo en segundos, o INFINITO si no hay camino
+     */
+    public int tiempoMinimo(Parada origen, Parada destino) {
+        int desde = mapaGrafo.indiceDe(origen.getCodigo());
+        int hasta = mapaGrafo.indiceDe(destino.getCodigo());
+        if (desde == -1 || hasta == -1) {
+            return INFINITO;
+        }
+        return tiempoMinimo(desde, hasta);
+    }
+
+    /**
+     * Calcula el tiempo minimo entre dos paradas, por indice denso, con una busqueda hacia arriba desde cada una. El
+     * camino minimo siempre tiene una parada mas importante que todas las demas, a la que llegan las dos busquedas.
+     * Usa el espacio de trabajo del hilo, asi que deja de valer lo preparado con {@link #hacia(int)} en el mismo hilo.
+     * @param desde indice de la parada de origen
+     * @param hasta indice de la parada de destino
+     * @return tiempo minimo en segundos, o INFINITO si no hay camino
+     */
+    public int tiempoMinimo(int desde, int hasta) {
+        if (desde == hasta) {
+            return 0;
+        }
+        return hacia(hasta).desde(desde);
+    }
+
+    /**
+     * Prepara los tiempos minimos de muchas paradas hacia un mismo destino, como las cotas de A*. La busqueda hacia
+     * arriba desde el destino se hace una sola vez y sus tiempos quedan en el espacio de trabajo del hilo; despues cada
+     * parada solo hace su propia busqueda hacia arriba y la cruza con esos tiempos.
+     * Las cotas solo se pueden usar en el mismo hilo, hasta que ese hilo prepare otro destino.
+     * @param hasta indice de la parada de destino
+     * @return las cotas hacia el destino
+     */
+    CotasDestino hacia(int hasta) {
+        EspacioJerarquia espacio = EspacioJerarquia.delHilo(rango.length);
+        int epoca = espacio.nuevoDestino();
+        MonticuloIndexado cola = espacio.cola;
+        espacio.fijarAtras(hasta, 0);
+        cola.agregarOBajar(hasta, 0);
+
+        //Sin destino con que cortar, la busqueda sigue hasta agotar las paradas mas importantes que el destino
+        while (!cola.estaVacio()) {
+            int p = cola.sacarMinimo();
+            int tiempoP = espacio.atras(p);
+            for (int i = inicioBajadas[p]; i < inicioBajadas[p + 1]; i++) {
+                int v = origenBajada[i];
+                int nuevo = tiempoP + tiempoBajada[i];
+                if (nuevo < espacio.atras(v)) {
+                    espacio.fijarAtras(v, nuevo);
+                    cola.agregarOBajar(v, nuevo);
+                }
+            }
+        }
+        return new CotasDestino(espacio, epoca);
+    }
+
+    /**
+     * Tiempos minimos hacia un destino preparado con {@link #hacia(int)}.
+     */
+    final class CotasDestino {
+
+        private final EspacioJerarquia espacio;
+
+        /**
+         * Epoca del destino en el espacio de trabajo, para detectar si el hilo ya preparo otro.
+         */
+        private final int epoca;
+
+        private CotasDestino(EspacioJerarquia espacio, int epoca) {
+            this.espacio = espacio;
+            this.epoca = epoca;
+        }
+
+        /**
+         * Calcula el tiempo minimo desde una parada hasta el destino. La busqueda hacia arriba desde la parada se corta
+         * cuando su menor tiempo pendiente ya no puede mejorar el encontrado.
+         * @param desde indice de la parada de origen
+         * @return tiempo minimo en segundos, o INFINITO si no hay camino
+         */
+        int desde(int desde) {
+            if (espacio.epocaDestino != epoca) {
+                throw new IllegalStateException("El hilo ya preparo las cotas de otro destino");
+            }
+            espacio.nuevoOrigen();
+            MonticuloIndexado cola = espacio.cola;
+            espacio.fijarAdelante(desde, 0);
+            cola.agregarOBajar(desde, 0);
+
+            int mejor = INFINITO;
+            while (!cola.estaVacio() && cola.claveMinima() < mejor) {
+                int p = cola.sacarMinimo();
+                int tiempoP = espacio.adelante(p);
+                int tiempoAtras = espacio.atras(p);
+                if (tiempoAtras != INFINITO && tiempoP + tiempoAtras < mejor) {
+                    mejor = tiempoP + tiempoAtras;
+                }
+                for (int i = inicioSubidas[p]; i < inicioSubidas[p + 1]; i++) {
+                    int v = destinoSubida[i];
+                    int nuevo = tiempoP + tiempoSubida[i];
+                    if (nuevo < espacio.adelante(v)) {
+                        espacio.fijarAdelante(v, nuevo);
+                        cola.agregarOBajar(v, nuevo);
+                    }
+                }
+            }
+            return mejor;
+        }
+    }
+
+    /**
+     * Guarda la jerarquia en un archivo, junto con la firma de los tramos con los que se armo.
+     * @param archivo ruta del archivo
+     * @throws IOException si no se puede escribir el archivo
+     */
+    public void guardar(Path archivo) throws IOException {
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo)))) {
+            salida.writeInt(FORMATO);
+            salida.writeLong(firma);
+            escribir(salida, rango);
+            escribir(salida, inicioSubidas);
+            escribir(salida, destinoSubida);
+            escribir(salida, tiempoSubida);
+            escribir(salida, inicioBajadas);
+            escribir(salida, origenBajada);
+            escribir(salida, tiempoBajada);
+        }
+    }
+
+    /**
+     * Lee una jerarquia guardada, si el archivo existe y corresponde a los tramos del grafo.
+     * @param archivo ruta del archivo
+     * @param mapaGrafo grafo actual de la red
+     * @return la jerarquia leida, o null si no hay archivo o se armo con otros tramos
+     * @throws IOException si el archivo existe pero no se puede leer
+     */
+    public static JerarquiaContraccion cargar(Path archivo, MapaGrafo mapaGrafo) throws IOException {
+        if (!Files.isRegularFile(archivo)) {
+            return null;
+        }
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            if (entrada.readInt() != FORMATO) {
+                return null;
+            }
+            long firma = entrada.readLong();
+            if (firma != firmaDe(mapaGrafo)) {
+                return null;
+            }
+            int[] rango = leer(entrada);
+            if (rango.length != mapaGrafo.cantidadParadas()) {
+                return null;
+            }
+            return new JerarquiaContraccion(mapaGrafo, firma, rango, leer(entrada), leer(entrada), leer(entrada),
+                    leer(entrada), leer(entrada), leer(entrada));
+        }
+    }
+
+    /**
+     * Escribe un arreglo de enteros precedido por su largo.
+     */
+    private static void escribir(DataOutputStream salida, int[] arreglo) throws IOException {
+        salida.writeInt(arreglo.length);
+        for (int valor : arreglo) {
+            salida.writeInt(valor);
+        }
+    }
+
+    /**
+     * Lee un arreglo de enteros escrito con escribir.
+     */
+    private static int[] leer(DataInputStream entrada) throws IOException {
+        int[] arreglo = new int[entrada.readInt()];
+        for (int i = 0; i < arreglo.length; i++) {
+            arreglo[i] = entrada.readInt();
+        }
+        return arreglo;
+    }
+
+    /**
+     * Calcula una firma de los tramos del grafo a partir del codigo de las paradas y el tiempo de cada arista.
+     * @param mapaGrafo grafo de la red
+     * @return firma de los tramos
+     */
+    static long firmaDe(MapaGrafo mapaGrafo) {
+        long firma = mapaGrafo.cantidadParadas();
+        for (int u = 0; u < mapaGrafo.cantidadParadas(); u++) {
+            for (int arista = mapaGrafo.inicioAristas(u); arista < mapaGrafo.finAristas(u); arista++) {
+                firma = firma * 31 + mapaGrafo.paradaEn(u).getCodigo();
+                firma = firma * 31 + mapaGrafo.paradaEn(mapaGrafo.destinoArista(arista)).getCodigo();
+                firma = firma * 31 + mapaGrafo.tiempoArista(arista);
+            }
+        }
+        return firma;
+    }
+
+    /**
+     * Estado del grafo mientras se contrae, con la busqueda de caminos alternativos (testigos).
+     */
+    private static final class Contraccion {
+
+        private final ListaAristas[] salientes;
+        private final ListaAristas[] entrantes;
+        private final boolean[] contraida;
+
+        /**
+         * Tiempos de la busqueda de testigos, validos solo si la marca de la parada es la de la busqueda actual.
+         */
+        private final int[] tiempo;
+        private final int[] marca;
+        private int busqueda;
+
+        Contraccion(int n, ListaAristas[] salientes, ListaAristas[] entrantes) {
+            this.salientes = salientes;
+            this.entrantes = entrantes;
+            this.contraida = new boolean[n];
+            this.tiempo = new int[n];
+            this.marca = new int[n];
+        }
+
+        /**
+         * Calcula la importancia de una parada: atajos que habria que agregar menos aristas que se sacan, mas las
+         * vecinas ya contraidas para repartir la contraccion por toda la red.
+         */
+        long importancia(int p, int vecinosContraidos) {
+            int atajos = contraer(p, false);
+            return (long) atajos - salientes[p].cantidad - entrantes[p].cantidad + vecinosContraidos;
+        }
+
+        /**
+         * Contrae una parada, o solo cuenta los atajos que necesitaria.
+         * @param p parada a contraer
+         * @param aplicar true para agregar los atajos y sacar la parada del grafo
+         * @return cantidad de atajos
+         */
+        int contraer(int p, boolean aplicar) {
+            int atajos = 0;
+            ListaAristas salida = salientes[p];
+            ListaAristas entrada = entrantes[p];
+            int maximoSalida = 0;
+            for (int j = 0; j < salida.cantidad; j++) {
+                maximoSalida = Math.max(maximoSalida, salida.tiempo[j]);
+            }
+            for (int i = 0; i < entrada.cantidad; i++) {
+                int u = entrada.destino[i];
+                int tiempoEntrada = entrada.tiempo[i];
+                buscarTestigos(u, p, tiempoEntrada + maximoSalida);
+                for (int j = 0; j < salida.cantidad; j++) {
+                    int w = salida.destino[j];
+                    if (w == u) {
+                        continue;
+                    }
+                    int porP = tiempoEntrada + salida.tiempo[j];
+                    if (marca[w] == busqueda && tiempo[w] <= porP) {
+                        continue; //hay un camino igual o mas corto que no pasa por p
+                    }
+                    atajos++;
+                    if (aplicar) {
+                        salientes[u].mejorar(w, porP);
+                        entrantes[w].mejorar(u, porP);
+                    }
+                }
+            }
+            if (aplicar) {
+                contraida[p] = true;
+                for (int j = 0; j < salida.cantidad; j++) {
+                    entrantes[salida.destino[j]].quitar(p);
+                }
+                for (int i = 0; i < entrada.cantidad; i++) {
+                    salientes[entrada.destino[i]].quitar(p);
+                }
+            }
+            return atajos;
+        }
+
+        /**
+         * Dijkstra acotado desde una parada sin pasar por la parada que se contrae.
+         */
+        private void buscarTestigos(int origen, int evitada, int limite) {
+            busqueda++;
+            PriorityQueue<long[]> cola = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+            tiempo[origen] = 0;
+            marca[origen] = busqueda;
+            cola.add(new long[]{0, origen});
+            int cerradas = 0;
+            while (!cola.isEmpty() && cerradas < LIMITE_TESTIGOS) {
+                long[] nodo = cola.poll();
+                int u = (int) nodo[1];
+                if (nodo[0] > tiempo[u]) {
+                    continue;
+                }
+                if (nodo[0] > limite) {
+                    break;
+                }
+                cerradas++;
+                ListaAristas salida = salientes[u];
+                for (int j = 0; j < salida.cantidad; j++) {
+                    int v = salida.destino[j];
+                    if (v == evitada || contraida[v]) {
+                        continue;
+                    }
+                    int nuevo = tiempo[u] + salida.tiempo[j];
+                    if (marca[v] != busqueda || nuevo < tiempo[v]) {
+                        tiempo[v] = nuevo;
+                        marca[v] = busqueda;
+                        cola.add(new long[]{nuevo, v});
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lista de aristas de una parada mientras se contrae el grafo, con a lo sumo una arista por parada vecina.
+     */
+    private static final class ListaAristas {
+
+        private int[] destino = new int[4];
+        private int[] tiempo = new int[4];
+        private int cantidad;
+
+        /**
+         * Agrega una arista hacia una parada, o baja su tiempo si ya existe con un tiempo mayor.
+         */
+        void mejorar(int vecina, int nuevoTiempo) {
+            for (int i = 0; i < cantidad; i++) {
+                if (destino[i] == vecina) {
+                    tiempo[i] = Math.min(tiempo[i], nuevoTiempo);
+                    return;
+                }
+            }
+            if (cantidad == destino.length) {
+                destino = Arrays.copyOf(destino, cantidad * 2);
+                tiempo = Arrays.copyOf(tiempo, cantidad * 2);
+            }
+            destino[cantidad] = vecina;
+            tiempo[cantidad] = nuevoTiempo;
+            cantidad++;
+        }
+
+        /**
+         * Saca la arista hacia una parada, si existe.
+         */
+        void quitar(int vecina) {
+            for (int i = 0; i < cantidad; i++) {
+                if (destino[i] == vecina) {
+                    cantidad--;
+                    destino[i] = destino[cantidad];
+                    tiempo[i] = tiempo[cantidad];
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Copia las aristas como pares (vecina, tiempo).
+         */
+        int[] copiar() {
+            int[] pares = new int[cantidad * 2];
+            for (int i = 0; i < cantidad; i++) {
+                pares[2 * i] = destino[i];
+                pares[2 * i + 1] = tiempo[i];
+            }
+            return pares;
+        }
+    }
+
+    /**
+     * Tiempos de las busquedas hacia arriba de las consultas, con el mismo esquema de epocas que EspacioBusqueda: los
+     * tiempos hacia el destino valen mientras no cambie la epoca del destino, y los tiempos desde cada parada mientras
+     * no cambie la epoca del origen. Hay uno por hilo, asi que una consulta no crea arreglos del tamano de la red.
+     */
+    private static final class EspacioJerarquia {
+
+        private final int[] adelante;
+        private final int[] marcaAdelante;
+        private final int[] atras;
+        private final int[] marcaAtras;
+        private final MonticuloIndexado cola;
+        private int epocaOrigen;
+        private int epocaDestino;
+
+        private EspacioJerarquia(int capacidad) {
+            this.adelante = new int[capacidad];
+            this.marcaAdelante = new int[capacidad];
+            this.atras = new int[capacidad];
+            this.marcaAtras = new int[capacidad];
+            this.cola = new MonticuloIndexado(capacidad);
+        }
+
+        /**
+         * Obtiene el espacio del hilo actual, creandolo la primera vez o si la red crecio.
+         */
+        static EspacioJerarquia delHilo(int cantidadParadas) {
+            EspacioJerarquia espacio = POR_HILO.get();
+            if (espacio == null || espacio.adelante.length < cantidadParadas) {
+                espacio = new EspacioJerarquia(cantidadParadas);
+                POR_HILO.set(espacio);
+            }
+            return espacio;
+        }
+
+        /**
+         * Empieza la busqueda hacia atras de un destino nuevo.
+         * @return la epoca del destino
+         */
+        int nuevoDestino() {
+            cola.limpiar();
+            epocaDestino++;
+            if (epocaDestino == Integer.MAX_VALUE) {
+                Arrays.fill(marcaAtras, 0);
+                epocaDestino = 1;
+            }
+            return epocaDestino;
+        }
+
+        /**
+         * Empieza la busqueda hacia adelante desde una parada nueva.
+         */
+        void nuevoOrigen() {
+            cola.limpiar();
+            epocaOrigen++;
+            if (epocaOrigen == Integer.MAX_VALUE) {
+                Arrays.fill(marcaAdelante, 0);
+                epocaOrigen = 1;
+            }
+        }
+
+        int adelante(int parada) {
+            return marcaAdelante[parada] == epocaOrigen ? adelante[parada] : INFINITO;
+        }
+
+        void fijarAdelante(int parada, int tiempo) {
+            adelante[parada] = tiempo;
+            marcaAdelante[parada] = epocaOrigen;
+        }
+
+        int atras(int parada) {
+            return marcaAtras[parada] == epocaDestino ? atras[parada] : INFINITO;
+        }
+
+        void fijarAtras(int parada, int tiempo) {
+            atras[parada] = tiempo;
+            marcaAtras[parada] = epocaDestino;
+        }
+    }
+}
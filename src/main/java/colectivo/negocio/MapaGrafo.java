@@ -1,48 +1,222 @@
 package colectivo.negocio;
 
+import colectivo.aplicacion.Constantes;
+import colectivo.modelo.Linea;
 import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
 import colectivo.modelo.Tramo;
 
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Esta clase representa a la estructura de datos antes de calcular, convierte los Map planos en una red donde las
  * paradas conoces a sus vecinos parada. Transforma los mapas del servicio en uan lista de adyacencia. Esta es clave
  * para que "Dijkstra" funcione, ya que necesita conocer las conexiones entre las paradas para calcular el camino más
  * corto.
+ * El grafo es inmutable: se construye una sola vez por cada foto de la red (al cargar los datos o cuando cambia algun
+ * tramo) y los algoritmos solo lo toman prestado, sin reconstruirlo en cada consulta.
+ * Ademas de la lista de adyacencia, el grafo guarda una representacion compacta por filas (CSR): las paradas se
+ * numeran con indices densos de 0 a n-1 y las aristas (tramos en colectivo) de cada parada quedan contiguas en arreglos
+ * de enteros, asi relajar una arista es recorrer arreglos primitivos en orden, sin mapas ni objetos intermedios.
+ * Tambien guarda el recorrido de cada linea como secuencia de indices de parada con el tiempo acumulado desde la
+ * cabecera, que es lo que necesitan los algoritmos que recorren las lineas en vez de las aristas (por ejemplo RAPTOR).
  */
-public class MapaGrafo {
+public final class MapaGrafo {
 
     /**
      * Mapa de adyacencias, donde la clave es el identificador de la parada y el valor es una lista de tramos que
      * conectan esa parada con otras paradas.
      */
-    private Map<Integer, List<Tramo>> adyacencias;
+    private final Map<Integer, List<Tramo>> adyacencias;
 
     /**
-     * Constructor de la clase MapaGrafo, inicializa el mapa de adyacencias como un HashMap vacío.
+     * Paradas que aparecen en algun tramo, donde la clave es el codigo de la parada y el valor el objeto Parada.
      */
-    public MapaGrafo() {
-        this.adyacencias = new HashMap<>();
-    }
+    private final Map<Integer, Parada> paradas;
+
+    /**
+     * Copia de los tramos con los que se construyo el grafo, para los algoritmos que todavia trabajan con el mapa.
+     */
+    private final Map<String, Tramo> tramos;
+
+    /**
+     * Paradas ordenadas por codigo, la posicion en el arreglo es el indice denso de la parada.
+     */
+    private final Parada[] paradasPorIndice;
+
+    /**
+     * Indice denso de cada parada, donde la clave es el codigo de la parada.
+     */
+    private final Map<Integer, Integer> indicePorCodigo;
+
+    /**
+     * Lineas que recorren algun tramo del grafo, la posicion en el arreglo es el indice denso de la linea.
+     */
+    private final Linea[] lineas;
+
+    /**
+     * Indice de tramo a lineas: para cada tramo en colectivo, las lineas que lo recorren. Se arma una sola vez al
+     * construir el grafo recorriendo las paradas consecutivas de cada linea, y se consulta en O(1).
+     */
+    private final Map<Tramo, List<Linea>> lineasPorTramo;
+
+    /**
+     * Inicio de las aristas de cada parada: las aristas de la parada i son las que van de inicioAristas[i] a
+     * inicioAristas[i + 1] - 1. Tiene n + 1 posiciones.
+     */
+    private final int[] inicioAristas;
+
+    /**
+     * Indice denso de la parada de destino de cada arista.
+     */
+    private final int[] destinos;
+
+    /**
+     * Tiempo de viaje en segundos de cada arista.
+     */
+    private final int[] tiemposViaje;
+
+    /**
+     * Indice denso de la linea que recorre cada arista, o -1 si ninguna linea pasa por el tramo. Si varias lineas
+     * recorren el mismo tramo, hay una arista por cada linea.
+     */
+    private final int[] lineaArista;
+
+    /**
+     * Tramo original de cada arista, solo se usa para reconstruir el recorrido.
+     */
+    private final Tramo[] tramoArista;
+
+    /**
+     * Posicion de la parada de inicio de cada arista dentro del recorrido de su linea, o -1 si la arista no tiene
+     * linea o quedo fuera del recorrido utilizable de la linea.
+     */
+    private final int[] posicionArista;
+
+    /**
+     * Recorrido de cada linea: indices densos de sus paradas en orden. El recorrido se corta en la primera parada
+     * a la que no se llega por un tramo en colectivo.
+     */
+    private final int[][] paradasDeLinea;
+
+    /**
+     * Segundos acumulados desde la cabecera hasta cada posicion del recorrido de cada linea.
+     */
+    private final int[][] acumuladoDeLinea;
+
+    /**
+     * Tramo que une cada posicion del recorrido de una linea con la siguiente.
+     */
+    private final Tramo[][] tramosDeLinea;
+
+    /**
+     * Inicio de las pasadas de linea de cada parada, con el mismo esquema que inicioAristas: las pasadas de la parada
+     * i van de inicioPasadas[i] a inicioPasadas[i + 1] - 1.
+     */
+    private final int[] inicioPasadas;
 
     /**
-     * Construye el grafo a partir de paradas y tramos. para cada parada, se inicializa una lista vacia en el mapa de
-     * adyacencias tomando el codigo de la parada como clave. Luego, se recorren los tramos y se agregan a la lista de
-     * adyacencias de la parada de inicio del tramo, creando asi las conexiones entre las paradas.
-     * @param paradas mapa de paradas disponibles, donde la clave es el identificador de la parada
-     *               y el valor es el objeto Parada
+     * Linea de cada pasada por una parada.
+     */
+    private final int[] lineaPasada;
+
+    /**
+     * Posicion de la parada dentro del recorrido de la linea de cada pasada.
+     */
+    private final int[] posicionPasada;
+
+    /**
+     * Inicio de las caminatas de cada parada, con el mismo esquema que inicioAristas. Las caminatas son los tramos a
+     * pie, que se pueden hacer en los dos sentidos.
+     */
+    private final int[] inicioCaminatas;
+
+    /**
+     * Indice denso de la parada a la que se llega con cada caminata.
+     */
+    private final int[] destinoCaminata;
+
+    /**
+     * Segundos que se tarda en cada caminata.
+     */
+    private final int[] tiempoCaminata;
+
+    /**
+     * Indice denso de la parada de origen de cada arista.
+     */
+    private final int[] origenes;
+
+    /**
+     * Inicio de las aristas que llegan a cada parada (adyacencia inversa), con el mismo esquema que inicioAristas:
+     * las aristas que llegan a la parada i son aristaEntrante[inicioEntrantes[i]] a
+     * aristaEntrante[inicioEntrantes[i + 1] - 1].
+     */
+    private final int[] inicioEntrantes;
+
+    /**
+     * Indice, en los arreglos de aristas, de cada arista entrante.
+     */
+    private final int[] aristaEntrante;
+
+    /**
+     * Mayor velocidad en linea recta (kilometros por segundo) de las aristas en colectivo, es decir, la distancia
+     * entre las paradas del tramo dividida por su tiempo. Ningun viaje puede acercarse al destino mas rapido que esto,
+     * por eso sirve de cota para A*. Es infinita si alguna arista tarda 0 segundos entre paradas distintas.
+     */
+    private final double velocidadMaxima;
+
+    /**
+     * Tabla de conexiones de cada dia (posiciones 1 a 7, y en la 0 la tabla vacia de los dias fuera de rango), se arma
+     * la primera vez que se pide. Si dos consultas la arman a la vez, las dos tablas son iguales y cualquiera sirve,
+     * porque la tabla solo tiene campos final.
+     */
+    private final TablaConexiones[] conexionesPorDia = new TablaConexiones[8];
+
+    /**
+     * Tabla de viajes de cada dia (posiciones 1 a 7, y en la 0 la de los dias fuera de rango), se arma la primera vez
+     * que se pide, con el mismo criterio que las tablas de conexiones.
+     */
+    private final TablaViajes[] viajesPorDia = new TablaViajes[8];
+
+    /**
+     * Indice de lineas por parada para el calculo directo, se arma la primera vez que se pide con el mismo criterio
+     * que las tablas de conexiones.
+     */
+    private IndiceDirecto indiceDirecto;
+
+    /**
+     * Capas de colectivo y a pie juntas, para las busquedas multimodales. Se arma la primera vez que se pide, con el
+     * mismo criterio que las tablas de conexiones.
+     */
+    private GrafoMultimodal multimodal;
+
+    /**
+     * Constructor de la clase MapaGrafo, construye el grafo a partir de los tramos. Primero se extraen las paradas de
+     * los tramos, para cada parada se inicializa una lista vacia en el mapa de adyacencias tomando el codigo de la
+     * parada como clave. Luego, se recorren los tramos y se agregan a la lista de adyacencias de la parada de inicio
+     * del tramo, creando asi las conexiones entre las paradas.
      * @param tramos mapa de tramos disponibles, donde la clave es el identificador del tramo y el valor es el
      *              objeto Tramo
      */
-    public void construirGrafo(Map<Integer, Parada> paradas, Map<String, Tramo> tramos) {
+    public MapaGrafo(Map<String, Tramo> tramos) {
+        this.tramos = Collections.unmodifiableMap(new LinkedHashMap<>(tramos));
+        this.paradas = Collections.unmodifiableMap(extraerParadaTramo(tramos));
+
+        Map<Integer, List<Tramo>> lista = new HashMap<>();
 
         //Inicializar el mapa de adyacencias con las paradas
         for (Integer id : paradas.keySet()) {
-            adyacencias.put(id, new ArrayList<>());
+            lista.put(id, new ArrayList<>());
         }
 
         //Llenar el mapa de adyacencias con los tramos
@@ -50,18 +224,315 @@ public class MapaGrafo {
 
             //Esto es para que Dijkstra muestre recorridos en colectivo y no A PIE, es mas que nada para practica
             if (tramo.getTipo() == 1) {
-                if (adyacencias.containsKey(tramo.getInicio().getCodigo())) {
-                    adyacencias.get(tramo.getInicio().getCodigo()).add(tramo);
+                lista.get(tramo.getInicio().getCodigo()).add(tramo);
+            }
+        }
+
+        //Congelamos las listas para que nadie modifique el grafo mientras se comparte entre consultas
+        for (Map.Entry<Integer, List<Tramo>> entrada : lista.entrySet()) {
+            entrada.setValue(Collections.unmodifiableList(entrada.getValue()));
+        }
+        this.adyacencias = Collections.unmodifiableMap(lista);
+
+        //Numeramos las paradas con indices densos, ordenadas por codigo para que la numeracion sea estable
+        this.paradasPorIndice = paradas.values().toArray(new Parada[0]);
+        Arrays.sort(paradasPorIndice, (a, b) -> Integer.compare(a.getCodigo(), b.getCodigo()));
+        Map<Integer, Integer> indices = new HashMap<>();
+        for (int i = 0; i < paradasPorIndice.length; i++) {
+            indices.put(paradasPorIndice[i].getCodigo(), i);
+        }
+        this.indicePorCodigo = Collections.unmodifiableMap(indices);
+
+        //Numeramos las lineas que pasan por las paradas del grafo
+        Map<Linea, Integer> indiceLinea = new LinkedHashMap<>();
+        for (Parada parada : paradasPorIndice) {
+            for (Linea linea : parada.getLineas()) {
+                indiceLinea.putIfAbsent(linea, indiceLinea.size());
+            }
+        }
+        this.lineas = indiceLinea.keySet().toArray(new Linea[0]);
+
+        //Dejamos armadas las tablas de salidas de cada linea para que ninguna consulta pague ese costo
+        for (Linea linea : lineas) {
+            linea.obtenerSalidasPorDia(1);
+        }
+
+        this.lineasPorTramo = indexarLineasPorTramo(lineas);
+
+        //Armamos los arreglos CSR a partir de la lista de adyacencia, con una arista por cada linea del tramo
+        int cantidadAristas = 0;
+        for (List<Tramo> salientes : adyacencias.values()) {
+            for (Tramo tramo : salientes) {
+                cantidadAristas += Math.max(1, obtenerLineasDelTramo(tramo).size());
+            }
+        }
+        this.inicioAristas = new int[paradasPorIndice.length + 1];
+        this.destinos = new int[cantidadAristas];
+        this.tiemposViaje = new int[cantidadAristas];
+        this.lineaArista = new int[cantidadAristas];
+        this.tramoArista = new Tramo[cantidadAristas];
+
+        int arista = 0;
+        for (int i = 0; i < paradasPorIndice.length; i++) {
+            inicioAristas[i] = arista;
+            for (Tramo tramo : adyacencias.get(paradasPorIndice[i].getCodigo())) {
+                List<Linea> lineasDelTramo = obtenerLineasDelTramo(tramo);
+                for (int l = 0; l < Math.max(1, lineasDelTramo.size()); l++) {
+                    destinos[arista] = indicePorCodigo.get(tramo.getFin().getCodigo());
+                    tiemposViaje[arista] = tramo.getTiempo();
+                    lineaArista[arista] = lineasDelTramo.isEmpty() ? -1 : indiceLinea.get(lineasDelTramo.get(l));
+                    tramoArista[arista] = tramo;
+                    arista++;
+                }
+            }
+        }
+        inicioAristas[paradasPorIndice.length] = arista;
+
+        //Adyacencia inversa: para cada parada, las aristas que llegan a ella
+        this.origenes = new int[arista];
+        for (int i = 0; i < paradasPorIndice.length; i++) {
+            Arrays.fill(origenes, inicioAristas[i], inicioAristas[i + 1], i);
+        }
+        this.inicioEntrantes = new int[paradasPorIndice.length + 1];
+        for (int a = 0; a < arista; a++) {
+            inicioEntrantes[destinos[a] + 1]++;
+        }
+        for (int i = 0; i < paradasPorIndice.length; i++) {
+            inicioEntrantes[i + 1] += inicioEntrantes[i];
+        }
+        this.aristaEntrante = new int[arista];
+        int[] siguienteEntrante = Arrays.copyOf(inicioEntrantes, paradasPorIndice.length);
+        for (int a = 0; a < arista; a++) {
+            aristaEntrante[siguienteEntrante[destinos[a]]++] = a;
+        }
+
+        double velocidad = 0;
+        for (int a = 0; a < arista; a++) {
+            double distancia = CalculoCaminando.calcularHaversine(tramoArista[a].getInicio(), tramoArista[a].getFin());
+            if (tiemposViaje[a] > 0) {
+                velocidad = Math.max(velocidad, distancia / tiemposViaje[a]);
+            } else if (distancia > 0) {
+                velocidad = Double.POSITIVE_INFINITY;
+            }
+        }
+        this.velocidadMaxima = velocidad;
+
+        //Armamos las caminatas: cada tramo a pie se puede recorrer en los dos sentidos. Tambien se suman las paradas
+        //que cada parada declara como cercanas, con el tiempo caminando en linea recta, si no hay un tramo a pie
+        List<int[]> caminatas = new ArrayList<>();
+        Set<Long> paresCaminata = new HashSet<>();
+        for (Tramo tramo : tramos.values()) {
+            if (tramo.getTipo() == Constantes.CAMINANDO) {
+                int inicio = indicePorCodigo.get(tramo.getInicio().getCodigo());
+                int fin = indicePorCodigo.get(tramo.getFin().getCodigo());
+                paresCaminata.add(clavePar(Math.min(inicio, fin), Math.max(inicio, fin)));
+                caminatas.add(new int[]{inicio, fin, tramo.getTiempo()});
+            }
+        }
+        for (int i = 0; i < paradasPorIndice.length; i++) {
+            for (Parada cercana : paradasPorIndice[i].getParadasCaminando()) {
+                Integer j = indicePorCodigo.get(cercana.getCodigo());
+                if (j != null) {
+                    agregarCaminata(caminatas, paresCaminata, i, j,
+                            CalculoCaminando.segundosCaminando(paradasPorIndice[i], cercana));
                 }
             }
+        }
+        this.inicioCaminatas = new int[paradasPorIndice.length + 1];
+        for (int[] caminata : caminatas) {
+            inicioCaminatas[caminata[0] + 1]++;
+            inicioCaminatas[caminata[1] + 1]++;
+        }
+        for (int i = 0; i < paradasPorIndice.length; i++) {
+            inicioCaminatas[i + 1] += inicioCaminatas[i];
+        }
+        this.destinoCaminata = new int[inicioCaminatas[paradasPorIndice.length]];
+        this.tiempoCaminata = new int[destinoCaminata.length];
+        int[] siguienteCaminata = Arrays.copyOf(inicioCaminatas, paradasPorIndice.length);
+        for (int[] caminata : caminatas) {
+            int inicio = caminata[0];
+            int fin = caminata[1];
+            destinoCaminata[siguienteCaminata[inicio]] = fin;
+            tiempoCaminata[siguienteCaminata[inicio]++] = caminata[2];
+            destinoCaminata[siguienteCaminata[fin]] = inicio;
+            tiempoCaminata[siguienteCaminata[fin]++] = caminata[2];
+        }
 
-            //
-            //if (adyacencias.containsKey(tramo.getInicio().getCodigo())) {
-              //  adyacencias.get(tramo.getInicio().getCodigo()).add(tramo);
-            //}
+        //Armamos el recorrido de cada linea sobre los indices densos, con los tiempos acumulados desde la cabecera
+        this.paradasDeLinea = new int[lineas.length][];
+        this.acumuladoDeLinea = new int[lineas.length][];
+        this.tramosDeLinea = new Tramo[lineas.length][];
+        int cantidadPasadas = 0;
+        for (int l = 0; l < lineas.length; l++) {
+            armarRecorridoDeLinea(l);
+            cantidadPasadas += paradasDeLinea[l].length;
+        }
+
+        //Cada arista de colectivo sabe en que posicion del recorrido de su linea esta, para tomar la hora de paso del
+        //viaje por esa parada y no la de la cabecera
+        this.posicionArista = new int[destinos.length];
+        Arrays.fill(posicionArista, -1);
+        for (int l = 0; l < lineas.length; l++) {
+            for (int pos = 0; pos < paradasDeLinea[l].length - 1; pos++) {
+                int desde = paradasDeLinea[l][pos];
+                for (int a = inicioAristas[desde]; a < inicioAristas[desde + 1]; a++) {
+                    if (destinos[a] == paradasDeLinea[l][pos + 1] && lineaArista[a] == l && posicionArista[a] == -1) {
+                        posicionArista[a] = pos;
+                        break;
+                    }
+                }
+            }
+        }
+
+        //Y el indice inverso: por cada parada, las lineas que pasan y en que posicion de su recorrido
+        this.inicioPasadas = new int[paradasPorIndice.length + 1];
+        this.lineaPasada = new int[cantidadPasadas];
+        this.posicionPasada = new int[cantidadPasadas];
+        for (int[] recorrido : paradasDeLinea) {
+            for (int parada : recorrido) {
+                inicioPasadas[parada + 1]++;
+            }
+        }
+        for (int i = 0; i < paradasPorIndice.length; i++) {
+            inicioPasadas[i + 1] += inicioPasadas[i];
+        }
+        int[] siguiente = Arrays.copyOf(inicioPasadas, paradasPorIndice.length);
+        for (int l = 0; l < lineas.length; l++) {
+            for (int pos = 0; pos < paradasDeLinea[l].length; pos++) {
+                int pasada = siguiente[paradasDeLinea[l][pos]]++;
+                lineaPasada[pasada] = l;
+                posicionPasada[pasada] = pos;
+            }
         }
     }
 
+    /**
+     * Agrega una caminata entre dos paradas cercanas, salvo que ya haya una entre las mismas paradas (en cualquier
+     * sentido).
+     * @param caminatas caminatas agregadas, como (parada, parada, segundos)
+     * @param pares pares de paradas que ya tienen caminata
+     * @param a indice denso de una parada
+     * @param b indice denso de la otra parada
+     * @param segundos tiempo caminando
+     */
+    private static void agregarCaminata(List<int[]> caminatas, Set<Long> pares, int a, int b, int segundos) {
+        if (a != b && pares.add(clavePar(Math.min(a, b), Math.max(a, b)))) {
+            caminatas.add(new int[]{a, b, segundos});
+        }
+    }
+
+    /**
+     * Arma el recorrido de una linea: recorre sus paradas en orden y acumula el tiempo de cada tramo en colectivo.
+     * Si una parada no esta en el grafo o no hay tramo hasta la siguiente, el recorrido se corta ahi, igual que hace
+     * el calculo directo cuando le falta un tramo.
+     * @param l indice denso de la linea
+     */
+    private void armarRecorridoDeLinea(int l) {
+        List<Parada> paradasLinea = lineas[l].getParadas();
+        int[] recorrido = new int[paradasLinea.size()];
+        int[] acumulado = new int[paradasLinea.size()];
+        Tramo[] tramosLinea = new Tramo[paradasLinea.size()];
+        int largo = 0;
+
+        for (int i = 0; i < paradasLinea.size(); i++) {
+            int parada = indiceDe(paradasLinea.get(i).getCodigo());
+            if (parada == -1) {
+                break;
+            }
+            if (largo > 0) {
+                Tramo tramo = buscarArista(recorrido[largo - 1], parada, l);
+                if (tramo == null) {
+                    break;
+                }
+                tramosLinea[largo - 1] = tramo;
+                acumulado[largo] = acumulado[largo - 1] + tramo.getTiempo();
+            }
+            recorrido[largo++] = parada;
+        }
+        if (largo < 2) {
+            largo = 0;
+        }
+        paradasDeLinea[l] = Arrays.copyOf(recorrido, largo);
+        acumuladoDeLinea[l] = Arrays.copyOf(acumulado, largo);
+        tramosDeLinea[l] = Arrays.copyOf(tramosLinea, Math.max(0, largo - 1));
+    }
+
+    /**
+     * Busca entre las aristas de una parada la que llega a otra parada recorrida por una linea dada.
+     * @param desde indice de la parada de inicio
+     * @param hasta indice de la parada de fin
+     * @param linea indice de la linea
+     * @return el tramo de la arista, o null si no existe
+     */
+    private Tramo buscarArista(int desde, int hasta, int linea) {
+        for (int arista = inicioAristas[desde]; arista < inicioAristas[desde + 1]; arista++) {
+            if (destinos[arista] == hasta && lineaArista[arista] == linea) {
+                return tramoArista[arista];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Arma el indice de tramo a lineas. Primero se indexan los tramos en colectivo por su par de paradas, y luego se
+     * recorren una sola vez las paradas consecutivas de cada linea, agregando la linea a la lista del tramo que une
+     * cada par. Asi el costo es proporcional a la cantidad total de paradas de las lineas.
+     * @param lineas lineas de la red
+     * @return mapa de solo lectura donde la clave es el tramo y el valor las lineas que lo recorren
+     */
+    private Map<Tramo, List<Linea>> indexarLineasPorTramo(Linea[] lineas) {
+        Map<Long, Tramo> tramosPorPar = new HashMap<>();
+        for (List<Tramo> salientes : adyacencias.values()) {
+            for (Tramo tramo : salientes) {
+                tramosPorPar.put(clavePar(tramo.getInicio().getCodigo(), tramo.getFin().getCodigo()), tramo);
+            }
+        }
+
+        Map<Tramo, List<Linea>> indice = new IdentityHashMap<>();
+        for (Linea linea : lineas) {
+            List<Parada> paradasLinea = linea.getParadas();
+            for (int i = 0; i < paradasLinea.size() - 1; i++) {
+                Tramo tramo = tramosPorPar.get(clavePar(paradasLinea.get(i).getCodigo(),
+                        paradasLinea.get(i + 1).getCodigo()));
+                if (tramo != null) {
+                    List<Linea> lineasDelTramo = indice.computeIfAbsent(tramo, t -> new ArrayList<>());
+                    if (!lineasDelTramo.contains(linea)) {
+                        lineasDelTramo.add(linea);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Tramo, List<Linea>> entrada : indice.entrySet()) {
+            entrada.setValue(Collections.unmodifiableList(entrada.getValue()));
+        }
+        return Collections.unmodifiableMap(indice);
+    }
+
+    /**
+     * Arma la clave de un par de paradas para indexar tramos sin concatenar cadenas.
+     * @param codigoInicio codigo de la parada de inicio
+     * @param codigoFin codigo de la parada de fin
+     * @return la clave del par
+     */
+    private static long clavePar(int codigoInicio, int codigoFin) {
+        return ((long) codigoInicio << 32) | (codigoFin & 0xffffffffL);
+    }
+
+    /**
+     * Extrae las paradas de los tramos disponibles y los almacena en un mapa donde la clave es el codigo
+     * de la parada y el valor el objeto de tipo Parada.
+     * @param tramos mapa de tramos disponibles
+     * @return mapa de paradas que aparecen en algun tramo
+     */
+    private static Map<Integer, Parada> extraerParadaTramo(Map<String, Tramo> tramos) {
+        Map<Integer, Parada> paradas = new HashMap<>();
+        for (Tramo tramo : tramos.values()) {
+            paradas.putIfAbsent(tramo.getInicio().getCodigo(), tramo.getInicio());
+            paradas.putIfAbsent(tramo.getFin().getCodigo(), tramo.getFin());
+        }
+        return paradas;
+    }
+
     /**
      * Obtiene la lista de tramos que conectan una parada dada con otras paradas. Si la parada no tiene tramos asociados,
      * se devuelve una lista vacía.
@@ -70,6 +541,535 @@ public class MapaGrafo {
      * asociados a esa parada.
      */
     public List<Tramo> obtenerTramosDesde(int idParada) {
-        return adyacencias.getOrDefault(idParada, new ArrayList<>());
+        return adyacencias.getOrDefault(idParada, Collections.emptyList());
+    }
+
+    /**
+     * Obtiene las lineas que recorren un tramo, usando el indice armado al construir el grafo.
+     * @param tramo tramo del grafo
+     * @return lista de solo lectura con las lineas del tramo, o una lista vacia si ninguna linea lo recorre
+     */
+    public List<Linea> obtenerLineasDelTramo(Tramo tramo) {
+        return lineasPorTramo.getOrDefault(tramo, Collections.emptyList());
+    }
+
+    /**
+     * Obtiene las paradas del grafo.
+     * @return mapa de solo lectura con las paradas, donde la clave es el codigo de la parada
+     */
+    public Map<Integer, Parada> getParadas() {
+        return paradas;
+    }
+
+    /**
+     * Obtiene los tramos con los que se construyo el grafo.
+     * @return mapa de solo lectura con los tramos, donde la clave es el identificador del tramo
+     */
+    public Map<String, Tramo> getTramos() {
+        return tramos;
+    }
+
+    /**
+     * Obtiene la cantidad de paradas del grafo, es decir, el tamaño de los arreglos indexados por parada.
+     * @return cantidad de paradas
+     */
+    public int cantidadParadas() {
+        return paradasPorIndice.length;
+    }
+
+    /**
+     * Obtiene el indice denso de una parada.
+     * @param codigoParada codigo de la parada
+     * @return el indice denso de la parada, o -1 si la parada no esta en el grafo
+     */
+    public int indiceDe(int codigoParada) {
+        Integer indice = indicePorCodigo.get(codigoParada);
+        return (indice == null) ? -1 : indice;
+    }
+
+    /**
+     * Obtiene la parada correspondiente a un indice denso.
+     * @param indice indice denso de la parada
+     * @return la parada
+     */
+    public Parada paradaEn(int indice) {
+        return paradasPorIndice[indice];
+    }
+
+    /**
+     * Obtiene la linea correspondiente a un indice denso de linea.
+     * @param indice indice denso de la linea
+     * @return la linea
+     */
+    public Linea lineaEn(int indice) {
+        return lineas[indice];
+    }
+
+    /**
+     * Obtiene la primera arista que sale de una parada.
+     * @param parada indice denso de la parada
+     * @return indice de la primera arista de la parada
+     */
+    public int inicioAristas(int parada) {
+        return inicioAristas[parada];
+    }
+
+    /**
+     * Obtiene el limite (exclusivo) de las aristas que salen de una parada.
+     * @param parada indice denso de la parada
+     * @return indice siguiente a la ultima arista de la parada
+     */
+    public int finAristas(int parada) {
+        return inicioAristas[parada + 1];
+    }
+
+    /**
+     * Obtiene la parada de destino de una arista.
+     * @param arista indice de la arista
+     * @return indice denso de la parada de destino
+     */
+    public int destinoArista(int arista) {
+        return destinos[arista];
+    }
+
+    /**
+     * Obtiene el tiempo de viaje de una arista.
+     * @param arista indice de la arista
+     * @return tiempo de viaje en segundos
+     */
+    public int tiempoArista(int arista) {
+        return tiemposViaje[arista];
+    }
+
+    /**
+     * Obtiene la parada de origen de una arista.
+     * @param arista indice de la arista
+     * @return indice denso de la parada de origen
+     */
+    public int origenArista(int arista) {
+        return origenes[arista];
+    }
+
+    /**
+     * Obtiene la primera arista que llega a una parada, en la adyacencia inversa.
+     * @param parada indice denso de la parada
+     * @return posicion de la primera arista entrante
+     */
+    public int inicioEntrantes(int parada) {
+        return inicioEntrantes[parada];
+    }
+
+    /**
+     * Obtiene el limite (exclusivo) de las aristas que llegan a una parada, en la adyacencia inversa.
+     * @param parada indice denso de la parada
+     * @return posicion siguiente a la ultima arista entrante
+     */
+    public int finEntrantes(int parada) {
+        return inicioEntrantes[parada + 1];
+    }
+
+    /**
+     * Obtiene una arista entrante de la adyacencia inversa.
+     * @param posicion posicion en la adyacencia inversa
+     * @return indice de la arista
+     */
+    public int aristaEntrante(int posicion) {
+        return aristaEntrante[posicion];
+    }
+
+    /**
+     * Calcula la hora de llegada al fin de una arista saliendo de su inicio a una hora dada: si la recorre una linea se
+     * espera el proximo viaje que pasa por esa parada, y se llega a la hora en que ese viaje pasa por la siguiente.
+     * Las horas de paso salen de la tabla de viajes del dia. Si la arista quedo fuera del recorrido de la linea, se
+     * espera la proxima salida de la cabecera y se suma el tiempo del tramo.
+     * @param arista indice de la arista
+     * @param dia dia de la semana (1-7)
+     * @param segundos hora a la que se esta en el inicio de la arista, en segundos desde la medianoche
+     * @return hora de llegada en segundos desde la medianoche, o Integer.MAX_VALUE si ya no pasan colectivos
+     */
+    public int llegadaPorArista(int arista, int dia, int segundos) {
+        int linea = lineaArista[arista];
+        if (linea == -1) {
+            return segundos + tiemposViaje[arista];
+        }
+        int posicion = posicionArista[arista];
+        if (posicion != -1) {
+            TablaViajes viajes = obtenerViajes(dia);
+            int viaje = viajes.primerViajeDesde(linea, posicion, segundos);
+            return viaje == -1 ? Integer.MAX_VALUE : viajes.hora(linea, viaje, posicion + 1);
+        }
+        int proxima = lineas[linea].buscarProximaSalida(dia, segundos);
+        if (proxima == -1) {
+            return Integer.MAX_VALUE;
+        }
+        return lineas[linea].obtenerSalidasPorDia(dia)[proxima] + tiemposViaje[arista];
+    }
+
+    /**
+     * Calcula la hora mas tarde a la que hay que estar en el inicio de una arista para llegar a su fin a una hora dada.
+     * Es la inversa de llegadaPorArista.
+     * @param arista indice de la arista
+     * @param dia dia de la semana (1-7)
+     * @param segundosLlegada hora limite de llegada al fin de la arista, en segundos desde la medianoche
+     * @return hora de salida en segundos desde la medianoche, o Integer.MIN_VALUE si no hay colectivo que llegue a tiempo
+     */
+    public int salidaPorArista(int arista, int dia, int segundosLlegada) {
+        int linea = lineaArista[arista];
+        if (linea == -1) {
+            return segundosLlegada - tiemposViaje[arista];
+        }
+        int posicion = posicionArista[arista];
+        if (posicion != -1) {
+            TablaViajes viajes = obtenerViajes(dia);
+            int viaje = viajes.ultimoViajeHasta(linea, posicion + 1, segundosLlegada);
+            return viaje == -1 ? Integer.MIN_VALUE : viajes.hora(linea, viaje, posicion);
+        }
+        int anterior = lineas[linea].buscarSalidaAnterior(dia, segundosLlegada - tiemposViaje[arista]);
+        if (anterior == -1) {
+            return Integer.MIN_VALUE;
+        }
+        return lineas[linea].obtenerSalidasPorDia(dia)[anterior];
+    }
+
+    /**
+     * Obtiene la linea que recorre una arista.
+     * @param arista indice de la arista
+     * @return indice denso de la linea, o -1 si ninguna linea recorre el tramo
+     */
+    public int lineaArista(int arista) {
+        return lineaArista[arista];
+    }
+
+    /**
+     * Obtiene el tramo original de una arista.
+     * @param arista indice de la arista
+     * @return el tramo
+     */
+    public Tramo tramoArista(int arista) {
+        return tramoArista[arista];
+    }
+
+    /**
+     * Calcula una cota inferior de los segundos que faltan para ir de una parada a otra en colectivo: la distancia en
+     * linea recta dividida por la mayor velocidad de las aristas. Nunca sobreestima, asi A* sigue siendo exacto.
+     * @param desde indice denso de la parada de partida
+     * @param hasta indice denso de la parada de destino
+     * @return cota inferior en segundos
+     */
+    public int cotaInferior(int desde, int hasta) {
+        if (velocidadMaxima == 0 || Double.isInfinite(velocidadMaxima)) {
+            return 0;
+        }
+        double distancia = CalculoCaminando.calcularHaversine(paradasPorIndice[desde], paradasPorIndice[hasta]);
+        return (int) Math.floor(distancia / velocidadMaxima);
+    }
+
+    /**
+     * Obtiene la primera caminata que sale de una parada.
+     * @param parada indice denso de la parada
+     * @return indice de la primera caminata de la parada
+     */
+    public int inicioCaminatas(int parada) {
+        return inicioCaminatas[parada];
+    }
+
+    /**
+     * Obtiene el limite (exclusivo) de las caminatas que salen de una parada.
+     * @param parada indice denso de la parada
+     * @return indice siguiente a la ultima caminata de la parada
+     */
+    public int finCaminatas(int parada) {
+        return inicioCaminatas[parada + 1];
+    }
+
+    /**
+     * Obtiene la parada a la que se llega con una caminata.
+     * @param caminata indice de la caminata
+     * @return indice denso de la parada de destino
+     */
+    public int destinoCaminata(int caminata) {
+        return destinoCaminata[caminata];
+    }
+
+    /**
+     * Obtiene el tiempo de una caminata.
+     * @param caminata indice de la caminata
+     * @return tiempo en segundos
+     */
+    public int tiempoCaminata(int caminata) {
+        return tiempoCaminata[caminata];
+    }
+
+    /**
+     * Obtiene la cantidad de lineas del grafo.
+     * @return cantidad de lineas
+     */
+    public int cantidadLineas() {
+        return lineas.length;
+    }
+
+    /**
+     * Obtiene la cantidad de paradas del recorrido de una linea.
+     * @param linea indice denso de la linea
+     * @return largo del recorrido, 0 si la linea no tiene un recorrido utilizable
+     */
+    public int largoDeLinea(int linea) {
+        return paradasDeLinea[linea].length;
+    }
+
+    /**
+     * Obtiene la parada que esta en una posicion del recorrido de una linea.
+     * @param linea indice denso de la linea
+     * @param posicion posicion dentro del recorrido
+     * @return indice denso de la parada
+     */
+    public int paradaDeLinea(int linea, int posicion) {
+        return paradasDeLinea[linea][posicion];
+    }
+
+    /**
+     * Obtiene los segundos que tarda la linea desde la cabecera hasta una posicion de su recorrido.
+     * @param linea indice denso de la linea
+     * @param posicion posicion dentro del recorrido
+     * @return segundos acumulados desde la cabecera
+     */
+    public int acumuladoDeLinea(int linea, int posicion) {
+        return acumuladoDeLinea[linea][posicion];
+    }
+
+    /**
+     * Obtiene la primera pasada de linea por una parada.
+     * @param parada indice denso de la parada
+     * @return indice de la primera pasada
+     */
+    public int inicioPasadas(int parada) {
+        return inicioPasadas[parada];
+    }
+
+    /**
+     * Obtiene el limite (exclusivo) de las pasadas de linea por una parada.
+     * @param parada indice denso de la parada
+     * @return indice siguiente a la ultima pasada
+     */
+    public int finPasadas(int parada) {
+        return inicioPasadas[parada + 1];
+    }
+
+    /**
+     * Obtiene la linea de una pasada.
+     * @param pasada indice de la pasada
+     * @return indice denso de la linea
+     */
+    public int lineaPasada(int pasada) {
+        return lineaPasada[pasada];
+    }
+
+    /**
+     * Obtiene la posicion en el recorrido de la linea de una pasada.
+     * @param pasada indice de la pasada
+     * @return posicion dentro del recorrido de la linea
+     */
+    public int posicionPasada(int pasada) {
+        return posicionPasada[pasada];
+    }
+
+    /**
+     * Busca el primer viaje (salida desde la cabecera) de una linea que se puede tomar en una posicion de su recorrido
+     * a partir de una hora.
+     * @param linea indice denso de la linea
+     * @param dia dia de la semana (1-7)
+     * @param posicion posicion dentro del recorrido
+     * @param segundos hora a partir de la cual se espera en la parada, en segundos desde la medianoche
+     * @return el indice del viaje en las salidas del dia, o -1 si ya no pasan colectivos
+     */
+    public int primerViajeDesde(int linea, int dia, int posicion, int segundos) {
+        return obtenerViajes(dia).primerViajeDesde(linea, posicion, segundos);
+    }
+
+    /**
+     * Busca la primera hora, a partir de una hora dada, a la que sale algun colectivo de una parada. Mientras no
+     * cambie, todas las busquedas que salen de la parada antes de esa hora toman los mismos colectivos, asi que sus
+     * resultados son iguales. Si de la parada sale un tramo sin linea, cuyo tiempo depende de la hora exacta, devuelve
+     * la misma hora.
+     * @param parada indice denso de la parada
+     * @param dia dia de la semana (1-7)
+     * @param segundos hora desde la que se busca, en segundos desde la medianoche
+     * @return la hora de la proxima salida en segundos, o Integer.MAX_VALUE si ya no salen colectivos
+     */
+    public int proximaSalidaDesde(int parada, int dia, int segundos) {
+        int proxima = Integer.MAX_VALUE;
+        for (int arista = inicioAristas[parada]; arista < inicioAristas[parada + 1]; arista++) {
+            int linea = lineaArista[arista];
+            if (linea == -1) {
+                return segundos;
+            }
+            //Las aristas que quedaron fuera del recorrido esperan la salida de la cabecera
+            if (posicionArista[arista] == -1) {
+                int salida = lineas[linea].buscarProximaSalida(dia, segundos);
+                if (salida != -1) {
+                    proxima = Math.min(proxima, lineas[linea].obtenerSalidasPorDia(dia)[salida]);
+                }
+            }
+        }
+        TablaViajes viajes = obtenerViajes(dia);
+        for (int pasada = inicioPasadas[parada]; pasada < inicioPasadas[parada + 1]; pasada++) {
+            int linea = lineaPasada[pasada];
+            int posicion = posicionPasada[pasada];
+            if (posicion == largoDeLinea(linea) - 1) {
+                continue;
+            }
+            int viaje = viajes.primerViajeDesde(linea, posicion, segundos);
+            if (viaje != -1) {
+                proxima = Math.min(proxima, viajes.hora(linea, viaje, posicion));
+            }
+        }
+        return proxima;
+    }
+
+    /**
+     * Obtiene la hora a la que un viaje de una linea pasa por una posicion de su recorrido.
+     * @param linea indice denso de la linea
+     * @param dia dia de la semana (1-7)
+     * @param viaje indice del viaje en las salidas del dia
+     * @param posicion posicion dentro del recorrido
+     * @return la hora de paso, en segundos desde la medianoche
+     */
+    public int horaDeViaje(int linea, int dia, int viaje, int posicion) {
+        return obtenerViajes(dia).hora(linea, viaje, posicion);
+    }
+
+    /**
+     * Arma los recorridos (uno por tramo) de un viaje de una linea entre dos posiciones de su recorrido, con la hora
+     * de salida y de llegada de cada tramo.
+     * @param linea indice denso de la linea
+     * @param dia dia de la semana (1-7)
+     * @param viaje indice del viaje en las salidas del dia
+     * @param posicionSubida posicion donde se sube
+     * @param posicionBajada posicion donde se baja
+     * @return lista de recorridos, uno por cada tramo del viaje
+     */
+    public List<Recorrido> armarViaje(int linea, int dia, int viaje, int posicionSubida, int posicionBajada) {
+        List<Recorrido> tramosViaje = new ArrayList<>();
+        for (int pos = posicionSubida; pos < posicionBajada; pos++) {
+            Tramo tramo = tramosDeLinea[linea][pos];
+            Recorrido r = new Recorrido();
+            r.setLinea(lineas[linea]);
+            r.setOrigen(tramo.getInicio());
+            r.setDestino(tramo.getFin());
+            r.setHoraSalida(aHora(horaDeViaje(linea, dia, viaje, pos)));
+            r.setHoraLlegada(aHora(horaDeViaje(linea, dia, viaje, pos + 1)));
+            r.setDuracion(tramo.getTiempo());
+            tramosViaje.add(r);
+        }
+        return tramosViaje;
+    }
+
+    /**
+     * Arma los recorridos (uno por tramo) de un camino de aristas, tomando en cada arista el primer colectivo que pasa
+     * despues de llegar a la parada, con la hora de salida y de llegada de cada tramo.
+     * @param aristas aristas del camino, desde el origen hasta el destino
+     * @param dia dia de la semana (1-7)
+     * @param salida hora a la que se esta en el origen, en segundos desde la medianoche
+     * @return lista de recorridos, uno por cada tramo del camino
+     */
+    public List<Recorrido> armarCamino(List<Integer> aristas, int dia, int salida) {
+        int[] camino = new int[aristas.size()];
+        for (int i = 0; i < camino.length; i++) {
+            camino[i] = aristas.get(i);
+        }
+        return armarCamino(camino, dia, salida);
+    }
+
+    /**
+     * Arma los recorridos (uno por tramo) de un camino de aristas guardado en un arreglo, igual que con una lista.
+     * @param aristas aristas del camino, desde el origen hasta el destino
+     * @param dia dia de la semana (1-7)
+     * @param salida hora a la que se esta en el origen, en segundos desde la medianoche
+     * @return lista de recorridos, uno por cada tramo del camino
+     */
+    public List<Recorrido> armarCamino(int[] aristas, int dia, int salida) {
+        List<Recorrido> camino = new ArrayList<>(aristas.length);
+        int hora = salida;
+        for (int arista : aristas) {
+            Tramo tramo = tramoArista(arista);
+            int linea = lineaArista(arista);
+            hora = llegadaPorArista(arista, dia, hora);
+            Recorrido r = new Recorrido();
+            r.setLinea(linea == -1 ? null : lineas[linea]); // null si ninguna linea recorre el tramo
+            r.setOrigen(tramo.getInicio());
+            r.setDestino(tramo.getFin());
+            r.setHoraSalida(aHora(hora - tramo.getTiempo()));
+            r.setHoraLlegada(aHora(hora));
+            r.setDuracion(tramo.getTiempo());
+            camino.add(r);
+        }
+        return camino;
+    }
+
+    /**
+     * Obtiene la tabla de conexiones de un dia, armandola la primera vez que se pide.
+     * @param dia dia de la semana (1-7)
+     * @return la tabla de conexiones del dia, vacia si el dia esta fuera de rango
+     */
+    TablaConexiones obtenerConexiones(int dia) {
+        //Un dia fuera de rango no tiene colectivos, como en Linea.obtenerSalidasPorDia
+        int posicion = dia < 1 || dia > 7 ? 0 : dia;
+        TablaConexiones tabla = conexionesPorDia[posicion];
+        if (tabla == null) {
+            tabla = TablaConexiones.armar(this, posicion);
+            conexionesPorDia[posicion] = tabla;
+        }
+        return tabla;
+    }
+
+    /**
+     * Obtiene la tabla de viajes de un dia, armandola la primera vez que se pide.
+     * @param dia dia de la semana (1-7)
+     * @return la tabla de viajes del dia, vacia si el dia esta fuera de rango
+     */
+    TablaViajes obtenerViajes(int dia) {
+        //Un dia fuera de rango no tiene colectivos, como en Linea.obtenerSalidasPorDia
+        int posicion = dia < 1 || dia > 7 ? 0 : dia;
+        TablaViajes tabla = viajesPorDia[posicion];
+        if (tabla == null) {
+            tabla = TablaViajes.armar(this, posicion);
+            viajesPorDia[posicion] = tabla;
+        }
+        return tabla;
+    }
+
+    /**
+     * Obtiene el indice para el calculo directo, armandolo la primera vez que se pide.
+     * @return el indice de lineas por parada
+     */
+    IndiceDirecto obtenerIndiceDirecto() {
+        IndiceDirecto indice = indiceDirecto;
+        if (indice == null) {
+            indice = IndiceDirecto.armar(this);
+            indiceDirecto = indice;
+        }
+        return indice;
+    }
+
+    /**
+     * Obtiene las capas de colectivo y a pie juntas, armandolas la primera vez que se piden.
+     * @return el grafo multimodal
+     */
+    GrafoMultimodal obtenerMultimodal() {
+        GrafoMultimodal grafo = multimodal;
+        if (grafo == null) {
+            grafo = new GrafoMultimodal(this);
+            multimodal = grafo;
+        }
+        return grafo;
+    }
+
+    /**
+     * Convierte segundos desde la medianoche a una hora del dia.
+     * @param segundos segundos desde la medianoche, pueden pasar de las 24 hs
+     * @return la hora del dia
+     */
+    static LocalTime aHora(int segundos) {
+        return LocalTime.ofSecondOfDay(Math.floorMod(segundos, 24 * 3600));
     }
 }
@@ -0,0 +1,169 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Esta clase guarda la matriz de llegadas mas tempranas entre todos los pares de paradas, saliendo a una hora de un
+ * dia. Cada fila es una busqueda desde un origen hasta todas las paradas (la misma de CalculoIsocrona, sin limite),
+ * en lugar de una busqueda por cada par.
+ * Los origenes se reparten en un ForkJoinPool: el rango de origenes se parte a la mitad hasta quedar en grupos
+ * chicos, y los hilos libres toman las mitades pendientes de los demas. Todas las busquedas leen el mismo grafo
+ * inmutable, y cada hilo usa su propio espacio de trabajo, asi que no hay nada compartido que escribir salvo la fila
+ * de cada origen. El pool lo pasa quien pide la matriz y dura mas que ella, asi sus hilos, con sus espacios de
+ * trabajo ya armados, se reusan en la matriz siguiente.
+ * La matriz es un solo arreglo con las filas una detras de otra, que cada busqueda llena directamente.
+ */
+public final class MatrizTiempos {
+
+    /**
+     * Valor de un par sin recorrido posible.
+     */
+    public static final int SIN_LLEGADA = -1;
+
+    /**
+     * Cantidad de origenes a partir de la cual un grupo se sigue partiendo.
+     */
+    private static final int ORIGENES_POR_TAREA = 8;
+
+    /**
+     * Grafo con el que se calculo la matriz.
+     */
+    private final MapaGrafo mapaGrafo;
+
+    /**
+     * Hora de salida de todos los origenes, en segundos desde la medianoche.
+     */
+    private final int salida;
+
+    /**
+     * Cantidad de paradas, que es el largo de cada fila.
+     */
+    private final int cantidadParadas;
+
+    /**
+     * Llegadas de cada origen a cada destino, en segundos desde la medianoche (pueden pasar de un dia), o SIN_LLEGADA.
+     * La llegada de origen a destino esta en origen * cantidadParadas + destino, con los indices densos de las paradas
+     * en el grafo.
+     */
+    private final int[] llegadas;
+
+    /**
+     * Calcula la matriz de llegadas de toda la red.
+     * @param mapaGrafo grafo inmutable de la red
+     * @param diaSemana dia de la semana (1-7)
+     * @param horaSalida hora de salida desde cada origen
+     * @param pool pool en el que se reparten los origenes; no se cierra al terminar
+     */
+    public MatrizTiempos(MapaGrafo mapaGrafo, int diaSemana, LocalTime horaSalida, ForkJoinPool pool) {
+        this.mapaGrafo = mapaGrafo;
+        this.salida = horaSalida.toSecondOfDay();
+        this.cantidadParadas = mapaGrafo.cantidadParadas();
+        this.llegadas = new int[Math.multiplyExact(cantidadParadas, cantidadParadas)];
+        Arrays.fill(llegadas, SIN_LLEGADA);
+        pool.invoke(new Origenes(diaSemana, 0, cantidadParadas));
+    }
+
+    /**
+     * Llena la fila de un origen con una busqueda hasta todas las paradas.
+     * @param origen indice denso de la parada de origen
+     * @param diaSemana dia de la semana
+     */
+    private void calcularFila(int origen, int diaSemana) {
+        EspacioBusqueda espacio = EspacioBusqueda.delHilo(cantidadParadas);
+        int[] alcanzadas = espacio.alcanzadas();
+        int cantidad = CalculoIsocrona.barrer(mapaGrafo, origen, diaSemana, salida, Integer.MAX_VALUE - 1, espacio,
+                alcanzadas);
+        int inicioFila = origen * cantidadParadas;
+        for (int i = 0; i < cantidad; i++) {
+            llegadas[inicioFila + alcanzadas[i]] = espacio.tiempo(alcanzadas[i]);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de paradas de la matriz.
+     * @return cantidad de paradas (filas y columnas)
+     */
+    public int cantidadParadas() {
+        return cantidadParadas;
+    }
+
+    /**
+     * Obtiene la parada de una fila o columna de la matriz.
+     * @param indice indice de la fila o columna
+     * @return la parada
+     */
+    public Parada paradaEn(int indice) {
+        return mapaGrafo.paradaEn(indice);
+    }
+
+    /**
+     * Obtiene la llegada mas temprana entre dos paradas por indice.
+     * @param origen fila del origen
+     * @param destino columna del destino
+     * @return la llegada en segundos desde la medianoche del dia de salida, o SIN_LLEGADA
+     */
+    public int llegada(int origen, int destino) {
+        return llegadas[origen * cantidadParadas + destino];
+    }
+
+    /**
+     * Obtiene el tiempo de viaje entre dos paradas por indice, contando la espera desde la hora de salida.
+     * @param origen fila del origen
+     * @param destino columna del destino
+     * @return el tiempo de viaje en segundos, o SIN_LLEGADA
+     */
+    public int segundosDeViaje(int origen, int destino) {
+        int llegada = llegada(origen, destino);
+        return llegada == SIN_LLEGADA ? SIN_LLEGADA : llegada - salida;
+    }
+
+    /**
+     * Obtiene la hora de llegada mas temprana entre dos paradas.
+     * @param origen parada de origen
+     * @param destino parada de destino
+     * @return la hora de llegada, o null si alguna no esta en la matriz o no hay recorrido
+     */
+    public LocalTime llegada(Parada origen, Parada destino) {
+        int i = mapaGrafo.indiceDe(origen.getCodigo());
+        int j = mapaGrafo.indiceDe(destino.getCodigo());
+        if (i == -1 || j == -1 || llegada(i, j) == SIN_LLEGADA) {
+            return null;
+        }
+        return MapaGrafo.aHora(llegada(i, j));
+    }
+
+    /**
+     * Rango de origenes a calcular. Si es chico calcula sus filas, si no se parte en dos mitades.
+     */
+    private final class Origenes extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int diaSemana;
+        private final int desde;
+        private final int hasta;
+
+        Origenes(int diaSemana, int desde, int hasta) {
+            this.diaSemana = diaSemana;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde <= ORIGENES_POR_TAREA) {
+                for (int origen = desde; origen < hasta; origen++) {
+                    calcularFila(origen, diaSemana);
+                }
+                return;
+            }
+            int medio = (desde + hasta) >>> 1;
+            invokeAll(new Origenes(diaSemana, desde, medio), new Origenes(diaSemana, medio, hasta));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package colectivo.negocio;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Esta clase es una cola de prioridad de paradas (indices densos de 0 a capacidad - 1) ordenada por una clave entera,
+ * normalmente segundos. A diferencia de PriorityQueue, cada parada esta a lo sumo una vez y su clave se puede bajar en
+ * el lugar, asi una busqueda no crea un objeto por cada relajacion ni saca de la cola entradas viejas.
+ * Es un monticulo de 4 hijos por nodo guardado solo en arreglos de int: es menos profundo que uno binario y los hijos
+ * de cada nodo quedan contiguos en memoria. No es seguro para usar desde varios hilos a la vez.
+ */
+public final class MonticuloIndexado {
+
+    /**
+     * Cantidad de hijos de cada nodo.
+     */
+    private static final int ARIDAD = 4;
+
+    /**
+     * Paradas en orden de monticulo.
+     */
+    private final int[] elementos;
+
+    /**
+     * Clave de cada posicion del monticulo. Es un arreglo aparte con el mismo orden que elementos, asi al comparar
+     * hijos solo se lee este arreglo, sin pasar por la parada.
+     */
+    private final int[] claves;
+
+    /**
+     * Posicion de cada parada en el monticulo, o -1 si no esta.
+     */
+    private final int[] posiciones;
+
+    /**
+     * Cantidad de paradas en el monticulo.
+     */
+    private int tamano;
+
+    /**
+     * Constructor de la clase MonticuloIndexado.
+     * @param capacidad cantidad de paradas posibles, los elementos van de 0 a capacidad - 1
+     */
+    public MonticuloIndexado(int capacidad) {
+        this.elementos = new int[capacidad];
+        this.claves = new int[capacidad];
+        this.posiciones = new int[capacidad];
+        Arrays.fill(posiciones, -1);
+    }
+
+    /**
+     * Obtiene la cantidad de paradas que admite el monticulo.
+     * @return capacidad
+     */
+    public int capacidad() {
+        return posiciones.length;
+    }
+
+    /**
+     * Indica si el monticulo esta vacio.
+     * @return true si no tiene paradas
+     */
+    public boolean estaVacio() {
+        return tamano == 0;
+    }
+
+    /**
+     * Obtiene la cantidad de paradas en el monticulo.
+     * @return cantidad de paradas
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Indica si una parada esta en el monticulo.
+     * @param elemento indice de la parada
+     * @return true si esta
+     */
+    public boolean contiene(int elemento) {
+        return posiciones[elemento] != -1;
+    }
+
+    /**
+     * Obtiene la clave actual de una parada que esta en el monticulo.
+     * @param elemento indice de la parada
+     * @return clave de la parada
+     */
+    public int clave(int elemento) {
+        return claves[posiciones[elemento]];
+    }
+
+    /**
+     * Agrega una parada, o baja su clave si ya estaba con una clave mayor. Si ya estaba con una clave menor o igual,
+     * no hace nada.
+     * @param elemento indice de la parada
+     * @param clave nueva clave
+     * @return true si la parada se agrego o su clave bajo
+     */
+    public boolean agregarOBajar(int elemento, int clave) {
+        int posicion = posiciones[elemento];
+        if (posicion == -1) {
+            posicion = tamano++;
+            elementos[posicion] = elemento;
+            claves[posicion] = clave;
+            posiciones[elemento] = posicion;
+        } else if (clave < claves[posicion]) {
+            claves[posicion] = clave;
+        } else {
+            return false;
+        }
+        subir(posicion);
+        return true;
+    }
+
+    /**
+     * Obtiene la parada de menor clave sin sacarla.
+     * @return indice de la parada
+     */
+    public int minimo() {
+        if (tamano == 0) {
+            throw new NoSuchElementException("El monticulo esta vacio");
+        }
+        return elementos[0];
+    }
+
+    /**
+     * Obtiene la menor clave del monticulo sin sacar su parada.
+     * @return la menor clave
+     */
+    public int claveMinima() {
+        if (tamano == 0) {
+            throw new NoSuchElementException("El monticulo esta vacio");
+        }
+        return claves[0];
+    }
+
+    /**
+     * Saca la parada de menor clave.
+     * @return indice de la parada
+     */
+    public int sacarMinimo() {
+        int minimo = minimo();
+        posiciones[minimo] = -1;
+        tamano--;
+        if (tamano > 0) {
+            elementos[0] = elementos[tamano];
+            claves[0] = claves[tamano];
+            posiciones[elementos[0]] = 0;
+            bajar(0);
+        }
+        return minimo;
+    }
+
+    /**
+     * Vacia el monticulo para reusarlo en otra busqueda. Solo recorre las paradas que quedaron adentro.
+     */
+    public void limpiar() {
+        for (int i = 0; i < tamano; i++) {
+            posiciones[elementos[i]] = -1;
+        }
+        tamano = 0;
+    }
+
+    /**
+     * Sube una posicion hasta que su padre tenga una clave menor o igual.
+     */
+    private void subir(int posicion) {
+        int elemento = elementos[posicion];
+        int clave = claves[posicion];
+        while (posicion > 0) {
+            int padre = (posicion - 1) / ARIDAD;
+            if (claves[padre] <= clave) {
+                break;
+            }
+            mover(padre, posicion);
+            posicion = padre;
+        }
+        ubicar(elemento, clave, posicion);
+    }
+
+    /**
+     * Baja una posicion hasta que todos sus hijos tengan una clave mayor o igual.
+     */
+    private void bajar(int posicion) {
+        int elemento = elementos[posicion];
+        int clave = claves[posicion];
+        while (true) {
+            int primerHijo = posicion * ARIDAD + 1;
+            if (primerHijo >= tamano) {
+                break;
+            }
+            int menor = primerHijo;
+            int ultimoHijo = Math.min(primerHijo + ARIDAD, tamano);
+            for (int hijo = primerHijo + 1; hijo < ultimoHijo; hijo++) {
+                if (claves[hijo] < claves[menor]) {
+                    menor = hijo;
+                }
+            }
+            if (claves[menor] >= clave) {
+                break;
+            }
+            mover(menor, posicion);
+            posicion = menor;
+        }
+        ubicar(elemento, clave, posicion);
+    }
+
+    /**
+     * Copia la parada de una posicion a otra.
+     */
+    private void mover(int desde, int hacia) {
+        elementos[hacia] = elementos[desde];
+        claves[hacia] = claves[desde];
+        posiciones[elementos[hacia]] = hacia;
+    }
+
+    /**
+     * Deja una parada con su clave en una posicion.
+     */
+    private void ubicar(int elemento, int clave, int posicion) {
+        elementos[posicion] = elemento;
+        claves[posicion] = clave;
+        posiciones[elemento] = posicion;
+    }
+}
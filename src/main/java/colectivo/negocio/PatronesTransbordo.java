@@ -0,0 +1,309 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Esta clase precalcula los patrones de transbordo de la red: para cada parada de origen y cada parada de destino,
+ * las secuencias de colectivos (linea, parada de subida y parada de bajada) que son optimas para alguna hora de salida
+ * de algun dia de la semana. Son pocas por par de paradas, asi que una consulta solo evalua esas secuencias contra los
+ * horarios, tomando en cada tramo el primer colectivo que pasa, sin recorrer la red.
+ * Los patrones se calculan con RAPTOR por perfil (todas las salidas del dia desde el origen, de la mas tarde a la mas
+ * temprana) para cada origen y cada dia, repartiendo los origenes entre varios hilos.
+ * El resultado es el mismo que el de CalculoRaptor con la misma cantidad de rondas.
+ */
+public class PatronesTransbordo implements AlgoritmoRecorrido {
+
+    /**
+     * Valor que representa una parada no alcanzada.
+     */
+    private static final int INFINITO = Integer.MAX_VALUE;
+
+    /**
+     * Grafo con el que se calcularon los patrones.
+     */
+    private final MapaGrafo mapaGrafo;
+
+    /**
+     * Cantidad maxima de colectivos por viaje.
+     */
+    private final int maximoRondas;
+
+    /**
+     * Patrones de cada par de paradas: patrones[origen][destino] tiene un arreglo por patron con tres enteros por
+     * colectivo (linea, posicion de subida y posicion de bajada en el recorrido de la linea).
+     */
+    private final int[][][][] patrones;
+
+    /**
+     * Calcula los patrones de transbordo de toda la red.
+     * @param mapaGrafo grafo inmutable de la red
+     * @param maximoRondas cantidad maxima de colectivos por viaje
+     * @param hilos cantidad de hilos para repartir los origenes
+     */
+    public PatronesTransbordo(MapaGrafo mapaGrafo, int maximoRondas, int hilos) {
+        this.mapaGrafo = mapaGrafo;
+        this.maximoRondas = maximoRondas;
+        int n = mapaGrafo.cantidadParadas();
+        this.patrones = new int[n][][][];
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(Math.max(1, hilos));
+        try {
+            List<Future<int[][][]>> tareas = new ArrayList<>();
+            for (int origen = 0; origen < n; origen++) {
+                int o = origen;
+                tareas.add(ejecutor.submit(() -> calcularPatronesDesde(o)));
+            }
+            for (int origen = 0; origen < n; origen++) {
+                patrones[origen] = tareas.get(origen).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Se interrumpio el calculo de los patrones de transbordo", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al calcular los patrones de transbordo", e.getCause());
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    /**
+     * Calcula los patrones desde un origen hacia todas las paradas, para todas las salidas de todos los dias. Despues
+     * de cada salida se guarda el patron de cada llegada que mejoro, en la ronda en que mejoro.
+     * @param origen indice de la parada de origen
+     * @return los patrones hacia cada destino
+     */
+    private int[][][] calcularPatronesDesde(int origen) {
+        int n = mapaGrafo.cantidadParadas();
+        CalculoRaptor raptor = new CalculoRaptor(maximoRondas);
+        List<Set<Patron>> porDestino = new ArrayList<>(n);
+        for (int destino = 0; destino < n; destino++) {
+            porDestino.add(new HashSet<>());
+        }
+
+        for (int dia = 1; dia <= 7; dia++) {
+            int[] salidas = raptor.salidasDesdeOrigen(mapaGrafo, dia, origen, 0, INFINITO);
+            CalculoRaptor.EtiquetasRaptor etiquetas = new CalculoRaptor.EtiquetasRaptor(maximoRondas, n,
+                    mapaGrafo.cantidadLineas());
+            int[][] antes = new int[maximoRondas + 1][];
+            for (int i = salidas.length - 1; i >= 0; i--) {
+                for (int k = 0; k <= maximoRondas; k++) {
+                    antes[k] = etiquetas.llegada[k].clone();
+                }
+                etiquetas.llegada[0][origen] = salidas[i];
+                etiquetas.mejorLlegada[origen] = salidas[i];
+                etiquetas.marcada[origen] = true;
+                raptor.ejecutarRondas(mapaGrafo, dia, etiquetas, -1);
+
+                for (int k = 1; k <= maximoRondas; k++) {
+                    for (int destino = 0; destino < n; destino++) {
+                        if (destino != origen && etiquetas.llegada[k][destino] < antes[k][destino]
+                                && etiquetas.lineaPadre[k][destino] != -1) {
+                            porDestino.get(destino).add(extraerPatron(etiquetas, k, destino));
+                        }
+                    }
+                }
+            }
+        }
+
+        int[][][] resultado = new int[n][][];
+        for (int destino = 0; destino < n; destino++) {
+            Set<Patron> conjunto = porDestino.get(destino);
+            resultado[destino] = new int[conjunto.size()][];
+            int i = 0;
+            for (Patron patron : conjunto) {
+                resultado[destino][i++] = patron.colectivos;
+            }
+            //Primero los patrones con menos colectivos, asi ante la misma llegada se prefiere el de menos transbordos
+            Arrays.sort(resultado[destino], (a, b) -> Integer.compare(a.length, b.length));
+        }
+        return resultado;
+    }
+
+    /**
+     * Extrae la secuencia de colectivos del viaje que llega a una parada en una ronda.
+     * @param etiquetas etiquetas de la busqueda
+     * @param ronda ronda en la que se llego a la parada
+     * @param parada indice de la parada de llegada
+     * @return el patron del viaje
+     */
+    private Patron extraerPatron(CalculoRaptor.EtiquetasRaptor etiquetas, int ronda, int parada) {
+        int[] colectivos = new int[3 * ronda];
+        int cantidad = 0;
+        int k = ronda;
+        while (k > 0) {
+            while (k > 0 && etiquetas.lineaPadre[k][parada] == -1) {
+                k--;
+            }
+            if (k == 0) {
+                break;
+            }
+            int linea = etiquetas.lineaPadre[k][parada];
+            colectivos[cantidad++] = linea;
+            colectivos[cantidad++] = etiquetas.subidaPadre[k][parada];
+            colectivos[cantidad++] = etiquetas.bajadaPadre[k][parada];
+            parada = mapaGrafo.paradaDeLinea(linea, etiquetas.subidaPadre[k][parada]);
+            k--;
+        }
+        //Los colectivos quedaron del ultimo al primero, los damos vuelta
+        int[] ordenados = new int[cantidad];
+        for (int i = 0; i < cantidad; i += 3) {
+            System.arraycopy(colectivos, i, ordenados, cantidad - 3 - i, 3);
+        }
+        return new Patron(ordenados);
+    }
+
+    /**
+     * Indica si los patrones se calcularon con un grafo dado.
+     * @param otroGrafo grafo a comparar
+     * @return true si es el mismo grafo
+     */
+    public boolean esDe(MapaGrafo otroGrafo) {
+        return mapaGrafo == otroGrafo;
+    }
+
+    /**
+     * Obtiene la cantidad total de patrones guardados.
+     * @return cantidad de patrones
+     */
+    public int cantidadPatrones() {
+        int total = 0;
+        for (int[][][] desdeOrigen : patrones) {
+            for (int[][] haciaDestino : desdeOrigen) {
+                total += haciaDestino.length;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Calcula el recorrido armando el grafo para esta consulta. Como los patrones estan atados a su grafo, se resuelve
+     * con RAPTOR.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada
+     * @param tramos
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, Map<String, Tramo> tramos) {
+        return calcularRecorrido(paradaOrigen, paradaDestino, diaSemana, horaLlegada, new MapaGrafo(tramos));
+    }
+
+    /**
+     * Calcula los recorridos evaluando solo los patrones del par de paradas. Devuelve, para cada cantidad de
+     * colectivos, el viaje que llega antes, siempre que llegue antes que los viajes con menos transbordos. Si el
+     * grafo no es el de los patrones, se resuelve con RAPTOR.
+     * @param paradaOrigen
+     * @param paradaDestino
+     * @param diaSemana
+     * @param horaLlegada hora de llegada a la parada de origen
+     * @param mapaGrafo grafo inmutable de la red
+     * @return
+     */
+    @Override
+    public List<List<Recorrido>> calcularRecorrido(Parada paradaOrigen, Parada paradaDestino, int diaSemana,
+                                                   LocalTime horaLlegada, MapaGrafo mapaGrafo) {
+        if (!esDe(mapaGrafo)) {
+            return new CalculoRaptor(maximoRondas).calcularRecorrido(paradaOrigen, paradaDestino, diaSemana,
+                    horaLlegada, mapaGrafo);
+        }
+        List<List<Recorrido>> soluciones = new ArrayList<>();
+        int origen = mapaGrafo.indiceDe(paradaOrigen.getCodigo());
+        int destino = mapaGrafo.indiceDe(paradaDestino.getCodigo());
+        if (origen == -1 || destino == -1 || origen == destino || diaSemana < 1 || diaSemana > 7) {
+            return soluciones;
+        }
+
+        //Mejor patron para cada cantidad de colectivos
+        int[] mejorLlegada = new int[maximoRondas + 1];
+        int[][] mejorPatron = new int[maximoRondas + 1][];
+        Arrays.fill(mejorLlegada, INFINITO);
+        for (int[] patron : patrones[origen][destino]) {
+            int llegada = evaluar(patron, diaSemana, horaLlegada.toSecondOfDay(), null);
+            int colectivos = patron.length / 3;
+            if (llegada < mejorLlegada[colectivos]) {
+                mejorLlegada[colectivos] = llegada;
+                mejorPatron[colectivos] = patron;
+            }
+        }
+
+        int mejorHastaAhora = INFINITO;
+        for (int colectivos = 1; colectivos <= maximoRondas; colectivos++) {
+            if (mejorLlegada[colectivos] < mejorHastaAhora) {
+                mejorHastaAhora = mejorLlegada[colectivos];
+                List<Recorrido> viaje = new ArrayList<>();
+                evaluar(mejorPatron[colectivos], diaSemana, horaLlegada.toSecondOfDay(), viaje);
+                soluciones.add(viaje);
+            }
+        }
+        return soluciones;
+    }
+
+    /**
+     * Evalua un patron contra los horarios, tomando en cada parada de subida el primer viaje de la linea que pasa
+     * despues de llegar.
+     * @param patron secuencia de colectivos
+     * @param dia dia de la semana
+     * @param salida hora a la que se esta en el origen, en segundos desde la medianoche
+     * @param viaje lista donde se agregan los recorridos del viaje, o null si solo se quiere la hora de llegada
+     * @return hora de llegada al destino, o INFINITO si algun colectivo ya no pasa
+     */
+    private int evaluar(int[] patron, int dia, int salida, List<Recorrido> viaje) {
+        int hora = salida;
+        for (int i = 0; i < patron.length; i += 3) {
+            int linea = patron[i];
+            int subida = patron[i + 1];
+            int bajada = patron[i + 2];
+            int numeroViaje = mapaGrafo.primerViajeDesde(linea, dia, subida, hora);
+            if (numeroViaje == -1) {
+                return INFINITO;
+            }
+            hora = mapaGrafo.horaDeViaje(linea, dia, numeroViaje, bajada);
+            if (viaje != null) {
+                viaje.addAll(mapaGrafo.armarViaje(linea, dia, numeroViaje, subida, bajada));
+            }
+        }
+        return hora;
+    }
+
+    /**
+     * Patron de transbordo mientras se calcula, comparable por contenido para no guardar repetidos.
+     */
+    private static final class Patron {
+
+        /**
+         * Tres enteros por colectivo: linea, posicion de subida y posicion de bajada.
+         */
+        private final int[] colectivos;
+
+        Patron(int[] colectivos) {
+            this.colectivos = colectivos;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Patron && Arrays.equals(colectivos, ((Patron) o).colectivos);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(colectivos);
+        }
+    }
+}
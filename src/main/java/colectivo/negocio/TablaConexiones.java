@@ -0,0 +1,245 @@
+package colectivo.negocio;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase guarda todas las conexiones elementales de un dia: cada vez que un colectivo sale de una parada de su
+ * recorrido y llega a la siguiente. Las conexiones quedan en arreglos paralelos de enteros (uno por atributo)
+ * ordenados por hora de salida, para que el algoritmo de escaneo de conexiones las recorra en orden y sin crear
+ * objetos.
+ * La tabla es inmutable, se arma una sola vez por dia para cada grafo y se puede compartir entre consultas que se
+ * ejecutan al mismo tiempo.
+ */
+final class TablaConexiones {
+
+    /**
+     * Hora de salida de cada conexion, en segundos desde la medianoche.
+     */
+    private final int[] salida;
+
+    /**
+     * Hora de llegada de cada conexion, en segundos desde la medianoche.
+     */
+    private final int[] llegada;
+
+    /**
+     * Indice denso de la parada de salida de cada conexion.
+     */
+    private final int[] paradaSalida;
+
+    /**
+     * Indice denso de la parada de llegada de cada conexion.
+     */
+    private final int[] paradaLlegada;
+
+    /**
+     * Viaje al que pertenece cada conexion, numerado de 0 a cantidadViajes - 1 entre todas las lineas.
+     */
+    private final int[] viaje;
+
+    /**
+     * Posicion dentro del recorrido de la linea de la parada de salida de cada conexion.
+     */
+    private final int[] posicion;
+
+    /**
+     * Linea de cada viaje.
+     */
+    private final int[] lineaDeViaje;
+
+    /**
+     * Indice de cada viaje dentro de las salidas del dia de su linea.
+     */
+    private final int[] salidaDeViaje;
+
+    /**
+     * Constructor privado de la clase TablaConexiones, las tablas se arman con {@link #armar(MapaGrafo, int)}.
+     */
+    private TablaConexiones(int[] salida, int[] llegada, int[] paradaSalida, int[] paradaLlegada, int[] viaje,
+                            int[] posicion, int[] lineaDeViaje, int[] salidaDeViaje) {
+        this.salida = salida;
+        this.llegada = llegada;
+        this.paradaSalida = paradaSalida;
+        this.paradaLlegada = paradaLlegada;
+        this.viaje = viaje;
+        this.posicion = posicion;
+        this.lineaDeViaje = lineaDeViaje;
+        this.salidaDeViaje = salidaDeViaje;
+    }
+
+    /**
+     * Arma la tabla de conexiones de un dia a partir del recorrido de cada linea y de sus salidas desde la cabecera.
+     * Para ordenar sin crear objetos, cada conexion se codifica en un long con la hora de salida en la parte alta y
+     * el orden de generacion en la parte baja; asi, a igual hora de salida, las conexiones de un mismo viaje quedan en
+     * el orden del recorrido.
+     * @param mapaGrafo grafo de la red
+     * @param dia dia de la semana (1-7)
+     * @return la tabla de conexiones del dia
+     */
+    static TablaConexiones armar(MapaGrafo mapaGrafo, int dia) {
+        int cantidadViajes = 0;
+        int cantidadConexiones = 0;
+        for (int l = 0; l < mapaGrafo.cantidadLineas(); l++) {
+            if (mapaGrafo.largoDeLinea(l) > 1) {
+                int salidasLinea = mapaGrafo.lineaEn(l).obtenerSalidasPorDia(dia).length;
+                cantidadViajes += salidasLinea;
+                cantidadConexiones += salidasLinea * (mapaGrafo.largoDeLinea(l) - 1);
+            }
+        }
+
+        int[] lineaDeViaje = new int[cantidadViajes];
+        int[] salidaDeViaje = new int[cantidadViajes];
+        int[] salidaSinOrden = new int[cantidadConexiones];
+        int[] viajeSinOrden = new int[cantidadConexiones];
+        int[] posicionSinOrden = new int[cantidadConexiones];
+        long[] claves = new long[cantidadConexiones];
+
+        int v = 0;
+        int c = 0;
+        for (int l = 0; l < mapaGrafo.cantidadLineas(); l++) {
+            int largo = mapaGrafo.largoDeLinea(l);
+            if (largo < 2) {
+                continue;
+            }
+            int[] salidasLinea = mapaGrafo.lineaEn(l).obtenerSalidasPorDia(dia);
+            for (int s = 0; s < salidasLinea.length; s++, v++) {
+                lineaDeViaje[v] = l;
+                salidaDeViaje[v] = s;
+                for (int pos = 0; pos < largo - 1; pos++, c++) {
+                    salidaSinOrden[c] = salidasLinea[s] + mapaGrafo.acumuladoDeLinea(l, pos);
+                    viajeSinOrden[c] = v;
+                    posicionSinOrden[c] = pos;
+                    claves[c] = ((long) salidaSinOrden[c] << 32) | c;
+                }
+            }
+        }
+        Arrays.sort(claves);
+
+        int[] salida = new int[cantidadConexiones];
+        int[] llegada = new int[cantidadConexiones];
+        int[] paradaSalida = new int[cantidadConexiones];
+        int[] paradaLlegada = new int[cantidadConexiones];
+        int[] viaje = new int[cantidadConexiones];
+        int[] posicion = new int[cantidadConexiones];
+        for (int i = 0; i < cantidadConexiones; i++) {
+            int original = (int) claves[i];
+            int l = lineaDeViaje[viajeSinOrden[original]];
+            int pos = posicionSinOrden[original];
+            salida[i] = salidaSinOrden[original];
+            llegada[i] = salida[i] + mapaGrafo.acumuladoDeLinea(l, pos + 1) - mapaGrafo.acumuladoDeLinea(l, pos);
+            paradaSalida[i] = mapaGrafo.paradaDeLinea(l, pos);
+            paradaLlegada[i] = mapaGrafo.paradaDeLinea(l, pos + 1);
+            viaje[i] = viajeSinOrden[original];
+            posicion[i] = pos;
+        }
+        return new TablaConexiones(salida, llegada, paradaSalida, paradaLlegada, viaje, posicion, lineaDeViaje,
+                salidaDeViaje);
+    }
+
+    /**
+     * Busca con busqueda binaria la primera conexion que sale a partir de una hora.
+     * @param segundos hora en segundos desde la medianoche
+     * @return indice de la primera conexion que sale a esa hora o despues, o la cantidad de conexiones si no hay
+     */
+    int primeraConexionDesde(int segundos) {
+        int desde = 0;
+        int hasta = salida.length;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (salida[medio] < segundos) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+
+    /**
+     * Obtiene la cantidad de conexiones del dia.
+     * @return cantidad de conexiones
+     */
+    int cantidadConexiones() {
+        return salida.length;
+    }
+
+    /**
+     * Obtiene la cantidad de viajes del dia entre todas las lineas.
+     * @return cantidad de viajes
+     */
+    int cantidadViajes() {
+        return lineaDeViaje.length;
+    }
+
+    /**
+     * Obtiene la hora de salida de una conexion.
+     * @param conexion indice de la conexion
+     * @return hora de salida en segundos desde la medianoche
+     */
+    int salida(int conexion) {
+        return salida[conexion];
+    }
+
+    /**
+     * Obtiene la hora de llegada de una conexion.
+     * @param conexion indice de la conexion
+     * @return hora de llegada en segundos desde la medianoche
+     */
+    int llegada(int conexion) {
+        return llegada[conexion];
+    }
+
+    /**
+     * Obtiene la parada de salida de una conexion.
+     * @param conexion indice de la conexion
+     * @return indice denso de la parada
+     */
+    int paradaSalida(int conexion) {
+        return paradaSalida[conexion];
+    }
+
+    /**
+     * Obtiene la parada de llegada de una conexion.
+     * @param conexion indice de la conexion
+     * @return indice denso de la parada
+     */
+    int paradaLlegada(int conexion) {
+        return paradaLlegada[conexion];
+    }
+
+    /**
+     * Obtiene el viaje al que pertenece una conexion.
+     * @param conexion indice de la conexion
+     * @return numero de viaje
+     */
+    int viaje(int conexion) {
+        return viaje[conexion];
+    }
+
+    /**
+     * Obtiene la posicion en el recorrido de la linea de la parada de salida de una conexion.
+     * @param conexion indice de la conexion
+     * @return posicion dentro del recorrido
+     */
+    int posicion(int conexion) {
+        return posicion[conexion];
+    }
+
+    /**
+     * Obtiene la linea de un viaje.
+     * @param viaje numero de viaje
+     * @return indice denso de la linea
+     */
+    int lineaDeViaje(int viaje) {
+        return lineaDeViaje[viaje];
+    }
+
+    /**
+     * Obtiene el indice de un viaje dentro de las salidas del dia de su linea.
+     * @param viaje numero de viaje
+     * @return indice en las salidas del dia de la linea
+     */
+    int salidaDeViaje(int viaje) {
+        return salidaDeViaje[viaje];
+    }
+}
@@ -0,0 +1,128 @@
+package colectivo.negocio;
+
+/**
+ * Esta clase guarda los viajes de un dia ya armados: para cada linea, la hora a la que cada viaje (cada salida desde la
+ * cabecera) pasa por cada parada de su recorrido, sumando a la salida los tiempos de los tramos. Asi la hora de paso
+ * por una parada intermedia no hay que volver a calcularla en cada arista.
+ * Las horas de cada linea van en un solo arreglo de enteros, una matriz de paradas por viajes guardada por parada:
+ * los viajes que pasan por una misma posicion del recorrido quedan contiguos y ordenados, y el primer viaje que se
+ * puede tomar en cualquier parada se busca con busqueda binaria.
+ * La tabla es inmutable, se arma una sola vez por dia para cada grafo y se puede compartir entre consultas que se
+ * ejecutan al mismo tiempo.
+ */
+final class TablaViajes {
+
+    /**
+     * Cantidad de viajes del dia de cada linea.
+     */
+    private final int[] cantidadViajes;
+
+    /**
+     * Horas de paso de cada linea: la hora del viaje v por la posicion p es horas[linea][p * cantidadViajes + v], en
+     * segundos desde la medianoche.
+     */
+    private final int[][] horas;
+
+    /**
+     * Constructor privado de la clase TablaViajes, las tablas se arman con {@link #armar(MapaGrafo, int)}.
+     */
+    private TablaViajes(int[] cantidadViajes, int[][] horas) {
+        this.cantidadViajes = cantidadViajes;
+        this.horas = horas;
+    }
+
+    /**
+     * Arma la tabla de viajes de un dia a partir de las salidas de cada linea desde la cabecera y de los tiempos
+     * acumulados de su recorrido.
+     * @param mapaGrafo grafo de la red
+     * @param dia dia de la semana (1-7)
+     * @return la tabla de viajes del dia
+     */
+    static TablaViajes armar(MapaGrafo mapaGrafo, int dia) {
+        int cantidadLineas = mapaGrafo.cantidadLineas();
+        int[] cantidadViajes = new int[cantidadLineas];
+        int[][] horas = new int[cantidadLineas][];
+        for (int l = 0; l < cantidadLineas; l++) {
+            int[] salidas = mapaGrafo.lineaEn(l).obtenerSalidasPorDia(dia);
+            int largo = mapaGrafo.largoDeLinea(l);
+            int viajes = salidas.length;
+            cantidadViajes[l] = viajes;
+            horas[l] = new int[largo * viajes];
+            for (int pos = 0; pos < largo; pos++) {
+                int acumulado = mapaGrafo.acumuladoDeLinea(l, pos);
+                for (int v = 0; v < viajes; v++) {
+                    horas[l][pos * viajes + v] = salidas[v] + acumulado;
+                }
+            }
+        }
+        return new TablaViajes(cantidadViajes, horas);
+    }
+
+    /**
+     * Obtiene la cantidad de viajes del dia de una linea.
+     * @param linea indice denso de la linea
+     * @return cantidad de viajes
+     */
+    int cantidadViajes(int linea) {
+        return cantidadViajes[linea];
+    }
+
+    /**
+     * Obtiene la hora a la que un viaje pasa por una posicion del recorrido de su linea.
+     * @param linea indice denso de la linea
+     * @param viaje indice del viaje en las salidas del dia
+     * @param posicion posicion dentro del recorrido
+     * @return la hora de paso, en segundos desde la medianoche
+     */
+    int hora(int linea, int viaje, int posicion) {
+        return horas[linea][posicion * cantidadViajes[linea] + viaje];
+    }
+
+    /**
+     * Busca el primer viaje de una linea que pasa por una posicion de su recorrido a partir de una hora.
+     * @param linea indice denso de la linea
+     * @param posicion posicion dentro del recorrido
+     * @param segundos hora a partir de la cual se espera, en segundos desde la medianoche
+     * @return el indice del viaje, o -1 si ya no pasan colectivos
+     */
+    int primerViajeDesde(int linea, int posicion, int segundos) {
+        int viajes = cantidadViajes[linea];
+        int base = posicion * viajes;
+        int[] columna = horas[linea];
+        int desde = 0;
+        int hasta = viajes;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (columna[base + medio] < segundos) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde < viajes ? desde : -1;
+    }
+
+    /**
+     * Busca el ultimo viaje de una linea que pasa por una posicion de su recorrido hasta una hora.
+     * @param linea indice denso de la linea
+     * @param posicion posicion dentro del recorrido
+     * @param segundos hora hasta la que se busca, en segundos desde la medianoche
+     * @return el indice del viaje, o -1 si no pasa ninguno antes de esa hora
+     */
+    int ultimoViajeHasta(int linea, int posicion, int segundos) {
+        int viajes = cantidadViajes[linea];
+        int base = posicion * viajes;
+        int[] columna = horas[linea];
+        int desde = 0;
+        int hasta = viajes;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (columna[base + medio] <= segundos) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde - 1;
+    }
+}
@@ -0,0 +1,333 @@
+package colectivo.controlador;
+
+import colectivo.aplicacion.ConfiguracionGlobal;
+import colectivo.aplicacion.Constantes;
+import colectivo.modelo.Linea;
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+import colectivo.servicio.LineaService;
+import colectivo.servicio.ParadaService;
+import colectivo.servicio.TramoService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de CoordinadorApp: las estrategias de una consulta, que corren a la vez en los hilos de estrategias, y la
+ * cache de recorridos, que no puede devolver viajes armados con datos de la red que ya cambiaron.
+ */
+class CoordinadorAppTest {
+
+    private static final int LUNES = 1;
+
+    /**
+     * Una estrategia que falla y otra que no termina en el plazo se descartan solas, sin perder la que termino, y la
+     * que no termino se interrumpe.
+     */
+    @Test
+    void soloSeDescartanLasEstrategiasQueFallanONoTerminan() throws InterruptedException {
+        CoordinadorApp coordinador = new CoordinadorApp();
+        AtomicBoolean interrumpida = new AtomicBoolean();
+        List<Callable<List<List<Recorrido>>>> tareas = new ArrayList<>();
+        tareas.add(() -> resultado(1));
+        tareas.add(() -> {
+            throw new IllegalStateException("falla a proposito");
+        });
+        tareas.add(() -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrumpida.set(true);
+            }
+            return resultado(3);
+        });
+
+        long inicio = System.currentTimeMillis();
+        List<List<List<Recorrido>>> porEstrategia = coordinador.ejecutarEstrategias(tareas,
+                List.of("Termina", "Falla", "No termina"), 200);
+        long demora = System.currentTimeMillis() - inicio;
+
+        assertEquals(3, porEstrategia.size());
+        assertEquals(resultado(1), porEstrategia.get(0));
+        assertNull(porEstrategia.get(1), "la que falla se descarta");
+        assertNull(porEstrategia.get(2), "la que no termina se descarta");
+        assertTrue(demora < 5_000, "no se espero mas que el plazo: " + demora + " ms");
+        Thread.sleep(100);
+        assertTrue(interrumpida.get(), "la que no termina se interrumpe");
+    }
+
+    /**
+     * Cada resultado queda en el lugar de su estrategia aunque termine despues de las siguientes.
+     */
+    @Test
+    void losResultadosQuedanEnElOrdenDeLasEstrategias() throws InterruptedException {
+        CoordinadorApp coordinador = new CoordinadorApp();
+        List<Callable<List<List<Recorrido>>>> tareas = new ArrayList<>();
+        tareas.add(() -> {
+            Thread.sleep(150);
+            return resultado(1);
+        });
+        tareas.add(() -> resultado(2));
+        tareas.add(() -> resultado(3));
+
+        List<List<List<Recorrido>>> porEstrategia = coordinador.ejecutarEstrategias(tareas,
+                List.of("Lenta", "Rapida", "Rapida"), 5_000);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(resultado(i + 1), porEstrategia.get(i));
+        }
+    }
+
+    /**
+     * El plazo de cada estrategia empieza cuando corre: con mas estrategias que hilos, las que esperan en la cola no
+     * se descartan aunque la consulta ya lleve mas que el plazo.
+     */
+    @Test
+    void elPlazoEmpiezaCuandoLaEstrategiaCorre() throws InterruptedException {
+        CoordinadorApp coordinador = new CoordinadorApp();
+        List<Callable<List<List<Recorrido>>>> tareas = new ArrayList<>();
+        List<String> nombres = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            int numero = i;
+            tareas.add(() -> {
+                Thread.sleep(150);
+                return resultado(numero);
+            });
+            nombres.add("Estrategia " + i);
+        }
+
+        //Con tres hilos, la ultima empieza despues de unos 300 ms, mas que el plazo de 250 ms
+        List<List<List<Recorrido>>> porEstrategia = coordinador.ejecutarEstrategias(tareas, nombres, 250);
+
+        for (int i = 0; i < tareas.size(); i++) {
+            assertNotNull(porEstrategia.get(i), "la estrategia " + i + " se descarto");
+        }
+    }
+
+    /**
+     * Quitar los horarios de una linea que no sale del origen no cambia la clave de la consulta, pero tiene que
+     * descartar el viaje guardado que la usaba.
+     */
+    @Test
+    void quitarLasFrecuenciasDescartaLosViajesGuardados() {
+        Red red = new Red();
+        CoordinadorApp coordinador = red.coordinador();
+
+        assertEquals(List.of("L1+L2"), viajesEnColectivo(coordinador, red.a, red.c));
+        assertEquals(List.of("L1+L2"), viajesEnColectivo(coordinador, red.a, red.c), "tomado de la cache");
+
+        coordinador.quitarFrecuencia(red.l2, LUNES, "08:12");
+        coordinador.quitarFrecuencia(red.l2, LUNES, "08:30");
+
+        assertEquals(List.of(), viajesEnColectivo(coordinador, red.a, red.c), "L2 ya no sale los lunes");
+    }
+
+    /**
+     * Agregar, cambiar y borrar lineas reconstruye el grafo y descarta los viajes guardados. Todas las lineas nuevas
+     * salen de A despues de L1, asi la clave de la consulta no cambia.
+     */
+    @Test
+    void cambiarLasLineasDescartaLosViajesGuardados() {
+        Red red = new Red();
+        CoordinadorApp coordinador = red.coordinador();
+        assertEquals(List.of("L1+L2"), viajesEnColectivo(coordinador, red.a, red.c));
+
+        //L3 pasa por B a las 08:11 y llega a C a las 08:16, antes que L2; con transbordo se llega a B con L1
+        coordinador.insertarLinea(lineaDeAaC(red, "08:06"));
+        assertEquals(List.of("L1+L3", "L3"), viajesEnColectivo(coordinador, red.a, red.c));
+
+        //Si sale 08:20 sigue siendo directo, pero con transbordo conviene L1 y L2
+        coordinador.actualizarLinea(lineaDeAaC(red, "08:20"));
+        assertEquals(List.of("L1+L2", "L3"), viajesEnColectivo(coordinador, red.a, red.c));
+
+        Linea l3 = red.lineas.get("L3");
+        coordinador.agregarFrecuencia(l3, LUNES, "08:06");
+        assertEquals(List.of("L1+L3", "L3"), viajesEnColectivo(coordinador, red.a, red.c));
+
+        coordinador.borrarLinea(l3);
+        assertEquals(List.of("L1+L2"), viajesEnColectivo(coordinador, red.a, red.c));
+
+        coordinador.borrarLinea(red.l2);
+        assertFalse(String.join(" ", viajesEnColectivo(coordinador, red.a, red.c)).contains("L2"),
+                "L2 ya no existe");
+    }
+
+    private static Linea lineaDeAaC(Red red, String salida) {
+        Linea linea = new Linea("L3", "L3");
+        linea.agregarParada(red.a);
+        linea.agregarParada(red.b);
+        linea.agregarParada(red.c);
+        linea.agregarFrecuencia(LUNES, LocalTime.parse(salida));
+        return linea;
+    }
+
+    /**
+     * Calcula el recorrido saliendo a las 08:00 y describe cada viaje en colectivo con sus lineas, en orden.
+     * @return las lineas de cada viaje en colectivo, como "L1+L2", ordenadas
+     */
+    private static List<String> viajesEnColectivo(CoordinadorApp coordinador, Parada origen, Parada destino) {
+        coordinador.ejecutarCalculo(origen, destino, LUNES, "08:00");
+        List<String> viajes = new ArrayList<>();
+        for (List<Recorrido> viaje : coordinador.getRecorridoSolucion()) {
+            List<String> lineas = new ArrayList<>();
+            for (Recorrido recorrido : viaje) {
+                String codigo = recorrido.getLinea() == null ? null : recorrido.getLinea().getCodigo();
+                if (codigo != null && !Constantes.CODIGO_LINEA_PEATON.equals(codigo)
+                        && (lineas.isEmpty() || !lineas.get(lineas.size() - 1).equals(codigo))) {
+                    lineas.add(codigo);
+                }
+            }
+            if (!lineas.isEmpty()) {
+                viajes.add(String.join("+", lineas));
+            }
+        }
+        Collections.sort(viajes);
+        return viajes;
+    }
+
+    /**
+     * Arma un resultado distinto para cada numero.
+     */
+    private static List<List<Recorrido>> resultado(int numero) {
+        Recorrido recorrido = new Recorrido();
+        recorrido.setDuracion(numero);
+        return List.of(List.of(recorrido));
+    }
+
+    /**
+     * Red de tres paradas: L1 va de A a B a las 08:05 y L2 de B a C a las 08:12 y 08:30, con tramos de 5 minutos.
+     * Los servicios la guardan en memoria.
+     */
+    private static final class Red {
+
+        final Parada a = new Parada(1, "A", -42.770, -65.040);
+        final Parada b = new Parada(2, "B", -42.780, -65.040);
+        final Parada c = new Parada(3, "C", -42.790, -65.040);
+        final Linea l1 = new Linea("L1", "L1");
+        final Linea l2 = new Linea("L2", "L2");
+        final Map<Integer, Parada> paradas = new LinkedHashMap<>();
+        final Map<String, Tramo> tramos = new LinkedHashMap<>();
+        final Map<String, Linea> lineas = new LinkedHashMap<>();
+
+        Red() {
+            for (Parada parada : List.of(a, b, c)) {
+                paradas.put(parada.getCodigo(), parada);
+            }
+            l1.agregarParada(a);
+            l1.agregarParada(b);
+            l1.agregarFrecuencia(LUNES, LocalTime.of(8, 5));
+            l2.agregarParada(b);
+            l2.agregarParada(c);
+            l2.agregarFrecuencia(LUNES, LocalTime.of(8, 12));
+            l2.agregarFrecuencia(LUNES, LocalTime.of(8, 30));
+            lineas.put(l1.getCodigo(), l1);
+            lineas.put(l2.getCodigo(), l2);
+            guardar(new Tramo(a, b, 300, Constantes.COLECTIVO));
+            guardar(new Tramo(b, c, 300, Constantes.COLECTIVO));
+        }
+
+        private void guardar(Tramo tramo) {
+            tramos.put(tramo.getInicio().getCodigo() + "-" + tramo.getFin().getCodigo() + "-" + tramo.getTipo(), tramo);
+        }
+
+        CoordinadorApp coordinador() {
+            ParadaService paradaService = new ParadaService() {
+                @Override
+                public void insertar(Parada parada) {
+                    paradas.put(parada.getCodigo(), parada);
+                }
+
+                @Override
+                public void actualizar(Parada parada) {
+                    paradas.put(parada.getCodigo(), parada);
+                }
+
+                @Override
+                public void borrar(Parada parada) {
+                    paradas.remove(parada.getCodigo());
+                }
+
+                @Override
+                public Map<Integer, Parada> buscarTodos() {
+                    return new LinkedHashMap<>(paradas);
+                }
+            };
+            TramoService tramoService = new TramoService() {
+                @Override
+                public void insertar(Tramo tramo) {
+                    guardar(tramo);
+                }
+
+                @Override
+                public void actualizar(Tramo tramo) {
+                    guardar(tramo);
+                }
+
+                @Override
+                public void borrar(Tramo tramo) {
+                    tramos.values().remove(tramo);
+                }
+
+                @Override
+                public Map<String, Tramo> buscarTodos() {
+                    return new LinkedHashMap<>(tramos);
+                }
+            };
+            LineaService lineaService = new LineaService() {
+                @Override
+                public void insertar(Linea linea) {
+                    lineas.put(linea.getCodigo(), linea);
+                }
+
+                @Override
+                public void actualizar(Linea linea) {
+                    lineas.put(linea.getCodigo(), linea);
+                }
+
+                @Override
+                public void borrar(Linea linea) {
+                    lineas.remove(linea.getCodigo());
+                }
+
+                @Override
+                public Map<String, Linea> buscarTodos() {
+                    return new LinkedHashMap<>(lineas);
+                }
+            };
+            return new CoordinadorApp(new ConfiguracionDePrueba(), paradaService, tramoService, lineaService);
+        }
+    }
+
+    /**
+     * Configuracion de la aplicacion con Dijkstra para los transbordos y sin archivo de la jerarquia, asi las pruebas
+     * no escriben archivos.
+     */
+    private static final class ConfiguracionDePrueba extends ConfiguracionGlobal {
+
+        @Override
+        public String getProperty(String clave) {
+            switch (clave) {
+                case "algoritmo.transbordo":
+                    return "dijkstra";
+                case "jerarquia.archivo":
+                    return null;
+                default:
+                    return super.getProperty(clave);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package colectivo.negocio;
+
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de CalculoCoordenadas: la busqueda con varios origenes y destinos tiene que llegar a la misma hora que la
+ * mejor combinacion de caminar a una parada cercana, viajar y caminar desde otra, calculada par por par.
+ */
+class CalculoCoordenadasTest {
+
+    private static final double RADIO_KM = 0.4;
+
+    @Test
+    void llegaALaMismaHoraQueProbarCadaParDeParadas() {
+        RedDePrueba red = new RedDePrueba(3, 14, 40);
+        MapaGrafo grafo = new MapaGrafo(red.tramos);
+        IndiceEspacial indice = new IndiceEspacial(red.paradas.values());
+        CalculoCoordenadas calculo = new CalculoCoordenadas(indice, RADIO_KM);
+        List<Parada> paradas = new ArrayList<>(red.paradas.values());
+        Random azar = new Random(11);
+        int conColectivo = 0;
+
+        for (int consulta = 0; consulta < 150; consulta++) {
+            Parada cercaOrigen = paradas.get(azar.nextInt(paradas.size()));
+            Parada cercaDestino = paradas.get(azar.nextInt(paradas.size()));
+            Parada origen = new Parada(-1, "Origen", cercaOrigen.getLatitud() + (azar.nextDouble() - 0.5) * 0.003,
+                    cercaOrigen.getLongitud() + (azar.nextDouble() - 0.5) * 0.003);
+            Parada destino = new Parada(-2, "Destino", cercaDestino.getLatitud() + (azar.nextDouble() - 0.5) * 0.003,
+                    cercaDestino.getLongitud() + (azar.nextDouble() - 0.5) * 0.003);
+            int dia = 1 + azar.nextInt(7);
+            LocalTime hora = LocalTime.of(7 + azar.nextInt(12), azar.nextInt(60));
+
+            List<List<Recorrido>> soluciones = calculo.calcularRecorrido(origen.getLatitud(), origen.getLongitud(),
+                    destino.getLatitud(), destino.getLongitud(), dia, hora, grafo);
+
+            assertEquals(1, soluciones.size());
+            List<Recorrido> camino = soluciones.get(0);
+            if (camino.size() > 1) {
+                conColectivo++;
+            }
+            for (int i = 1; i < camino.size(); i++) {
+                assertSame(camino.get(i - 1).getDestino(), camino.get(i).getOrigen(), "el camino esta cortado");
+            }
+            int llegada = camino.get(camino.size() - 1).getHoraLlegada().toSecondOfDay();
+            assertEquals(porPares(grafo, indice, origen, destino, dia, hora.toSecondOfDay()), llegada,
+                    "consulta " + consulta);
+        }
+        assertTrue(conColectivo > 0, "ninguna consulta tomo un colectivo");
+    }
+
+    /**
+     * Mejor llegada probando cada parada cercana al origen con una busqueda hasta todas las paradas. Las paradas sin
+     * tramos no estan en el grafo y se saltean.
+     */
+    private static int porPares(MapaGrafo grafo, IndiceEspacial indice, Parada origen, Parada destino, int dia,
+                                int salida) {
+        int mejor = salida + CalculoCaminando.segundosCaminando(origen, destino);
+        List<Parada> hacia = candidatas(indice, destino);
+        for (Parada desde : candidatas(indice, origen)) {
+            int indiceDesde = grafo.indiceDe(desde.getCodigo());
+            if (indiceDesde == -1) {
+                continue;
+            }
+            int[] llegadas = llegadas(grafo, indiceDesde, dia,
+                    salida + CalculoCaminando.segundosCaminando(origen, desde));
+            for (Parada parada : hacia) {
+                int indiceHacia = grafo.indiceDe(parada.getCodigo());
+                if (indiceHacia != -1 && llegadas[indiceHacia] != Integer.MAX_VALUE) {
+                    int caminando = CalculoCaminando.segundosCaminando(parada, destino);
+                    mejor = Math.min(mejor, llegadas[indiceHacia] + caminando);
+                }
+            }
+        }
+        return mejor;
+    }
+
+    private static List<Parada> candidatas(IndiceEspacial indice, Parada punto) {
+        List<Parada> paradas = indice.buscarEnRadio(punto.getLatitud(), punto.getLongitud(), RADIO_KM);
+        return paradas.isEmpty() ? indice.buscarCercanas(punto.getLatitud(), punto.getLongitud(), 1) : paradas;
+    }
+
+    /**
+     * Llegada mas temprana desde una parada a todas, con arreglos propios en lugar del espacio del hilo.
+     */
+    private static int[] llegadas(MapaGrafo grafo, int desde, int dia, int salida) {
+        int[] llegada = new int[grafo.cantidadParadas()];
+        Arrays.fill(llegada, Integer.MAX_VALUE);
+        MonticuloIndexado cola = new MonticuloIndexado(llegada.length);
+        llegada[desde] = salida;
+        cola.agregarOBajar(desde, salida);
+        while (!cola.estaVacio()) {
+            int actual = cola.sacarMinimo();
+            for (int arista = grafo.inicioAristas(actual); arista < grafo.finAristas(actual); arista++) {
+                int nueva = grafo.llegadaPorArista(arista, dia, llegada[actual]);
+                int vecino = grafo.destinoArista(arista);
+                if (nueva < llegada[vecino]) {
+                    llegada[vecino] = nueva;
+                    cola.agregarOBajar(vecino, nueva);
+                }
+            }
+        }
+        return llegada;
+    }
+}
@@ -0,0 +1,138 @@
+package colectivo.negocio;
+
+import colectivo.aplicacion.Constantes;
+import colectivo.modelo.Linea;
+import colectivo.modelo.Parada;
+import colectivo.modelo.Recorrido;
+import colectivo.modelo.Tramo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de CalculoMultimodal sobre redes chicas armadas a mano, donde se sabe cual es el viaje de menor costo.
+ */
+class CalculoMultimodalTest {
+
+    private static final int LUNES = 1;
+
+    private final Parada a = new Parada(1, "A", 0, 0);
+    private final Parada b = new Parada(2, "B", 0, 0);
+    private final Parada c = new Parada(3, "C", 0, 0);
+    private final Map<String, Tramo> tramos = new LinkedHashMap<>();
+
+    /**
+     * Caminar desde el origen hasta el primer colectivo no es transbordo: caminar a B y tomar L1 (llega 08:10, costo
+     * 600 s) le gana a esperar a L2 en A (llega 08:14, costo 840 s), aunque la penalizacion sea de 300 s.
+     */
+    @Test
+    void caminarHastaElPrimerColectivoNoEsTransbordo() {
+        agregarTramo(a, b, 120, Constantes.CAMINANDO);
+        agregarLinea("L1", "08:05", b, c);
+        agregarTramo(b, c, 300, Constantes.COLECTIVO);
+        agregarLinea("L2", "08:04", a, c);
+        agregarTramo(a, c, 600, Constantes.COLECTIVO);
+
+        List<Recorrido> viaje = calcular(new CalculoMultimodal(300, 1.0), a, c, "08:00");
+
+        assertEquals(2, viaje.size());
+        assertNull(viaje.get(0).getLinea(), "el primer tramo es la caminata");
+        assertEquals("L1", viaje.get(1).getLinea().getCodigo());
+        assertEquals(LocalTime.of(8, 10), viaje.get(1).getHoraLlegada());
+    }
+
+    /**
+     * Bajar de un colectivo y subir a otro si es transbordo: con 300 s de penalizacion conviene el directo que llega
+     * 08:15 (costo 900 s) antes que el transbordo que llega 08:11 (costo 660 + 300 s), y sin penalizacion al reves.
+     */
+    @Test
+    void cambiarDeColectivoPagaLaPenalizacion() {
+        agregarLinea("L1", "08:00", a, b);
+        agregarTramo(a, b, 300, Constantes.COLECTIVO);
+        agregarLinea("L2", "08:06", b, c);
+        agregarTramo(b, c, 300, Constantes.COLECTIVO);
+        agregarLinea("L3", "08:00", a, c);
+        agregarTramo(a, c, 900, Constantes.COLECTIVO);
+
+        List<Recorrido> conPenalizacion = calcular(new CalculoMultimodal(300, 1.0), a, c, "08:00");
+        assertEquals(1, conPenalizacion.size());
+        assertEquals("L3", conPenalizacion.get(0).getLinea().getCodigo());
+
+        List<Recorrido> sinPenalizacion = calcular(new CalculoMultimodal(0, 1.0), a, c, "08:00");
+        assertEquals(2, sinPenalizacion.size());
+        assertEquals(LocalTime.of(8, 11), sinPenalizacion.get(1).getHoraLlegada());
+    }
+
+    /**
+     * Las etiquetas son del hilo y se reusan: una consulta en una red grande seguida de una en una red chica, y la
+     * misma consulta repetida, dan los mismos viajes que en un hilo recien creado.
+     */
+    @Test
+    void lasEtiquetasDelHiloNoArrastranConsultasAnteriores() throws InterruptedException {
+        agregarTramo(a, b, 120, Constantes.CAMINANDO);
+        agregarLinea("L1", "08:05", b, c);
+        agregarTramo(b, c, 300, Constantes.COLECTIVO);
+        MapaGrafo chico = new MapaGrafo(tramos);
+
+        //Red grande: una linea de 400 paradas que sale cada 10 minutos
+        Map<String, Tramo> tramosGrandes = new LinkedHashMap<>();
+        Linea larga = new Linea("L9", "L9");
+        Parada anterior = null;
+        for (int codigo = 100; codigo < 500; codigo++) {
+            Parada parada = new Parada(codigo, "P" + codigo, 0, 0);
+            larga.agregarParada(parada);
+            if (anterior != null) {
+                tramosGrandes.put(anterior.getCodigo() + "-" + codigo + "-1",
+                        new Tramo(anterior, parada, 60, Constantes.COLECTIVO));
+            }
+            anterior = parada;
+        }
+        for (int minuto = 0; minuto < 24 * 60; minuto += 10) {
+            larga.agregarFrecuencia(LUNES, LocalTime.of(minuto / 60, minuto % 60));
+        }
+        MapaGrafo grande = new MapaGrafo(tramosGrandes);
+        Parada primera = larga.getParadas().get(0);
+
+        CalculoMultimodal calculo = new CalculoMultimodal(300, 1.5);
+        List<List<Recorrido>> esperado = new ArrayList<>();
+        Thread nuevo = new Thread(() -> esperado.addAll(
+                calculo.calcularRecorrido(a, c, LUNES, LocalTime.of(8, 0), chico)));
+        nuevo.start();
+        nuevo.join();
+
+        assertEquals(1, calculo.calcularRecorrido(primera, anterior, LUNES, LocalTime.of(8, 0), grande).size());
+        for (int i = 0; i < 3; i++) {
+            List<List<Recorrido>> obtenido = calculo.calcularRecorrido(a, c, LUNES, LocalTime.of(8, 0), chico);
+            assertEquals(esperado, obtenido);
+        }
+        assertTrue(calculo.calcularRecorrido(c, a, LUNES, LocalTime.of(8, 0), chico).isEmpty(),
+                "no hay vuelta de C a A");
+    }
+
+    private void agregarLinea(String codigo, String salida, Parada... paradas) {
+        Linea linea = new Linea(codigo, codigo);
+        for (Parada parada : paradas) {
+            linea.agregarParada(parada);
+        }
+        linea.agregarFrecuencia(LUNES, LocalTime.parse(salida));
+    }
+
+    private void agregarTramo(Parada inicio, Parada fin, int tiempo, int tipo) {
+        tramos.put(inicio.getCodigo() + "-" + fin.getCodigo() + "-" + tipo, new Tramo(inicio, fin, tiempo, tipo));
+    }
+
+    private List<Recorrido> calcular(CalculoMultimodal calculo, Parada origen, Parada destino, String hora) {
+        List<List<Recorrido>> soluciones = calculo.calcularRecorrido(origen, destino, LUNES, LocalTime.parse(hora),
+                new MapaGrafo(tramos));
+        assertEquals(1, soluciones.size());
+        return soluciones.get(0);
+    }
+}
@@ -0,0 +1,78 @@
+package colectivo.negocio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Pruebas de JerarquiaContraccion: los tiempos minimos tienen que ser los mismos que da un Dijkstra comun sobre las
+ * aristas del grafo, para todos los pares de paradas.
+ */
+class JerarquiaContraccionTest {
+
+    @Test
+    void elTiempoMinimoCoincideConDijkstraEnTodosLosPares() {
+        for (long semilla = 1; semilla <= 3; semilla++) {
+            MapaGrafo grafo = new MapaGrafo(new RedDePrueba(semilla, 8, 12).tramos);
+            JerarquiaContraccion jerarquia = new JerarquiaContraccion(grafo);
+            compararConDijkstra(grafo, jerarquia);
+        }
+    }
+
+    @Test
+    void laJerarquiaGuardadaSoloSeLeeConLosMismosTramos() throws IOException {
+        MapaGrafo grafo = new MapaGrafo(new RedDePrueba(7, 6, 8).tramos);
+        MapaGrafo otro = new MapaGrafo(new RedDePrueba(8, 6, 8).tramos);
+        Path archivo = Files.createTempFile("jerarquia", ".ch");
+        try {
+            new JerarquiaContraccion(grafo).guardar(archivo);
+
+            JerarquiaContraccion leida = JerarquiaContraccion.cargar(archivo, grafo);
+            assertNotNull(leida);
+            compararConDijkstra(grafo, leida);
+            assertNull(JerarquiaContraccion.cargar(archivo, otro), "se armo con otros tramos");
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    private static void compararConDijkstra(MapaGrafo grafo, JerarquiaContraccion jerarquia) {
+        int n = grafo.cantidadParadas();
+        for (int desde = 0; desde < n; desde++) {
+            int[] esperado = dijkstra(grafo, desde);
+            for (int hasta = 0; hasta < n; hasta++) {
+                assertEquals(esperado[hasta], jerarquia.tiempoMinimo(desde, hasta), desde + " -> " + hasta);
+            }
+        }
+    }
+
+    /**
+     * Tiempos minimos desde una parada a todas, sumando los tiempos de las aristas.
+     */
+    private static int[] dijkstra(MapaGrafo grafo, int desde) {
+        int[] tiempo = new int[grafo.cantidadParadas()];
+        Arrays.fill(tiempo, JerarquiaContraccion.INFINITO);
+        MonticuloIndexado cola = new MonticuloIndexado(tiempo.length);
+        tiempo[desde] = 0;
+        cola.agregarOBajar(desde, 0);
+        while (!cola.estaVacio()) {
+            int actual = cola.sacarMinimo();
+            for (int arista = grafo.inicioAristas(actual); arista < grafo.finAristas(actual); arista++) {
+                int vecino = grafo.destinoArista(arista);
+                int nuevo = tiempo[actual] + grafo.tiempoArista(arista);
+                if (nuevo < tiempo[vecino]) {
+                    tiempo[vecino] = nuevo;
+                    cola.agregarOBajar(vecino, nuevo);
+                }
+            }
+        }
+        return tiempo;
+    }
+}
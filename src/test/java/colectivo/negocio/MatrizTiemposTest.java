@@ -0,0 +1,89 @@
+package colectivo.negocio;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Pruebas de MatrizTiempos: cada celda tiene que ser la llegada de una busqueda desde su origen, y el pool que se
+ * pasa tiene que quedar abierto para la matriz siguiente.
+ */
+class MatrizTiemposTest {
+
+    @Test
+    void cadaCeldaEsLaLlegadaDeUnaBusquedaDesdeSuOrigen() {
+        MapaGrafo grafo = new MapaGrafo(new RedDePrueba(5, 10, 20).tramos);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int dia = 1; dia <= 7; dia += 3) {
+                LocalTime hora = LocalTime.of(8, 15);
+                MatrizTiempos matriz = new MatrizTiempos(grafo, dia, hora, pool);
+                assertFalse(pool.isShutdown(), "la matriz no cierra el pool");
+                int n = grafo.cantidadParadas();
+                assertEquals(n, matriz.cantidadParadas());
+                for (int origen = 0; origen < n; origen++) {
+                    int[] esperado = llegadas(grafo, origen, dia, hora.toSecondOfDay());
+                    for (int destino = 0; destino < n; destino++) {
+                        assertEquals(esperado[destino], matriz.llegada(origen, destino),
+                                "dia " + dia + ", " + origen + " -> " + destino);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void daLoMismoConUnHiloQueConVarios() {
+        MapaGrafo grafo = new MapaGrafo(new RedDePrueba(6, 10, 20).tramos);
+        ForkJoinPool unHilo = new ForkJoinPool(1);
+        ForkJoinPool variosHilos = new ForkJoinPool(4);
+        try {
+            MatrizTiempos esperada = new MatrizTiempos(grafo, 2, LocalTime.of(18, 0), unHilo);
+            MatrizTiempos obtenida = new MatrizTiempos(grafo, 2, LocalTime.of(18, 0), variosHilos);
+            int n = grafo.cantidadParadas();
+            for (int origen = 0; origen < n; origen++) {
+                for (int destino = 0; destino < n; destino++) {
+                    assertEquals(esperada.segundosDeViaje(origen, destino), obtenida.segundosDeViaje(origen, destino));
+                }
+            }
+        } finally {
+            unHilo.shutdown();
+            variosHilos.shutdown();
+        }
+    }
+
+    /**
+     * Llegadas desde un origen con arreglos propios, con SIN_LLEGADA en las paradas que no se alcanzan.
+     */
+    private static int[] llegadas(MapaGrafo grafo, int desde, int dia, int salida) {
+        int[] llegada = new int[grafo.cantidadParadas()];
+        Arrays.fill(llegada, Integer.MAX_VALUE);
+        MonticuloIndexado cola = new MonticuloIndexado(llegada.length);
+        llegada[desde] = salida;
+        cola.agregarOBajar(desde, salida);
+        while (!cola.estaVacio()) {
+            int actual = cola.sacarMinimo();
+            for (int arista = grafo.inicioAristas(actual); arista < grafo.finAristas(actual); arista++) {
+                int nueva = grafo.llegadaPorArista(arista, dia, llegada[actual]);
+                int vecino = grafo.destinoArista(arista);
+                if (nueva < llegada[vecino]) {
+                    llegada[vecino] = nueva;
+                    cola.agregarOBajar(vecino, nueva);
+                }
+            }
+        }
+        for (int i = 0; i < llegada.length; i++) {
+            if (llegada[i] == Integer.MAX_VALUE) {
+                llegada[i] = MatrizTiempos.SIN_LLEGADA;
+            }
+        }
+        return llegada;
+    }
+}
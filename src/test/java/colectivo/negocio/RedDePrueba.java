@@ -0,0 +1,101 @@
+package colectivo.negocio;
+
+import colectivo.aplicacion.Constantes;
+import colectivo.modelo.Linea;
+import colectivo.modelo.Parada;
+import colectivo.modelo.Tramo;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Red de prueba armada al azar con una semilla fija: paradas en una grilla a unos 200 m, lineas que recorren paradas
+ * vecinas sin repetir y que salen cada 5 minutos de 6 a 22 todos los dias, y algunas caminatas entre paradas vecinas.
+ */
+final class RedDePrueba {
+
+    /**
+     * Paradas de la red, por codigo.
+     */
+    final Map<Integer, Parada> paradas = new LinkedHashMap<>();
+
+    /**
+     * Tramos de la red, con la clave "origen-destino-tipo".
+     */
+    final Map<String, Tramo> tramos = new LinkedHashMap<>();
+
+    /**
+     * Arma una red de lado por lado paradas.
+     * @param semilla semilla del azar
+     * @param lado cantidad de paradas por lado de la grilla
+     * @param cantidadLineas cantidad de lineas
+     */
+    RedDePrueba(long semilla, int lado, int cantidadLineas) {
+        Random azar = new Random(semilla);
+        for (int fila = 0; fila < lado; fila++) {
+            for (int columna = 0; columna < lado; columna++) {
+                int codigo = fila * lado + columna + 1;
+                paradas.put(codigo, new Parada(codigo, "Parada " + codigo, -42.77 + fila * 0.002,
+                        -65.05 + columna * 0.002));
+            }
+        }
+        for (int l = 0; l < cantidadLineas; l++) {
+            Linea linea = new Linea("L" + l, "Linea " + l);
+            int fila = azar.nextInt(lado);
+            int columna = azar.nextInt(lado);
+            Set<Integer> visitadas = new HashSet<>();
+            Parada anterior = null;
+            int largo = 6 + azar.nextInt(10);
+            while (linea.getParadas().size() < largo) {
+                Parada parada = paradas.get(fila * lado + columna + 1);
+                if (!visitadas.add(parada.getCodigo())) {
+                    break;
+                }
+                linea.agregarParada(parada);
+                if (anterior != null) {
+                    agregarTramo(anterior, parada, 30 + azar.nextInt(60), Constantes.COLECTIVO);
+                }
+                anterior = parada;
+                List<int[]> vecinas = new ArrayList<>();
+                for (int[] paso : new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+                    int f = fila + paso[0];
+                    int c = columna + paso[1];
+                    if (f >= 0 && f < lado && c >= 0 && c < lado && !visitadas.contains(f * lado + c + 1)) {
+                        vecinas.add(new int[]{f, c});
+                    }
+                }
+                if (vecinas.isEmpty()) {
+                    break;
+                }
+                int[] siguiente = vecinas.get(azar.nextInt(vecinas.size()));
+                fila = siguiente[0];
+                columna = siguiente[1];
+            }
+            int desfase = azar.nextInt(5);
+            for (int dia = 1; dia <= 7; dia++) {
+                for (int minuto = 6 * 60 + desfase; minuto < 22 * 60; minuto += 5) {
+                    linea.agregarFrecuencia(dia, LocalTime.of(minuto / 60, minuto % 60));
+                }
+            }
+        }
+        for (Parada parada : paradas.values()) {
+            int codigo = parada.getCodigo();
+            if (codigo % lado != 0 && azar.nextInt(3) == 0) {
+                Parada vecina = paradas.get(codigo + 1);
+                agregarTramo(parada, vecina, 240, Constantes.CAMINANDO);
+                agregarTramo(vecina, parada, 240, Constantes.CAMINANDO);
+            }
+        }
+    }
+
+    private void agregarTramo(Parada inicio, Parada fin, int tiempo, int tipo) {
+        String clave = inicio.getCodigo() + "-" + fin.getCodigo() + "-" + tipo;
+        tramos.putIfAbsent(clave, new Tramo(inicio, fin, tiempo, tipo));
+    }
+}